@@ -0,0 +1,100 @@
+package application;
+
+import application.models.Booking;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the database queries against the local starview database. The database
+ * has to be reachable with the settings of Database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmarks {
+
+    private Database database;
+    private LocalDate from, to;
+    private RoomType anyType, firstType;
+
+    @Setup
+    public void setUp() {
+        database = new Database();
+        if (!database.connect()) {
+            throw new IllegalStateException("Could not connect to the database");
+        }
+        from = LocalDate.now();
+        to = from.plusDays(7);
+        anyType = new RoomType(0, "Any", "", 0);
+        firstType = database.getRoomTypes().stream().findFirst().orElse(anyType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.disconnect();
+    }
+
+    @Benchmark
+    public ArrayList<Booking> bookingsAll() {
+        return database.getBookingsList();
+    }
+
+    @Benchmark
+    public ArrayList<Booking> bookingsFrom() {
+        return database.getBookingsList(from, null);
+    }
+
+    @Benchmark
+    public ArrayList<Booking> bookingsTo() {
+        return database.getBookingsList(null, to);
+    }
+
+    @Benchmark
+    public ArrayList<Booking> bookingsFromAndTo() {
+        return database.getBookingsList(from, to);
+    }
+
+    @Benchmark
+    public ArrayList<Room> queryAvailableRoomsAnyType() {
+        return database.queryAvailableRooms(from, to, anyType, null);
+    }
+
+    @Benchmark
+    public ArrayList<Room> queryAvailableRoomsOneType() {
+        return database.queryAvailableRooms(from, to, firstType, null);
+    }
+
+    @Benchmark
+    public ArrayList<Room> indexAvailableRoomsAnyType() {
+        return database.getAvailableRooms(from, to, anyType);
+    }
+
+    @Benchmark
+    public ArrayList<Inquiry> inquiries() {
+        return database.getInquiries();
+    }
+
+    @Benchmark
+    public ArrayList<RoomType> roomTypes() {
+        return database.getRoomTypes();
+    }
+}
@@ -0,0 +1,74 @@
+package application;
+
+import application.models.Booking;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Fills an EmbeddedBookingRepository with synthetic data, so that the embedded backend can be
+ * benchmarked without a MySQL server. Bookings are laid out back to back per room with short
+ * gaps over the past three years and the next year; inquiries hold free rooms in the future.
+ */
+class SyntheticRepository {
+
+    private static final String[] SURNAMES = {"Muster", "Meier", "Mueller", "Schmid", "Keller", "Weber", "Huber",
+            "Schneider", "Meyer", "Steiner", "Fischer", "Gerber", "Brunner", "Baumann", "Frei", "Zimmermann"};
+    private static final String[] FORENAMES = {"Anna", "Peter", "Maria", "Hans", "Ursula", "Thomas", "Ruth",
+            "Daniel", "Sandra", "Martin", "Monika", "Christian", "Laura", "Lukas", "Sarah", "Marco"};
+    private static final String[] ROOM_TYPES = {"Single", "Double", "Twin", "Junior Suite", "Suite", "Family"};
+
+    /**
+     * Generates a repository. The repository still has to be connected.
+     *
+     * @param rooms     Number of rooms
+     * @param bookings  Number of bookings
+     * @param inquiries Number of inquiries
+     * @param seed      Random seed
+     * @return EmbeddedBookingRepository Filled repository
+     */
+    static EmbeddedBookingRepository generate(int rooms, int bookings, int inquiries, long seed) {
+        Random random = new Random(seed);
+        EmbeddedBookingRepository repository = new EmbeddedBookingRepository();
+        for (int type = 1; type <= ROOM_TYPES.length; type++) {
+            repository.addRoomType(new RoomType(type, ROOM_TYPES[type - 1], "", 1 + type % 4));
+        }
+        for (int room = 1; room <= rooms; room++) {
+            repository.addRoom(new Room(room, "Room " + room, "", 1 + room % ROOM_TYPES.length));
+        }
+
+        // Every room is booked from the start of the period on, the rooms take turns
+        int today = (int) LocalDate.now().toEpochDay();
+        int[] nextFree = new int[rooms + 1];
+        for (int room = 1; room <= rooms; room++) {
+            nextFree[room] = today - 3 * 365 + random.nextInt(7);
+        }
+        for (int id = 1; id <= bookings; id++) {
+            int room = 1 + (id - 1) % rooms;
+            int checkin = nextFree[room] + random.nextInt(3);
+            int checkout = checkin + 1 + (random.nextInt(10) == 0 ? random.nextInt(21) : random.nextInt(5));
+            nextFree[room] = checkout;
+            repository.addBooking(id, checkin, checkout, random.nextInt(100) < 8,
+                    SURNAMES[random.nextInt(SURNAMES.length)], FORENAMES[random.nextInt(FORENAMES.length)], room);
+        }
+
+        for (int id = 1; id <= inquiries; id++) {
+            int room = 1 + random.nextInt(rooms);
+            int from = Math.max(nextFree[room], today) + random.nextInt(30);
+            int to = from + 1 + random.nextInt(7);
+            nextFree[room] = to;
+            boolean cancelled = random.nextInt(100) < 25;
+            repository.addInquiry(new Inquiry(id, "Group " + id, toDate(from), toDate(to), 1 + random.nextInt(4),
+                    toDate(today), toDate(from - 1), cancelled ? toDate(today) : null, 1), room);
+        }
+        return repository;
+    }
+
+    private static Date toDate(int epochDay) {
+        return Date.valueOf(Booking.toLocalDate(epochDay));
+    }
+}
@@ -0,0 +1,228 @@
+package application;
+
+import application.metrics.LatencyHistogram;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.RoomType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless replay of the query mix issued by the UI. A number of simulated users run
+ * concurrently against one BookingRepository, like several application instances sharing a server,
+ * each repeatedly picking one of the actions of Main:
+ *
+ *   - changing the bookings timeframe (occasionally clearing it, which pages the whole list)
+ *   - changing the availability timeframe
+ *   - changing the room type of the availability query
+ *   - dropping an inquiry, i.e. reloading the inquiries and checking the availability of its stay
+ *
+ * Latencies are reported per prepared statement key (Database only) and per action.
+ *
+ * Usage: java application.WorkloadReplay [users] [seconds] [--sql-availability] [--cold] [--embedded] [--synthetic bookings]
+ *
+ *   --sql-availability   Query availability from the database instead of the in-memory index
+ *   --cold               Invalidate the booking cache before every bookings load
+ *   --embedded           Import the database into an EmbeddedBookingRepository and replay against it
+ *   --synthetic N        Replay against an EmbeddedBookingRepository with N synthetic bookings, no server needed
+ */
+public class WorkloadReplay {
+
+    private static final String[] ACTIONS = {"bookings-timeframe", "bookings-all", "availability-timeframe", "room-type", "inquiry-drop"};
+    private static final int[] ACTION_WEIGHTS = {35, 5, 30, 20, 10};
+
+    private BookingRepository repository;
+    private Database database;
+    private boolean sqlAvailability, cold;
+    private ArrayList<RoomType> roomTypes;
+    private ConcurrentHashMap<String, LatencyHistogram> statementLatencies = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, AtomicLong> statementErrors = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, LatencyHistogram> actionLatencies = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int users = 8, seconds = 60;
+        boolean sqlAvailability = false, cold = false, embedded = false;
+        int synthetic = 0;
+        ArrayList<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--sql-availability")) {
+                sqlAvailability = true;
+            } else if (arg.equals("--cold")) {
+                cold = true;
+            } else if (arg.equals("--embedded")) {
+                embedded = true;
+            } else if (arg.equals("--synthetic")) {
+                synthetic = Integer.parseInt(args[++i]);
+            } else {
+                numbers.add(Integer.parseInt(arg));
+            }
+        }
+        if (numbers.size() > 0) {
+            users = numbers.get(0);
+        }
+        if (numbers.size() > 1) {
+            seconds = numbers.get(1);
+        }
+
+        Database database = synthetic > 0 || embedded ? null : new Database();
+        BookingRepository repository;
+        if (synthetic > 0) {
+            repository = SyntheticRepository.generate(200, synthetic, synthetic / 10, 42);
+        } else if (embedded) {
+            repository = new EmbeddedBookingRepository(new Database());
+        } else {
+            repository = database;
+        }
+        if (!repository.connect()) {
+            System.out.println("Could not connect to the database");
+            return;
+        }
+        try {
+            new WorkloadReplay(repository, database, sqlAvailability, cold).run(users, seconds);
+        } finally {
+            repository.disconnect();
+        }
+    }
+
+    private WorkloadReplay(BookingRepository repository, Database database, boolean sqlAvailability, boolean cold) {
+        this.repository = repository;
+        this.database = database;
+        this.sqlAvailability = sqlAvailability && database != null;
+        this.cold = cold;
+    }
+
+    private void run(int users, int seconds) throws InterruptedException {
+        roomTypes = repository.getRoomTypes(null);
+        if (roomTypes == null) {
+            System.out.println("Could not load the room types");
+            return;
+        }
+        roomTypes.add(0, new RoomType(0, "Any", "", 0));
+
+        if (database != null) {
+            database.addStatementListener((String key, long nanos, boolean failed) -> {
+                statementLatencies.computeIfAbsent(key, (String k) -> new LatencyHistogram()).record(nanos);
+                if (failed) {
+                    statementErrors.computeIfAbsent(key, (String k) -> new AtomicLong()).incrementAndGet();
+                }
+            });
+        }
+
+        System.out.format("Replaying with %d users for %d seconds%n", users, seconds);
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        CountDownLatch done = new CountDownLatch(users);
+        for (int user = 0; user < users; user++) {
+            long seed = user;
+            Thread thread = new Thread(() -> {
+                try {
+                    simulateUser(new Random(seed), end);
+                } finally {
+                    done.countDown();
+                }
+            }, "replay-user-" + user);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        if (database != null) {
+            report("Statement", statementLatencies);
+        }
+        report("Action", actionLatencies);
+    }
+
+    private void simulateUser(Random random, long end) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today, to = today.plusDays(7);
+        RoomType roomType = roomTypes.get(0);
+
+        while (System.currentTimeMillis() < end) {
+            String action = pickAction(random);
+            long start = System.nanoTime();
+            switch (action) {
+                case "bookings-timeframe":
+                    LocalDate bookingsFrom = today.minusDays(365).plusDays(random.nextInt(730));
+                    loadBookings(bookingsFrom, bookingsFrom.plusDays(1 + random.nextInt(90)));
+                    break;
+                case "bookings-all":
+                    int count = repository.countBookings(null, null, null);
+                    if (count > 0) {
+                        try {
+                            repository.getBookingsPage(null, null, null, PagedBookingList.PAGE_SIZE, null);
+                        } catch (java.sql.SQLException e) {
+                            System.out.println(e);
+                        }
+                    }
+                    break;
+                case "availability-timeframe":
+                    from = today.plusDays(random.nextInt(365));
+                    to = from.plusDays(1 + random.nextInt(14));
+                    getAvailableRooms(from, to, roomType);
+                    break;
+                case "room-type":
+                    roomType = roomTypes.get(random.nextInt(roomTypes.size()));
+                    getAvailableRooms(from, to, roomType);
+                    break;
+                case "inquiry-drop":
+                    ArrayList<Inquiry> inquiries = repository.getInquiries(null);
+                    if (!inquiries.isEmpty()) {
+                        Inquiry inquiry = inquiries.get(random.nextInt(inquiries.size()));
+                        getAvailableRooms(LocalDate.parse(inquiry.from.getValue()), LocalDate.parse(inquiry.to.getValue()), roomTypes.get(0));
+                    }
+                    break;
+            }
+            actionLatencies.computeIfAbsent(action, (String k) -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    private String pickAction(Random random) {
+        int pick = random.nextInt(100);
+        for (int i = 0; i < ACTIONS.length; i++) {
+            pick -= ACTION_WEIGHTS[i];
+            if (pick < 0) {
+                return ACTIONS[i];
+            }
+        }
+        return ACTIONS[0];
+    }
+
+    private BookingStore loadBookings(LocalDate from, LocalDate to) {
+        if (cold) {
+            repository.invalidateBookingCache();
+        }
+        return repository.getBookingStore(from, to, null);
+    }
+
+    private void getAvailableRooms(LocalDate from, LocalDate to, RoomType roomType) {
+        if (sqlAvailability) {
+            database.queryAvailableRooms(from, to, roomType, null);
+        } else {
+            repository.getAvailableRooms(from, to, roomType, null);
+        }
+    }
+
+    private void report(String title, Map<String, LatencyHistogram> latencies) {
+        System.out.println();
+        System.out.format("%-36s %10s %10s %10s %10s %10s %8s%n", title, "count", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            AtomicLong errors = statementErrors.get(entry.getKey());
+            System.out.format("%-36s %10d %10.2f %10.2f %10.2f %10.2f %8d%n",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6,
+                    histogram.getMax() / 1e6,
+                    errors != null ? errors.get() : 0);
+        }
+    }
+}
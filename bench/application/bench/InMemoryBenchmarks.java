@@ -0,0 +1,155 @@
+package application.bench;
+
+import application.assignment.RoomAssignment;
+import application.assignment.RoomAssignmentEngine;
+import application.availability.AvailabilityIndex;
+import application.cache.BookingRangeCache;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the in-memory availability index, the room assignment and the booking range cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryBenchmarks {
+
+    private static final int ROOM_TYPES = 5, INQUIRIES = 5000;
+
+    @Param("200")
+    public int roomCount;
+
+    @Param("50000")
+    public int bookingCount;
+
+    private ArrayList<Room> rooms;
+    private ArrayList<RoomType> roomTypes;
+    private ArrayList<Inquiry> inquiries;
+    private AvailabilityIndex index;
+    private BookingStore store;
+    private BookingRangeCache cache;
+    private RoomAssignmentEngine engine;
+    private LocalDate[] froms = new LocalDate[1024];
+    private int baseDay, next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        rooms = new ArrayList<>(roomCount);
+        for (int i = 1; i <= roomCount; i++) {
+            rooms.add(new Room(i, "Room " + i, "", 1 + i % ROOM_TYPES));
+        }
+        index = new AvailabilityIndex();
+        index.setRooms(rooms);
+
+        store = new BookingStore();
+        for (int i = 1; i <= bookingCount; i++) {
+            LocalDate checkin = today.minusYears(1).plusDays(random.nextInt(730));
+            LocalDate checkout = checkin.plusDays(1 + random.nextInt(14));
+            index.add(AvailabilityIndex.BOOKING, i, 1 + random.nextInt(roomCount), checkin, checkout);
+            store.add(i, (int) checkin.toEpochDay(), (int) checkout.toEpochDay(), false, "Muster", "Max");
+        }
+
+        for (int i = 0; i < froms.length; i++) {
+            froms[i] = today.plusDays(random.nextInt(365));
+        }
+
+        roomTypes = new ArrayList<>();
+        for (int type = 1; type <= ROOM_TYPES; type++) {
+            roomTypes.add(new RoomType(type, "Type " + type, "", type));
+        }
+        inquiries = new ArrayList<>();
+        for (int i = 1; i <= INQUIRIES; i++) {
+            LocalDate checkin = today.plusDays(random.nextInt(365));
+            Date from = Date.valueOf(checkin);
+            inquiries.add(new Inquiry(i, "Group " + i, from, Date.valueOf(checkin.plusDays(1 + random.nextInt(10))),
+                    1 + random.nextInt(8), from, from, null, i));
+        }
+        engine = new RoomAssignmentEngine(ForkJoinPool.commonPool());
+
+        baseDay = (int) today.toEpochDay();
+        cache = new BookingRangeCache(64L * 1024 * 1024);
+    }
+
+    @Benchmark
+    public ArrayList<Room> calendarAnyType() {
+        LocalDate from = froms[next++ & 1023];
+        return index.getAvailableRooms(from, from.plusDays(7), 0);
+    }
+
+    @Benchmark
+    public ArrayList<Room> calendarOneType() {
+        LocalDate from = froms[next++ & 1023];
+        return index.getAvailableRooms(from, from.plusDays(7), 1);
+    }
+
+    @Benchmark
+    public ArrayList<Room> intervalsAnyType() {
+        LocalDate from = froms[next++ & 1023].plusYears(10);
+        return index.getAvailableRooms(from, from.plusDays(7), 0);
+    }
+
+    @Benchmark
+    public boolean isAvailable() {
+        LocalDate from = froms[next++ & 1023];
+        return index.isAvailable(1 + (next % roomCount), from, from.plusDays(7));
+    }
+
+    @Benchmark
+    public RoomAssignment roomAssignment() {
+        return engine.assign(rooms, roomTypes, index.getIntervals(), inquiries);
+    }
+
+    @Benchmark
+    public BookingStore cacheHit() throws SQLException {
+        int from = baseDay + (next++ & 255);
+        return cache.get(from, from + 30, (int fromDay, int toDay) -> overlapping(store, fromDay, toDay));
+    }
+
+    @Benchmark
+    public BookingStore cacheMiss() throws SQLException {
+        cache.invalidate();
+        int from = baseDay + (next++ & 255);
+        return cache.get(from, from + 30, (int fromDay, int toDay) -> overlapping(store, fromDay, toDay));
+    }
+
+    /**
+     * Stands in for the database when the cache loads a window.
+     */
+    private static BookingStore overlapping(BookingStore store, int fromDay, int toDay) {
+        BookingStore result = new BookingStore();
+        for (int row = 0; row < store.size(); row++) {
+            if (store.getCheckinDay(row) <= toDay && store.getCheckoutDay(row) >= fromDay) {
+                result.addRow(store, row);
+            }
+        }
+        return result;
+    }
+}
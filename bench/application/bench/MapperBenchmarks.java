@@ -0,0 +1,143 @@
+package application.bench;
+
+import application.enums.ExportFormat;
+import application.export.BookingExportWriter;
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the ResultSet mappers of the models and of the booking export writers. The
+ * rows are synthetic, so the numbers show the cost of mapping alone, without driver and
+ * network overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmarks {
+
+    private static final String[]
+            BOOKING_COLUMNS = {"id", "checkin", "checkout", "cancelled_at", "surname", "forename"},
+            ROOM_COLUMNS = {"id", "name", "description", "room_type_id"},
+            ROOM_TYPE_COLUMNS = {"id", "name", "description", "maximum_number_of_guests"},
+            INQUIRY_COLUMNS = {"id", "group_name", "from", "to", "number_of_guests", "created_at", "reservation_until", "cancelled_at", "person_id"};
+
+    private static final String[] NAMES = {"Muster", "Meier", "Mueller", "Schmid", "Keller", "Weber", "Huber", "Schneider"};
+
+    @Param("10000")
+    public int rows;
+
+    private ArrayList<Object[]> bookings, rooms, roomTypes, inquiries;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bookings = new ArrayList<>(rows);
+        rooms = new ArrayList<>(rows);
+        roomTypes = new ArrayList<>(rows);
+        inquiries = new ArrayList<>(rows);
+        LocalDate start = LocalDate.now().minusYears(1);
+
+        for (int i = 1; i <= rows; i++) {
+            LocalDate checkin = start.plusDays(random.nextInt(730));
+            Date from = Date.valueOf(checkin);
+            Date to = Date.valueOf(checkin.plusDays(1 + random.nextInt(14)));
+            Date cancelled = random.nextInt(10) == 0 ? from : null;
+            String surname = NAMES[random.nextInt(NAMES.length)];
+            String forename = NAMES[random.nextInt(NAMES.length)];
+
+            bookings.add(new Object[]{i, from, to, cancelled, surname, forename});
+            rooms.add(new Object[]{i, "Room " + i, "Description " + i, 1 + random.nextInt(5)});
+            roomTypes.add(new Object[]{i, "Type " + i, "Description " + i, 1 + random.nextInt(6)});
+            inquiries.add(new Object[]{i, surname, from, to, 1 + random.nextInt(6), from, to, cancelled, i});
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Booking> bookingMapList() throws SQLException {
+        return Booking.mapListFromDatabase(SyntheticResultSet.create(BOOKING_COLUMNS, bookings));
+    }
+
+    @Benchmark
+    public BookingStore bookingStoreMap() throws SQLException {
+        return BookingStore.mapFromDatabase(SyntheticResultSet.create(BOOKING_COLUMNS, bookings));
+    }
+
+    @Benchmark
+    public ArrayList<Room> roomMapList() throws SQLException {
+        return Room.mapListFromDatabase(SyntheticResultSet.create(ROOM_COLUMNS, rooms));
+    }
+
+    @Benchmark
+    public ArrayList<RoomType> roomTypeMapList() throws SQLException {
+        return RoomType.mapListFromDatabase(SyntheticResultSet.create(ROOM_TYPE_COLUMNS, roomTypes));
+    }
+
+    @Benchmark
+    public ArrayList<Inquiry> inquiryMapList() throws SQLException {
+        return Inquiry.mapListFromDatabase(SyntheticResultSet.create(INQUIRY_COLUMNS, inquiries));
+    }
+
+    /**
+     * Export of the booking rows in every format
+     */
+    @State(Scope.Benchmark)
+    public static class ExportState {
+
+        @Param
+        public ExportFormat format;
+    }
+
+    @Benchmark
+    public long export(ExportState state) throws Exception {
+        return BookingExportWriter.create(state.format, new DiscardingChannel(), null)
+                .export(SyntheticResultSet.create(BOOKING_COLUMNS, bookings));
+    }
+
+    /**
+     * Channel that drops everything written to it, so exports are measured without disk I/O
+     */
+    private static class DiscardingChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer source) {
+            int written = source.remaining();
+            source.position(source.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package application.bench;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Fills an existing starview schema with synthetic data at configurable volumes.
+ *
+ * Stays are short with a long tail (most guests stay a few nights, some several weeks) and
+ * lead times of up to half a year. Every room is occupied by at most one active booking or
+ * inquiry per night; requests that do not find a free room after a few attempts are dropped,
+ * so the generated occupancy saturates realistically instead of overbooking.
+ *
+ * Usage: java application.bench.StarviewGenerator [--option value ...]
+ *
+ *   --url, --user, --password   Connection settings, default: local starview as root
+ *   --room-types N              Number of room types (default 6)
+ *   --rooms N                   Number of rooms (default 200)
+ *   --persons N                 Number of persons (default 20000)
+ *   --bookings N                Number of booking requests (default 100000)
+ *   --inquiries N               Number of inquiry requests (default 10000)
+ *   --years N                   Years of history before today (default 3)
+ *   --booking-cancel-rate R     Share of cancelled bookings (default 0.08)
+ *   --inquiry-cancel-rate R     Share of cancelled inquiries (default 0.25)
+ *   --seed N                    Random seed (default 42)
+ *   --truncate                  Delete all existing rows first
+ */
+public class StarviewGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int ROOM_ATTEMPTS = 8;
+    private static final String[] SURNAMES = {"Muster", "Meier", "Mueller", "Schmid", "Keller", "Weber", "Huber",
+            "Schneider", "Meyer", "Steiner", "Fischer", "Gerber", "Brunner", "Baumann", "Frei", "Zimmermann"};
+    private static final String[] FORENAMES = {"Anna", "Peter", "Maria", "Hans", "Ursula", "Thomas", "Ruth",
+            "Daniel", "Sandra", "Martin", "Monika", "Christian", "Laura", "Lukas", "Sarah", "Marco"};
+    private static final String[] ROOM_TYPES = {"Single", "Double", "Twin", "Junior Suite", "Suite", "Family"};
+    private static final String[] TABLES = {"inquiry_room", "inquiry", "booking_room", "booking_person", "booking",
+            "person", "room", "room_type"};
+
+    private HashMap<String, String> options;
+    private Random random;
+    private int firstDay, days;
+    private int[] roomTypeOfRoom;
+    private long[][] occupancy;
+
+    private StarviewGenerator(HashMap<String, String> options) {
+        this.options = options;
+        this.random = new Random(getLong("seed", 42));
+    }
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(name, hasValue ? args[++i] : "true");
+        }
+        new StarviewGenerator(options).generate();
+    }
+
+    private void generate() throws SQLException {
+        String url = options.getOrDefault("url", "jdbc:mysql://localhost:3306/starview?verifyServerCertificate=false&useSSL=false&rewriteBatchedStatements=true");
+        try (Connection connection = DriverManager.getConnection(url, options.getOrDefault("user", "root"), options.getOrDefault("password", "root"))) {
+            connection.setAutoCommit(false);
+
+            if (options.containsKey("truncate")) {
+                truncate(connection);
+            }
+
+            LocalDate today = LocalDate.now();
+            firstDay = (int) today.minusYears(getLong("years", 3)).toEpochDay();
+            days = (int) today.plusYears(1).toEpochDay() - firstDay;
+
+            long start = System.currentTimeMillis();
+            int roomTypes = insertRoomTypes(connection, (int) getLong("room-types", 6));
+            insertRooms(connection, (int) getLong("rooms", 200), roomTypes);
+            int persons = insertPersons(connection, (int) getLong("persons", 20000));
+            int bookings = insertBookings(connection, (int) getLong("bookings", 100000), persons, getDouble("booking-cancel-rate", 0.08));
+            int inquiries = insertInquiries(connection, (int) getLong("inquiries", 10000), persons, getDouble("inquiry-cancel-rate", 0.25));
+
+            System.out.format("Generated %d room types, %d rooms, %d persons, %d bookings and %d inquiries in %d ms%n",
+                    roomTypes, roomTypeOfRoom.length, persons, bookings, inquiries, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void truncate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+            for (String table : TABLES) {
+                statement.execute("DELETE FROM " + table);
+            }
+            statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+        }
+        connection.commit();
+    }
+
+    private int insertRoomTypes(Connection connection, int count) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement(
+                "INSERT INTO room_type (id, name, description, maximum_number_of_guests) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= count; i++) {
+                String name = ROOM_TYPES[(i - 1) % ROOM_TYPES.length] + (i > ROOM_TYPES.length ? " " + i : "");
+                prep.setInt(1, i);
+                prep.setString(2, name);
+                prep.setString(3, name + " room");
+                prep.setInt(4, 1 + (i - 1) % 6);
+                addBatch(connection, prep, i);
+            }
+            flush(connection, prep);
+        }
+        return count;
+    }
+
+    private void insertRooms(Connection connection, int count, int roomTypes) throws SQLException {
+        roomTypeOfRoom = new int[count];
+        occupancy = new long[count][(days + 63) >>> 6];
+        try (PreparedStatement prep = connection.prepareStatement(
+                "INSERT INTO room (id, name, description, room_type_id) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= count; i++) {
+                // Cheaper room types are more common
+                int roomType = 1 + (int) (Math.abs(random.nextGaussian()) * roomTypes / 2.5) % roomTypes;
+                roomTypeOfRoom[i - 1] = roomType;
+                prep.setInt(1, i);
+                prep.setString(2, String.format("%d%02d", 1 + (i - 1) / 40, 1 + (i - 1) % 40));
+                prep.setString(3, "Floor " + (1 + (i - 1) / 40));
+                prep.setInt(4, roomType);
+                addBatch(connection, prep, i);
+            }
+            flush(connection, prep);
+        }
+    }
+
+    private int insertPersons(Connection connection, int count) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("INSERT INTO person (id, surname, forename) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= count; i++) {
+                prep.setInt(1, i);
+                prep.setString(2, SURNAMES[random.nextInt(SURNAMES.length)]);
+                prep.setString(3, FORENAMES[random.nextInt(FORENAMES.length)]);
+                addBatch(connection, prep, i);
+            }
+            flush(connection, prep);
+        }
+        return count;
+    }
+
+    private int insertBookings(Connection connection, int requests, int persons, double cancelRate) throws SQLException {
+        int id = 0;
+        try (PreparedStatement booking = connection.prepareStatement("INSERT INTO booking (id, checkin, checkout, cancelled_at) VALUES (?, ?, ?, ?)");
+             PreparedStatement bookingPerson = connection.prepareStatement("INSERT INTO booking_person (booking_id, person_id, isResponsible) VALUES (?, ?, ?)");
+             PreparedStatement bookingRoom = connection.prepareStatement("INSERT INTO booking_room (booking_id, room_id) VALUES (?, ?)")) {
+
+            for (int request = 0; request < requests; request++) {
+                int checkin = firstDay + random.nextInt(days);
+                int checkout = Math.min(checkin + stayLength(), firstDay + days);
+                boolean cancelled = random.nextDouble() < cancelRate;
+                int room = cancelled ? random.nextInt(roomTypeOfRoom.length) : findFreeRoom(checkin, checkout);
+                if (room < 0) {
+                    continue;
+                }
+                id++;
+
+                booking.setInt(1, id);
+                booking.setDate(2, toDate(checkin));
+                booking.setDate(3, toDate(checkout));
+                booking.setDate(4, cancelled ? toDate(checkin - 1 - random.nextInt(30)) : null);
+                booking.addBatch();
+
+                int guests = 1 + (random.nextInt(4) == 0 ? 1 : 0);
+                for (int guest = 0; guest < guests; guest++) {
+                    bookingPerson.setInt(1, id);
+                    bookingPerson.setInt(2, 1 + random.nextInt(persons));
+                    bookingPerson.setBoolean(3, guest == 0);
+                    bookingPerson.addBatch();
+                }
+
+                bookingRoom.setInt(1, id);
+                bookingRoom.setInt(2, room + 1);
+                bookingRoom.addBatch();
+
+                if (id % BATCH_SIZE == 0) {
+                    flush(connection, booking, bookingPerson, bookingRoom);
+                }
+            }
+            flush(connection, booking, bookingPerson, bookingRoom);
+        }
+        return id;
+    }
+
+    private int insertInquiries(Connection connection, int requests, int persons, double cancelRate) throws SQLException {
+        int id = 0;
+        try (PreparedStatement inquiry = connection.prepareStatement("" +
+                "INSERT INTO inquiry (id, group_name, `from`, `to`, number_of_guests, created_at, reservation_until, cancelled_at, person_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement inquiryRoom = connection.prepareStatement("INSERT INTO inquiry_room (inquiry_id, room_id) VALUES (?, ?)")) {
+
+            int today = (int) LocalDate.now().toEpochDay();
+            for (int request = 0; request < requests; request++) {
+                // Inquiries are made for the future by groups, usually for several rooms
+                int from = today + 7 + random.nextInt(Math.max(1, firstDay + days - today - 30));
+                int to = from + stayLength();
+                boolean cancelled = random.nextDouble() < cancelRate;
+                int roomCount = 1 + random.nextInt(5);
+
+                int[] rooms = new int[roomCount];
+                int found = 0;
+                for (int i = 0; i < roomCount; i++) {
+                    int room = cancelled ? random.nextInt(roomTypeOfRoom.length) : findFreeRoom(from, to);
+                    if (room >= 0) {
+                        rooms[found++] = room;
+                    }
+                }
+                if (found == 0) {
+                    continue;
+                }
+                id++;
+
+                int createdAt = from - 14 - random.nextInt(120);
+                inquiry.setInt(1, id);
+                inquiry.setString(2, "Group " + SURNAMES[random.nextInt(SURNAMES.length)] + " " + id);
+                inquiry.setDate(3, toDate(from));
+                inquiry.setDate(4, toDate(to));
+                inquiry.setInt(5, found * (1 + random.nextInt(2)));
+                inquiry.setDate(6, toDate(createdAt));
+                inquiry.setDate(7, toDate(createdAt + 14));
+                inquiry.setDate(8, cancelled ? toDate(createdAt + random.nextInt(14)) : null);
+                inquiry.setInt(9, 1 + random.nextInt(persons));
+                inquiry.addBatch();
+
+                for (int i = 0; i < found; i++) {
+                    inquiryRoom.setInt(1, id);
+                    inquiryRoom.setInt(2, rooms[i] + 1);
+                    inquiryRoom.addBatch();
+                }
+
+                if (id % BATCH_SIZE == 0) {
+                    flush(connection, inquiry, inquiryRoom);
+                }
+            }
+            flush(connection, inquiry, inquiryRoom);
+        }
+        return id;
+    }
+
+    /**
+     * Returns a stay length in nights: mostly short stays with a long tail, up to four weeks.
+     */
+    private int stayLength() {
+        return Math.min(28, 1 + (int) (-Math.log(1 - random.nextDouble()) * 2.5));
+    }
+
+    /**
+     * Picks a random room that is free for all nights of [from, to) and marks it as occupied.
+     *
+     * @return int Index of the room, -1 if no free room was found
+     */
+    private int findFreeRoom(int from, int to) {
+        for (int attempt = 0; attempt < ROOM_ATTEMPTS; attempt++) {
+            int room = random.nextInt(roomTypeOfRoom.length);
+            long[] bits = occupancy[room];
+            boolean free = true;
+            for (int day = from - firstDay; day < to - firstDay && free; day++) {
+                free = day >= days || (bits[day >>> 6] & (1L << day)) == 0;
+            }
+            if (free) {
+                for (int day = from - firstDay; day < Math.min(to - firstDay, days); day++) {
+                    bits[day >>> 6] |= 1L << day;
+                }
+                return room;
+            }
+        }
+        return -1;
+    }
+
+    private static Date toDate(int epochDay) {
+        return Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+
+    private static void addBatch(Connection connection, PreparedStatement prep, int count) throws SQLException {
+        prep.addBatch();
+        if (count % BATCH_SIZE == 0) {
+            flush(connection, prep);
+        }
+    }
+
+    private static void flush(Connection connection, PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement prep : statements) {
+            prep.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private long getLong(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    private double getDouble(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
@@ -0,0 +1,85 @@
+package application.bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * In-memory ResultSet over synthetic rows, used to benchmark the model mappers without a
+ * database. Only the accessors used by the mappers are supported. The same rows can be
+ * replayed any number of times by creating a new result set.
+ */
+public final class SyntheticResultSet {
+
+    private SyntheticResultSet() {
+    }
+
+    /**
+     * Creates a result set.
+     *
+     * @param columns Column labels
+     * @param rows    Row values, one array per row in column order
+     * @return ResultSet Result set positioned before the first row
+     */
+    public static ResultSet create(String[] columns, List<Object[]> rows) {
+        HashMap<String, Integer> columnIndexes = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            columnIndexes.put(columns[i], i + 1);
+        }
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (Object proxy, java.lang.reflect.Method method, Object[] args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "close":
+                            return null;
+                        case "wasNull":
+                            return wasNull[0];
+                        case "findColumn":
+                            return column(columnIndexes, args[0]);
+                        case "getInt":
+                        case "getBoolean":
+                        case "getString":
+                        case "getDate":
+                        case "getTimestamp":
+                            Object value = rows.get(cursor[0])[column(columnIndexes, args[0]) - 1];
+                            wasNull[0] = value == null;
+                            return convert(method.getName(), value);
+                        default:
+                            throw new SQLException("Not supported by SyntheticResultSet: " + method.getName());
+                    }
+                });
+    }
+
+    private static int column(HashMap<String, Integer> columnIndexes, Object column) throws SQLException {
+        if (column instanceof Integer) {
+            return (Integer) column;
+        }
+        Integer index = columnIndexes.get(column);
+        if (index == null) {
+            throw new SQLException("Unknown column " + column);
+        }
+        return index;
+    }
+
+    private static Object convert(String getter, Object value) {
+        switch (getter) {
+            case "getInt":
+                return value instanceof Number ? ((Number) value).intValue() : 0;
+            case "getBoolean":
+                return value instanceof Boolean ? value : value != null;
+            case "getString":
+                return value != null ? value.toString() : null;
+            case "getTimestamp":
+                return value instanceof Date ? new java.sql.Timestamp(((Date) value).getTime()) : value;
+            default:
+                return value;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package application;
+
+import application.analytics.OccupancyReport;
+import application.assignment.RoomAssignment;
+import application.availability.AvailabilityRequest;
+import application.conversion.ConversionResult;
+import application.conversion.InquiryConversion;
+import application.enums.ExportFormat;
+import application.interfaces.ExportProgressListener;
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Asynchronous query layer on top of a BookingRepository. Queries run on a pool of background
+ * workers, one per query the repository can run in parallel, and their results are published
+ * back to the JavaFX application thread. Exports, occupancy reports and conversions of inquiries
+ * into bookings always run on the Database.
+ *
+ * Every query is submitted for a target (e.g. "bookings" or "availability"). Submitting a
+ * new query for a target cancels the query that is still running for the same target, so
+ * stale results never overwrite fresh ones. A query that fails with an unexpected exception
+ * hands its failure value (the value the repository returns on database errors) to the
+ * callback, so that callers waiting for the result are never left hanging.
+ */
+public class AsyncDatabase {
+
+    private BookingRepository repository;
+    private Database database;
+    private ExecutorService executor;
+    private ExecutorService canceller;
+    private HashMap<String, QueryHandle> runningQueries;
+    private AtomicInteger workerCount = new AtomicInteger();
+    private AtomicInteger conversionCount = new AtomicInteger();
+
+    /**
+     * Constructor
+     * @param repository Repository to run the queries on
+     * @param database   Database to run exports, occupancy reports and conversions on
+     */
+    AsyncDatabase(BookingRepository repository, Database database) {
+        this.repository = repository;
+        this.database = database;
+        this.runningQueries = new HashMap<>();
+        this.executor = Executors.newFixedThreadPool(repository.getParallelism(), (Runnable r) -> {
+            Thread thread = new Thread(r, "database-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.canceller = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "query-canceller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(String target, Function<QueryHandle, T> query, Consumer<T> onResult) {
+        return submit(target, query, null, onResult);
+    }
+
+    /**
+     * Submits a query for a target. A query that is still running for the same target is cancelled.
+     * The result is handed to the callback on the JavaFX application thread, unless the query
+     * has been superseded in the meantime. If the query throws, the exception is reported and
+     * the failure value is handed to the callback instead.
+     *
+     * @param target   Target of the query
+     * @param query    Query to run
+     * @param failed   Result handed to the callback if the query throws
+     * @param onResult Callback for the result, may be null
+     * @return CompletableFuture<T> Future of the query result
+     */
+    private <T> CompletableFuture<T> submit(String target, Function<QueryHandle, T> query, T failed, Consumer<T> onResult) {
+        QueryHandle handle = new QueryHandle();
+        QueryHandle previous;
+
+        synchronized (runningQueries) {
+            previous = runningQueries.put(target, handle);
+        }
+        if (previous != null) {
+            previous.cancel(canceller);
+        }
+
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> handle.isCancelled() ? null : query.apply(handle), executor);
+        future.whenComplete((T result, Throwable error) -> Platform.runLater(() -> {
+            synchronized (runningQueries) {
+                runningQueries.remove(target, handle);
+            }
+            if (error != null) {
+                System.out.println(error);
+            }
+            if (!handle.isCancelled() && onResult != null) {
+                onResult.accept(error == null ? result : failed);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * Connects the repository on a background worker, so that opening the connections and
+     * importing data never block the JavaFX application thread. The state changes are
+     * reported to the database observers.
+     *
+     * @param onResult Callback for the result, receives False on errors, may be null
+     * @return CompletableFuture<Boolean> Future of the result, True if connected
+     */
+    CompletableFuture<Boolean> connect(Consumer<Boolean> onResult) {
+        return submit("connect", (QueryHandle handle) -> repository.connect(), false, onResult);
+    }
+
+    /**
+     * Cancels all running queries, e.g. before disconnecting.
+     */
+    void cancelAll() {
+        synchronized (runningQueries) {
+            for (QueryHandle handle : runningQueries.values()) {
+                handle.cancel(canceller);
+            }
+            runningQueries.clear();
+        }
+    }
+
+    /**
+     * Cancels the running query of a target.
+     *
+     * @param target Target of the query
+     */
+    void cancel(String target) {
+        QueryHandle handle;
+        synchronized (runningQueries) {
+            handle = runningQueries.remove(target);
+        }
+        if (handle != null) {
+            handle.cancel(canceller);
+        }
+    }
+
+    /**
+     * Stops the background workers. Pending statement cancels still run before the canceller stops.
+     */
+    void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+        canceller.shutdown();
+    }
+
+    CompletableFuture<BookingStore> getBookingStore(LocalDate from, LocalDate to, Consumer<BookingStore> onResult) {
+        cancel("bookings-delta");
+        return submit("bookings", (QueryHandle handle) -> repository.getBookingStore(from, to, handle), onResult);
+    }
+
+    CompletableFuture<ArrayList<Room>> getAvailableRooms(LocalDate from, LocalDate to, RoomType roomType, Consumer<ArrayList<Room>> onResult) {
+        return submit("availability", (QueryHandle handle) -> {
+            ArrayList<Room> rooms = repository.getAvailableRooms(from, to, roomType, handle);
+            return rooms != null ? rooms : new ArrayList<>();
+        }, new ArrayList<>(), onResult);
+    }
+
+    CompletableFuture<ArrayList<ArrayList<Room>>> getAvailableRooms(List<AvailabilityRequest> requests, Consumer<ArrayList<ArrayList<Room>>> onResult) {
+        return submit("inquiry-availability", (QueryHandle handle) -> repository.getAvailableRooms(requests, handle), onResult);
+    }
+
+    CompletableFuture<RoomAssignment> assignRooms(List<Inquiry> inquiries, List<RoomType> roomTypes, Consumer<RoomAssignment> onResult) {
+        return submit("room-assignment", (QueryHandle handle) -> repository.assignRooms(inquiries, roomTypes), onResult);
+    }
+
+    CompletableFuture<ArrayList<OccupancyReport>> getOccupancyReports(LocalDate from, LocalDate to, List<RoomType> roomTypes,
+                                                                    Consumer<ArrayList<OccupancyReport>> onResult) {
+        return submit("analytics", (QueryHandle handle) -> database.getOccupancyReports(from, to, roomTypes), onResult);
+    }
+
+    /**
+     * Exports the bookings of a timeframe into a file. An incomplete file is deleted if the
+     * export fails or is cancelled.
+     *
+     * @param from     Checkin date has to be equal or greater, may be null
+     * @param to       Checkout date has to be equal or less, may be null
+     * @param format   Format of the export
+     * @param path     File to write, replaced if it exists
+     * @param listener Observer of the progress, called on the worker thread, may be null
+     * @param onResult Callback for the number of exported bookings, receives -1 on errors
+     * @return CompletableFuture<Long> Future of the number of exported bookings
+     */
+    CompletableFuture<Long> exportBookings(LocalDate from, LocalDate to, ExportFormat format, Path path,
+                                           ExportProgressListener listener, Consumer<Long> onResult) {
+        return submit("export", (QueryHandle handle) -> {
+            long rows;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                rows = database.exportBookings(from, to, format, channel, listener, handle);
+            } catch (IOException e) {
+                System.out.println(e);
+                rows = -1;
+            }
+            if (rows < 0) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    System.out.println(e);
+                }
+            }
+            return rows;
+        }, -1L, onResult);
+    }
+
+    /**
+     * Converts inquiries into bookings. Conversions are never cancelled by other queries, as
+     * every target has its own conversion.
+     *
+     * @param conversions Inquiries and the rooms to book for them
+     * @param onResult    Callback for the result, receives null if not connected or on errors
+     * @return CompletableFuture<ConversionResult> Future of the result
+     */
+    CompletableFuture<ConversionResult> convertInquiries(List<InquiryConversion> conversions, Consumer<ConversionResult> onResult) {
+        return submit("conversion-" + conversionCount.incrementAndGet(), (QueryHandle handle) -> database.convertInquiries(conversions), onResult);
+    }
+
+    CompletableFuture<ArrayList<Inquiry>> getInquiries(Consumer<ArrayList<Inquiry>> onResult) {
+        return submit("inquiries", (QueryHandle handle) -> {
+            ArrayList<Inquiry> inquiries = repository.getInquiries(handle);
+            return inquiries != null ? inquiries : new ArrayList<>();
+        }, new ArrayList<>(), onResult);
+    }
+
+    CompletableFuture<ArrayList<RoomType>> getRoomTypes(Consumer<ArrayList<RoomType>> onResult) {
+        return submit("roomtypes", (QueryHandle handle) -> repository.getRoomTypes(handle), onResult);
+    }
+
+    CompletableFuture<Integer> countBookings(LocalDate from, LocalDate to, Consumer<Integer> onResult) {
+        return submit("bookings", (QueryHandle handle) -> repository.countBookings(from, to, handle), -1, onResult);
+    }
+
+    /**
+     * Loads a page of bookings. If the cursor of the page is unknown, it is looked up first by
+     * skipping the bookings between the nearest known cursor and the page. All pages share one
+     * target, so a new paged list supersedes the page still loading for the previous one.
+     *
+     * @param from     Checkin date has to be equal or greater, may be null
+     * @param to       Checkout date has to be equal or less, may be null
+     * @param after    Nearest known cursor before the page, null for the start of the bookings
+     * @param skip     Number of bookings between the cursor and the page
+     * @param pageSize Number of bookings per page
+     * @param onResult Callback for the result, receives null on errors
+     * @return CompletableFuture<BookingStore> Future of the page
+     */
+    CompletableFuture<BookingStore> getBookingsPage(LocalDate from, LocalDate to, BookingCursor after, int skip, int pageSize,
+                                                    Consumer<BookingStore> onResult) {
+        return submit("bookings-page", (QueryHandle handle) -> {
+            try {
+                BookingCursor cursor = after;
+                if (skip > 0) {
+                    cursor = repository.getBookingsCursor(from, to, after, skip - 1, handle);
+                    if (cursor == null) {
+                        return new BookingStore();
+                    }
+                }
+                return repository.getBookingsPage(from, to, cursor, pageSize, handle);
+            } catch (SQLException e) {
+                System.out.println(e);
+                return null;
+            }
+        }, onResult);
+    }
+
+    /**
+     * Loads the bookings of a timeframe that are new or have changed since the last sync.
+     * Cached timeframes and the availability index are brought up to date as well.
+     *
+     * @param from     Checkin date has to be equal or greater, may be null
+     * @param to       Checkout date has to be equal or less, may be null
+     * @param after    Change mark of the last sync
+     * @param withIds  True to fetch the ids of all bookings of the timeframe as well
+     * @param onResult Callback for the result, receives null on errors
+     * @return CompletableFuture<Delta<BookingStore>> Future of the delta
+     */
+    CompletableFuture<Delta<BookingStore>> getBookingDelta(LocalDate from, LocalDate to, ChangeMark after,
+                                                         boolean withIds, Consumer<Delta<BookingStore>> onResult) {
+        return submit("bookings-delta", (QueryHandle handle) -> {
+            try {
+                Delta<BookingStore> changes = repository.getBookingsChangedSince(after, handle);
+                BookingStore changed = changes.changed;
+                HashSet<Integer> ids = withIds ? repository.getBookingIds(from, to, handle) : null;
+                for (int row = 0; row < changed.size(); row++) {
+                    repository.invalidateBookingCache(changed.getId(row),
+                            Booking.toLocalDate(changed.getCheckinDay(row)), Booking.toLocalDate(changed.getCheckoutDay(row)));
+                }
+                if (changed.size() > 0) {
+                    repository.syncAvailabilityIndex();
+                }
+                return new Delta<>(changed, ids, changes.mark);
+            } catch (SQLException e) {
+                System.out.println(e);
+                return null;
+            }
+        }, onResult);
+    }
+
+    /**
+     * Loads the inquiries that are new or have changed since the last sync.
+     *
+     * @param highWaterMark Highest inquiry id known from the last sync
+     * @param since         Date of the last sync
+     * @param withIds       True to fetch the ids of all inquiries as well
+     * @param onResult      Callback for the result, receives null on errors
+     * @return CompletableFuture<Delta<ArrayList<Inquiry>>> Future of the delta
+     */
+    CompletableFuture<Delta<ArrayList<Inquiry>>> getInquiryDelta(int highWaterMark, LocalDate since, boolean withIds,
+                                                               Consumer<Delta<ArrayList<Inquiry>>> onResult) {
+        return submit("inquiries-delta", (QueryHandle handle) -> {
+            try {
+                return new Delta<>(repository.getInquiriesChangedSince(highWaterMark, since, handle),
+                        withIds ? repository.getInquiryIds(handle) : null);
+            } catch (SQLException e) {
+                System.out.println(e);
+                return null;
+            }
+        }, onResult);
+    }
+}
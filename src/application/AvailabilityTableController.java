@@ -3,9 +3,12 @@ package application;
 import application.models.Booking;
 import application.models.Room;
 import javafx.collections.ObservableList;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 
+import java.util.ArrayList;
+
 
 /**
  * Booking Table controller wrapper for the main bookings table.
@@ -21,9 +24,22 @@ public class AvailabilityTableController {
      */
     AvailabilityTableController(TableView<Room> tableView) {
         this.availabilityTableView = tableView;
+        this.availabilityTableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         initColumns();
     }
 
+    /**
+     * Returns the ids of the selected rooms
+     * @return ArrayList<Integer> Room ids
+     */
+    ArrayList<Integer> getSelectedRoomIds() {
+        ArrayList<Integer> roomIds = new ArrayList<>();
+        for (Room room : this.availabilityTableView.getSelectionModel().getSelectedItems()) {
+            roomIds.add(room.id.getValue());
+        }
+        return roomIds;
+    }
+
     /**
      * Set the datasource
      * @param source Datasource
@@ -0,0 +1,39 @@
+package application;
+
+import application.models.Booking;
+import application.models.BookingStore;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Keyset position within the bookings ordered by (checkin, id), bookings without checkin
+ * date first. A page starts right after the booking the cursor points to.
+ */
+class BookingCursor {
+
+    final Date checkin;
+    final int id;
+
+    /**
+     * Constructor
+     * @param checkin Checkin date of the last booking before the page, null if it has none
+     * @param id      Id of the last booking before the page
+     */
+    BookingCursor(Date checkin, int id) {
+        this.checkin = checkin;
+        this.id = id;
+    }
+
+    /**
+     * Returns the cursor pointing to a row of a store
+     *
+     * @param bookings Store of the row
+     * @param row      Row the page before ends with
+     * @return BookingCursor Cursor
+     */
+    static BookingCursor at(BookingStore bookings, int row) {
+        LocalDate checkin = Booking.toLocalDate(bookings.getCheckinDay(row));
+        return new BookingCursor(checkin != null ? Date.valueOf(checkin) : null, bookings.getId(row));
+    }
+}
@@ -0,0 +1,150 @@
+package application;
+
+import application.assignment.RoomAssignment;
+import application.availability.AvailabilityRequest;
+import application.interfaces.DatabaseListener;
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Storage backend of the application: bookings by timeframe, room availability, inquiries and
+ * room types. Implemented by the MySQL Database and by the in-process EmbeddedBookingRepository.
+ *
+ * All methods may be called concurrently from the workers of the AsyncDatabase. Methods taking a
+ * QueryHandle stop early once the handle has been cancelled. Timeframes follow the semantics of
+ * the booking list: the checkin date has to be equal or greater than the start, the checkout
+ * date equal or less than the end, a missing bound is not checked.
+ */
+interface BookingRepository {
+
+    /**
+     * Opens the repository. Observers are notified on every state change.
+     *
+     * @return True if the repository is ready
+     */
+    boolean connect();
+
+    /**
+     * Closes the repository
+     *
+     * @return True if the repository has been open
+     */
+    boolean disconnect();
+
+    boolean isConnected();
+
+    void addDatabaseObserver(DatabaseListener observer);
+
+    void removeDatabaseObserver(DatabaseListener observer);
+
+    /**
+     * Returns the number of queries that can run in parallel
+     *
+     * @return int Number of parallel queries
+     */
+    int getParallelism();
+
+    ArrayList<Booking> getBookingsList(LocalDate fromDate, LocalDate toDate, QueryHandle handle);
+
+    /**
+     * Returns all bookings within a timeframe as columnar store
+     *
+     * @return BookingStore Bookings, null on errors
+     */
+    BookingStore getBookingStore(LocalDate fromDate, LocalDate toDate, QueryHandle handle);
+
+    /**
+     * Counts the bookings within a timeframe that can be loaded page by page
+     *
+     * @return int Number of bookings, -1 on errors
+     */
+    int countBookings(LocalDate fromDate, LocalDate toDate, QueryHandle handle);
+
+    /**
+     * Returns the keyset cursor pointing to the booking at a position after another cursor, null to count from the first booking
+     *
+     * @return BookingCursor Cursor, null if there is no booking at this position
+     */
+    BookingCursor getBookingsCursor(LocalDate fromDate, LocalDate toDate, BookingCursor after, int position, QueryHandle handle) throws SQLException;
+
+    /**
+     * Returns a page of bookings ordered by (checkin, id), bookings without checkin date first, starting right after a cursor
+     *
+     * @return BookingStore Bookings of the page
+     */
+    BookingStore getBookingsPage(LocalDate fromDate, LocalDate toDate, BookingCursor after, int limit, QueryHandle handle) throws SQLException;
+
+    /**
+     * Returns all bookings changed after a change mark, ordered by (updated_at, id)
+     *
+     * @return Delta<BookingStore> Changed bookings and the mark of the last one, without ids
+     */
+    Delta<BookingStore> getBookingsChangedSince(ChangeMark after, QueryHandle handle) throws SQLException;
+
+    HashSet<Integer> getBookingIds(LocalDate fromDate, LocalDate toDate, QueryHandle handle) throws SQLException;
+
+    /**
+     * Drops all cached bookings, e.g. after bookings have been removed
+     */
+    void invalidateBookingCache();
+
+    /**
+     * Drops the cached bookings containing a booking or overlapping its stay, e.g. after the booking has changed
+     */
+    void invalidateBookingCache(int bookingId, LocalDate checkin, LocalDate checkout);
+
+    /**
+     * Returns all rooms of a type that are available for the whole timeframe
+     *
+     * @return ArrayList<Room> Available rooms, null on errors
+     */
+    ArrayList<Room> getAvailableRooms(LocalDate fromDate, LocalDate toDate, RoomType roomType, QueryHandle handle);
+
+    /**
+     * Returns the available rooms for a batch of requests
+     *
+     * @return ArrayList<ArrayList<Room>> Available rooms, one list per request in request order
+     */
+    ArrayList<ArrayList<Room>> getAvailableRooms(List<AvailabilityRequest> requests, QueryHandle handle);
+
+    /**
+     * Returns the rooms already known to the repository without querying
+     *
+     * @return ArrayList<Room> Rooms, empty if none have been loaded
+     */
+    ArrayList<Room> getLoadedRooms();
+
+    /**
+     * Brings the availability of the rooms up to date with bookings and inquiries changed elsewhere
+     */
+    void syncAvailabilityIndex();
+
+    /**
+     * Computes a room assignment for inquiries around the current bookings and the rooms held by other inquiries
+     *
+     * @return RoomAssignment Proposed assignment, null on errors
+     */
+    RoomAssignment assignRooms(List<Inquiry> inquiries, List<RoomType> roomTypes);
+
+    /**
+     * Returns all open and closed inquiries
+     *
+     * @return ArrayList<Inquiry> Inquiries, null on errors
+     */
+    ArrayList<Inquiry> getInquiries(QueryHandle handle);
+
+    ArrayList<Inquiry> getInquiriesChangedSince(int highWaterMark, LocalDate since, QueryHandle handle) throws SQLException;
+
+    HashSet<Integer> getInquiryIds(QueryHandle handle) throws SQLException;
+
+    ArrayList<RoomType> getRoomTypes(QueryHandle handle);
+}
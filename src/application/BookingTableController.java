@@ -1,15 +1,23 @@
 package application;
 
+import application.enums.BookingColumn;
 import application.models.Booking;
+import application.models.BookingStoreList;
+import application.view.BookingSortKey;
 
 import javafx.collections.ObservableList;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 
+import java.util.ArrayList;
+
 
 /**
  * Booking Table controller wrapper for the main bookings table.
  * Creats and initializes all columns and sets up the datasource.
+ *
+ * A BookingStoreList is sorted by its view engine on primitive keys instead of the table
+ * comparing the cell properties, other datasources keep their order.
  */
 public class BookingTableController {
 
@@ -22,6 +30,16 @@ public class BookingTableController {
     BookingTableController(TableView<Booking> tableView) {
         this.bookingTableView = tableView;
         initColumns();
+        this.bookingTableView.setSortPolicy((TableView<Booking> table) -> {
+            if (table.getItems() instanceof BookingStoreList) {
+                ArrayList<BookingSortKey> sortKeys = new ArrayList<>();
+                for (TableColumn<Booking, ?> column : table.getSortOrder()) {
+                    sortKeys.add(new BookingSortKey((BookingColumn) column.getUserData(), column.getSortType() == TableColumn.SortType.ASCENDING));
+                }
+                ((BookingStoreList) table.getItems()).setSortOrder(sortKeys);
+            }
+            return true;
+        });
     }
 
     /**
@@ -29,6 +47,21 @@ public class BookingTableController {
      * @param source Datasource
      */
     void setDataSource(ObservableList<Booking> source) {
+        setDataSource(source, true);
+    }
+
+    /**
+     * Set the datasource
+     * @param source Datasource
+     * @param sortable False if the datasource cannot be reordered, e.g. because it is loaded page by page
+     */
+    void setDataSource(ObservableList<Booking> source, boolean sortable) {
+        if (!sortable) {
+            this.bookingTableView.getSortOrder().clear();
+        }
+        for (TableColumn<Booking, ?> column : this.bookingTableView.getColumns()) {
+            column.setSortable(sortable);
+        }
         this.bookingTableView.setItems(source);
     }
 
@@ -38,24 +71,30 @@ public class BookingTableController {
     private void initColumns() {
         TableColumn<Booking, Integer> bId = new TableColumn<>("id");
         bId.setMaxWidth(40);
-        bId.setCellValueFactory((TableColumn.CellDataFeatures<Booking, Integer> param ) -> param.getValue().id.asObject());
+        bId.setUserData(BookingColumn.ID);
+        bId.setCellValueFactory((TableColumn.CellDataFeatures<Booking, Integer> param ) -> param.getValue().idProperty().asObject());
 
         TableColumn<Booking, String> bFrom = new TableColumn<>("From");
         bFrom.setMinWidth(100);
-        bFrom.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().checkin);
+        bFrom.setUserData(BookingColumn.CHECKIN);
+        bFrom.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().checkinProperty());
 
         TableColumn<Booking, String> bTo = new TableColumn<>("To");
         bTo.setMinWidth(100);
-        bTo.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().checkout);
+        bTo.setUserData(BookingColumn.CHECKOUT);
+        bTo.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().checkoutProperty());
 
         TableColumn<Booking, String> bSurname = new TableColumn<>("Last Name");
-        bSurname.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().surname);
+        bSurname.setUserData(BookingColumn.SURNAME);
+        bSurname.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().surnameProperty());
 
         TableColumn<Booking, String> bForename = new TableColumn<>("First Name");
-        bForename.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().forename);
+        bForename.setUserData(BookingColumn.FORENAME);
+        bForename.setCellValueFactory((TableColumn.CellDataFeatures<Booking, String> param) -> param.getValue().forenameProperty());
 
         TableColumn<Booking, Boolean> bCancelled = new TableColumn<>("Canceled");
-        bCancelled.setCellValueFactory((TableColumn.CellDataFeatures<Booking, Boolean> param) -> param.getValue().cancelled_at);
+        bCancelled.setUserData(BookingColumn.CANCELLED);
+        bCancelled.setCellValueFactory((TableColumn.CellDataFeatures<Booking, Boolean> param) -> param.getValue().cancelledProperty());
 
         this.bookingTableView.getColumns().setAll(bId, bFrom, bTo, bCancelled, bSurname, bForename);
     }
@@ -0,0 +1,23 @@
+package application;
+
+import java.sql.Timestamp;
+
+/**
+ * Keyset position within the bookings ordered by (updated_at, id). A delta sync fetches the
+ * bookings changed after the mark of the previous sync.
+ */
+class ChangeMark {
+
+    final Timestamp updatedAt;
+    final int id;
+
+    /**
+     * Constructor
+     * @param updatedAt Change timestamp of the last booking seen
+     * @param id        Id of the last booking seen
+     */
+    ChangeMark(Timestamp updatedAt, int id) {
+        this.updatedAt = updatedAt;
+        this.id = id;
+    }
+}
@@ -0,0 +1,175 @@
+package application;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Bounded pool of database connections. Idle connections are validated before they are
+ * handed out again and replaced by a fresh connection if they have dropped.
+ */
+class ConnectionPool {
+
+    private static final long
+            BORROW_TIMEOUT_MILLIS = 10000,
+            VALIDATION_INTERVAL_MILLIS = 30000;
+
+    private String url, user, password;
+    private HashMap<String, String> statementSql;
+    private int maxSize;
+    private int openConnections = 0;
+    private boolean closed = false;
+    private ArrayDeque<PooledConnection> idle;
+
+    /**
+     * Constructor
+     * @param url          JDBC url
+     * @param user         Database user
+     * @param password     Database password
+     * @param statementSql SQL of all statements by key
+     * @param maxSize      Maximum number of open connections
+     */
+    ConnectionPool(String url, String user, String password, HashMap<String, String> statementSql, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statementSql = statementSql;
+        this.maxSize = maxSize;
+        this.idle = new ArrayDeque<>();
+    }
+
+    /**
+     * Opens the first connection to make sure the database is reachable.
+     *
+     * @throws SQLException If no connection can be established
+     */
+    void open() throws SQLException {
+        release(borrow());
+    }
+
+    /**
+     * Returns the maximum number of connections of this pool
+     *
+     * @return int Maximum pool size
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Borrows a connection from the pool. Blocks until a connection is available.
+     *
+     * @return PooledConnection Valid connection
+     * @throws SQLException If the pool is closed, exhausted for too long or the database is unreachable
+     */
+    PooledConnection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MILLIS;
+
+        while (true) {
+            PooledConnection connection;
+            synchronized (this) {
+                connection = nextIdle(deadline);
+            }
+            if (connection == null) {
+                break;
+            }
+
+            // Validate outside of the lock, a dropped connection may take a while to answer
+            if (System.currentTimeMillis() - connection.getLastUsed() < VALIDATION_INTERVAL_MILLIS || connection.validate()) {
+                connection.touch();
+                return connection;
+            }
+            connection.close();
+            synchronized (this) {
+                openConnections--;
+                notifyAll();
+            }
+        }
+
+        // Connect outside of the lock, opening a connection may take a while
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, user, password), statementSql);
+        } catch (SQLException e) {
+            synchronized (this) {
+                openConnections--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the next idle connection, waiting until one is released or a new one may be opened.
+     * Must be called while holding the lock of the pool.
+     *
+     * @param deadline Time at which to give up waiting
+     * @return PooledConnection Idle connection, null if a new connection may be opened
+     * @throws SQLException If the pool is closed or exhausted until the deadline
+     */
+    private PooledConnection nextIdle(long deadline) throws SQLException {
+        while (true) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            PooledConnection connection = idle.pollFirst();
+            if (connection != null) {
+                return connection;
+            }
+            if (openConnections < maxSize) {
+                openConnections++;
+                return null;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SQLException("Timeout while waiting for a database connection");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection");
+            }
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Broken connections are closed, so that
+     * the next borrower reconnects.
+     *
+     * @param connection Connection to return
+     */
+    void release(PooledConnection connection) {
+        boolean discard;
+        synchronized (this) {
+            discard = closed || connection.isBroken();
+            if (discard) {
+                openConnections--;
+            } else {
+                connection.touch();
+                idle.addFirst(connection);
+            }
+            notifyAll();
+        }
+        if (discard) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes all idle connections. Connections that are still borrowed are closed upon release.
+     */
+    void close() {
+        ArrayDeque<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            openConnections -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        for (PooledConnection connection : toClose) {
+            connection.close();
+        }
+    }
+}
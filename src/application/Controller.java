@@ -40,17 +40,48 @@ public class Controller {
     @FXML
     private ComboBox<RoomType> ddRoomType;
 
+    @FXML
+    private TextField tfBookingSearch;
+
+    @FXML
+    private CheckBox cbHideCancelled;
+
+    @FXML
+    private MenuItem miAssignRooms;
+
+    @FXML
+    private MenuItem miOccupancyReport;
+
+    @FXML
+    private MenuItem miExportBookings;
+
+    @FXML
+    private MenuItem miBookInquiry;
+
+    @FXML
+    private Button btBookInquiry;
+
     /**
      * Sets up the menu and click listeners
      */
     private void setUpMenu() {
         btConnect.setOnAction((ActionEvent event) -> application.toggleDatabaseConnection());
+        miAssignRooms.setOnAction((ActionEvent event) -> application.assignRoomsRequested());
+        miOccupancyReport.setOnAction((ActionEvent event) -> application.occupancyReportRequested());
+        miExportBookings.setOnAction((ActionEvent event) -> application.exportBookingsRequested());
+        miBookInquiry.setOnAction((ActionEvent event) -> application.bookInquiryRequested());
+        btBookInquiry.setOnAction((ActionEvent event) -> application.bookInquiryRequested());
     }
 
     private void setUpRoomType() {
         ddRoomType.valueProperty().addListener((ObservableValue<? extends RoomType> observable, RoomType oldValue, RoomType newValue) -> application.roomTypeChanged(newValue));
     }
 
+    private void setUpBookingSearch() {
+        tfBookingSearch.textProperty().addListener((ObservableValue<? extends String> observable, String oldValue, String newValue) -> application.bookingSearchChanged(newValue));
+        cbHideCancelled.selectedProperty().addListener((ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) -> application.hideCancelledChanged(newValue));
+    }
+
     /**
      * Add date picker event handlers and validators. Always verify that from and to dates are
      * consistent and don't overlap.
@@ -109,6 +140,7 @@ public class Controller {
         setUpDateValidators(pickerDateFrom, pickerDateTo, "bookings");
         setUpDateValidators(pickerDateFromAvailability, pickerDateToAvailability, "availability");
         setUpRoomType();
+        setUpBookingSearch();
 
     }
 }
@@ -1,34 +1,86 @@
 package application;
 
 import application.enums.DatabaseState;
+import application.enums.ExportFormat;
+import application.analytics.OccupancyAnalytics;
+import application.analytics.OccupancyReport;
+import application.assignment.RoomAssignment;
+import application.assignment.RoomAssignmentEngine;
+import application.availability.AvailabilityIndex;
+import application.availability.AvailabilityRequest;
+import application.cache.BookingRangeCache;
+import application.conversion.BookingConverter;
+import application.conversion.ConversionResult;
+import application.conversion.InquiryConversion;
+import application.datasource.DataSourceConfig;
+import application.datasource.DataSourceSettings;
+import application.expiry.ExpiryResult;
+import application.expiry.HoldExpirer;
+import application.export.BookingExportWriter;
 import application.interfaces.DatabaseListener;
+import application.interfaces.ExportProgressListener;
+import application.interfaces.ResultMapper;
+import application.interfaces.StatementBinder;
+import application.interfaces.StatementListener;
+import application.metrics.ResultSetTimer;
+import application.migrations.SchemaMigrator;
+import application.metrics.StatementMetrics;
 import application.models.Booking;
+import application.models.BookingStore;
 import application.models.Inquiry;
 import application.models.Room;
 import application.models.RoomType;
 
+import java.nio.channels.WritableByteChannel;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main Database Handler.
  */
-public class Database {
+public class Database implements BookingRepository {
 
-    private static final String
-            dbDriver = "com.mysql.jdbc.Driver",
-            dbConnectionStatement = "jdbc:mysql://localhost:3306/starview?verifyServerCertificate=false&useSSL=false",
-            dbUser = "root",
-            dbPass = "root";
+    private static final String dbDriver = "com.mysql.jdbc.Driver";
 
-    private Connection connection;
-    private HashMap<String, PreparedStatement> preparedStatements;
+    private static final int POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long AVAILABILITY_SYNC_INTERVAL_MILLIS = 5000;
+    private static final long AVAILABILITY_RECONCILE_INTERVAL_MILLIS = 10 * 60 * 1000;
+    private static final long BOOKING_CACHE_BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final String HOLD_EXPIRY_LOCK = "starview.hold_expiry";
+
+    private volatile ConnectionPool pool;
+    private volatile ReplicaRouter router;
+    private HashMap<String, String> statementSql;
+    private HashSet<String> streamingStatements;
+    private HashSet<String> replicaStatements;
+    private volatile AvailabilityIndex availabilityIndex;
+    private volatile ScheduledExecutorService availabilitySyncer;
+    private BookingRangeCache bookingCache = new BookingRangeCache(BOOKING_CACHE_BUDGET_BYTES);
+    // Last write or change of bookings seen, the booking cache refills from the primary until the replicas have caught up
+    private volatile long bookingsChangedAt;
+    // Only accessed on the availability sync thread
+    private long availabilityReconciledAt;
+    private LocalDate availabilitySyncDate;
     private DatabaseState curState = DatabaseState.DISCONNECTED;
 
     private HashSet<DatabaseListener> observers;
+    private CopyOnWriteArraySet<StatementListener> statementListeners = new CopyOnWriteArraySet<>();
+    private StatementMetrics statementMetrics = new StatementMetrics(true);
+    private ForkJoinPool analyticsPool;
+    private Connection holdExpiryLease;
 
     /**
      * Constructor
@@ -67,9 +119,9 @@ public class Database {
     }
 
     /**
-     * PreparedStatement setup. Prepared statements are put into a HashMap so that they
-     * can be accessed easily by key/value later on. Note: This method must not be called unless
-     * a connection has been established.
+     * PreparedStatement setup. The SQL of all statements is put into a HashMap so that it
+     * can be accessed easily by key/value later on. Every pooled connection prepares the
+     * statements from this map on first use and caches them.
      */
     private void prepareStatements() {
 
@@ -79,45 +131,123 @@ public class Database {
                 "person p ON bp.person_id = p.id WHERE bp.isResponsible = TRUE ";
 
         final String baseStatementRooms = "" +
-                "SELECT id, name, description, room_type_id " +
-                "FROM room avail_rooms " +
-                "WHERE avail_rooms.id NOT IN (" +
-                    "SELECT used_rooms.id " +
-                    "FROM room used_rooms " +
-                        "INNER JOIN booking_room ON used_rooms.id = booking_room.room_id " +
-                        "INNER JOIN booking b ON booking_room.booking_id = b.id " +
-                        "WHERE b.cancelled_at IS NULL "+
-                        "AND b.checkin >= ? AND b.checkin <= ? " +
-                        "OR b.checkout >= ? AND b.checkout <= ? " +
+                "SELECT r.id, r.name, r.description, r.room_type_id " +
+                "FROM room r " +
+                "WHERE NOT EXISTS (" +
+                    "SELECT 1 FROM booking_room br INNER JOIN booking b ON br.booking_id = b.id " +
+                    "WHERE br.room_id = r.id AND b.cancelled_at IS NULL " +
+                    "AND b.checkin < ? AND b.checkout > ?" +
                 ") " +
-                "AND avail_rooms.id NOT IN (" +
-                        "SELECT inquired_rooms.id " +
-                        "FROM room inquired_rooms " +
-                        "INNER JOIN inquiry_room ON inquired_rooms.id = inquiry_room.room_id " +
-                        "INNER JOIN inquiry i ON inquired_rooms.id = i.id " +
-                        "WHERE i.cancelled_at IS NULL " +
-                        "AND i.from >= ? AND i.from <= ? " +
-                        "OR i.to >= ? AND i.to <= ? " +
+                "AND NOT EXISTS (" +
+                    "SELECT 1 FROM inquiry_room ir INNER JOIN inquiry i ON ir.inquiry_id = i.id " +
+                    "WHERE ir.room_id = r.id AND i.cancelled_at IS NULL " +
+                    "AND i.`from` < ? AND i.`to` > ?" +
                 ") ";
 
+        final String timeframeFilter = "" +
+                "AND (? IS NULL OR b.checkin >= ?) AND (? IS NULL OR b.checkout <= ?) ";
+
+        // Keyset of the pages: bookings without checkin date come first, MySQL sorts NULL first
+        final String afterDatedCursor = "AND (b.checkin > ? OR (b.checkin = ? AND b.id > ?)) ";
+        final String afterUndatedCursor = "AND (b.checkin IS NOT NULL OR b.id > ?) ";
+        final String pageBoundary = "" +
+                "SELECT b.checkin, b.id FROM booking b INNER JOIN booking_person bp ON b.id = bp.booking_id " +
+                "WHERE bp.isResponsible = TRUE " + timeframeFilter;
+
         final String baseStatementInquiry = "" +
                 "SELECT * FROM inquiry";
 
-        preparedStatements = new HashMap<>();
-        try {
-            preparedStatements.put("get-all-bookings", connection.prepareStatement(baseStatementBookings));
-            preparedStatements.put("get-timeframe-from-bookings", connection.prepareStatement(baseStatementBookings + "AND checkin >= ?"));
-            preparedStatements.put("get-timeframe-to-bookings", connection.prepareStatement(baseStatementBookings + "AND checkout <= ?"));
-            preparedStatements.put("get-timeframe-both-bookings", connection.prepareStatement(baseStatementBookings + "AND checkin >= ? AND checkout <= ?"));
-            preparedStatements.put("get-available-rooms-by-type", connection.prepareStatement(baseStatementRooms + "AND avail_rooms.room_type_id = ?"));
-            preparedStatements.put("get-available-rooms-any", connection.prepareStatement(baseStatementRooms));
-            preparedStatements.put("get-inquiries", connection.prepareStatement(baseStatementInquiry));
+        statementSql = new HashMap<>();
+        statementSql.put("get-all-bookings", baseStatementBookings);
+        statementSql.put("get-timeframe-from-bookings", baseStatementBookings + "AND b.checkin >= ?");
+        statementSql.put("get-timeframe-to-bookings", baseStatementBookings + "AND b.checkout <= ?");
+        statementSql.put("get-timeframe-both-bookings", baseStatementBookings + "AND b.checkin >= ? AND b.checkout <= ?");
+        statementSql.put("get-timeframe-overlap-bookings", baseStatementBookings + "AND b.checkin <= ? AND b.checkout >= ?");
+        statementSql.put("get-available-rooms-by-type", baseStatementRooms + "AND r.room_type_id = ?");
+        statementSql.put("get-available-rooms-any", baseStatementRooms);
+        statementSql.put("get-inquiries", baseStatementInquiry);
 
-            preparedStatements.put("get-roomtypes", connection.prepareStatement("SELECT * FROM room_type"));
+        statementSql.put("count-bookings", "" +
+                "SELECT COUNT(*) FROM booking b INNER JOIN booking_person bp ON b.id = bp.booking_id " +
+                "WHERE bp.isResponsible = TRUE " + timeframeFilter);
+        statementSql.put("get-bookings-page-first", baseStatementBookings + timeframeFilter +
+                "ORDER BY b.checkin, b.id LIMIT ?");
+        statementSql.put("get-bookings-page-after", baseStatementBookings + timeframeFilter + afterDatedCursor +
+                "ORDER BY b.checkin, b.id LIMIT ?");
+        statementSql.put("get-bookings-page-after-undated", baseStatementBookings + timeframeFilter + afterUndatedCursor +
+                "ORDER BY b.checkin, b.id LIMIT ?");
+        statementSql.put("get-bookings-page-boundary", pageBoundary +
+                "ORDER BY b.checkin, b.id LIMIT 1 OFFSET ?");
+        statementSql.put("get-bookings-page-boundary-after", pageBoundary + afterDatedCursor +
+                "ORDER BY b.checkin, b.id LIMIT 1 OFFSET ?");
+        statementSql.put("get-bookings-page-boundary-after-undated", pageBoundary + afterUndatedCursor +
+                "ORDER BY b.checkin, b.id LIMIT 1 OFFSET ?");
 
-        } catch (SQLException e) {
-            System.out.println(e.getStackTrace());
-        }
+        statementSql.put("get-bookings-changed-since", "" +
+                "SELECT b.id, b.checkin, b.checkout, b.cancelled_at, p.surname, p.forename, b.updated_at " +
+                "FROM booking b INNER JOIN booking_person bp ON b.id = bp.booking_id INNER JOIN " +
+                "person p ON bp.person_id = p.id WHERE bp.isResponsible = TRUE " +
+                "AND b.updated_at >= ? AND (b.updated_at > ? OR b.id > ?) ORDER BY b.updated_at, b.id");
+        statementSql.put("get-booking-ids", "" +
+                "SELECT b.id FROM booking b INNER JOIN booking_person bp ON b.id = bp.booking_id " +
+                "WHERE bp.isResponsible = TRUE " + timeframeFilter);
+        statementSql.put("get-inquiries-changed-since", baseStatementInquiry + " WHERE id > ? OR cancelled_at >= ?");
+        statementSql.put("get-inquiry-ids", "SELECT id FROM inquiry");
+
+        streamingStatements = new HashSet<>();
+        streamingStatements.add("get-bookings-page-first");
+        streamingStatements.add("get-bookings-page-after");
+        streamingStatements.add("get-bookings-page-after-undated");
+
+        statementSql.put("get-roomtypes", "SELECT * FROM room_type");
+
+        statementSql.put("get-rooms", "SELECT id, name, description, room_type_id FROM room");
+        statementSql.put("get-booked-room-intervals", "" +
+                "SELECT br.room_id, b.id, b.checkin, b.checkout " +
+                "FROM booking_room br INNER JOIN booking b ON br.booking_id = b.id " +
+                "WHERE b.cancelled_at IS NULL AND b.id > ?");
+        statementSql.put("get-inquired-room-intervals", "" +
+                "SELECT ir.room_id, i.id, i.`from`, i.`to` " +
+                "FROM inquiry_room ir INNER JOIN inquiry i ON ir.inquiry_id = i.id " +
+                "WHERE i.cancelled_at IS NULL AND i.id > ?");
+        statementSql.put("get-cancelled-bookings-since", "SELECT id FROM booking WHERE cancelled_at >= ?");
+        statementSql.put("get-cancelled-inquiries-since", "SELECT id FROM inquiry WHERE cancelled_at >= ?");
+        statementSql.put("get-inquiry-holds", "" +
+                "SELECT id, reservation_until FROM inquiry " +
+                "WHERE cancelled_at IS NULL AND reservation_until IS NOT NULL AND id > ?");
+        streamingStatements.add("get-inquiry-holds");
+
+        statementSql.put("get-occupancy-by-type", "" +
+                "SELECT b.checkin, b.checkout, b.cancelled_at, b.created_at " +
+                "FROM booking_room br INNER JOIN booking b ON br.booking_id = b.id INNER JOIN room r ON br.room_id = r.id " +
+                "WHERE r.room_type_id = ? AND b.checkin < ? AND b.checkout > ?");
+        streamingStatements.add("get-occupancy-by-type");
+
+        statementSql.put("export-bookings", baseStatementBookings + timeframeFilter);
+        streamingStatements.add("export-bookings");
+
+        // Read-only statements of the list views that may run on a lagging replica
+        replicaStatements = new HashSet<>();
+        replicaStatements.add("get-all-bookings");
+        replicaStatements.add("get-timeframe-from-bookings");
+        replicaStatements.add("get-timeframe-to-bookings");
+        replicaStatements.add("get-timeframe-both-bookings");
+        replicaStatements.add("get-available-rooms-by-type");
+        replicaStatements.add("get-available-rooms-any");
+        replicaStatements.add("get-inquiries");
+        replicaStatements.add("get-roomtypes");
+        replicaStatements.add("get-timeframe-overlap-bookings");
+        replicaStatements.add("count-bookings");
+        replicaStatements.add("get-bookings-page-first");
+        replicaStatements.add("get-bookings-page-after");
+        replicaStatements.add("get-bookings-page-after-undated");
+        replicaStatements.add("get-bookings-page-boundary");
+        replicaStatements.add("get-bookings-page-boundary-after");
+        replicaStatements.add("get-bookings-page-boundary-after-undated");
+        replicaStatements.add("get-occupancy-by-type");
+        replicaStatements.add("export-bookings");
+        // The delta sync, the availability index and the hold expiry stay on the primary: their
+        // high water marks and the ids of the delta have to come from the same, current source
     }
 
     /**
@@ -125,8 +255,8 @@ public class Database {
      *
      * @return True if connected
      */
-    boolean isConnected() {
-        return this.connection != null;
+    public boolean isConnected() {
+        return this.pool != null;
     }
 
     /**
@@ -134,7 +264,7 @@ public class Database {
      *
      * @param observer Observer to add
      */
-    void addDatabaseObserver(DatabaseListener observer) {
+    public void addDatabaseObserver(DatabaseListener observer) {
         this.observers.add(observer);
     }
 
@@ -148,19 +278,60 @@ public class Database {
     }
 
     /**
-     * Establishes a connection to the Mysql database
+     * Adds a new statement observer. Observers are notified on the thread that ran the
+     * statement, so they have to be thread-safe.
+     *
+     * @param listener Observer to add
+     */
+    void addStatementListener(StatementListener listener) {
+        statementListeners.add(listener);
+    }
+
+    /**
+     * Removes an existing statement observer
+     *
+     * @param listener Observer to remove
+     */
+    void removeStatementListener(StatementListener listener) {
+        statementListeners.remove(listener);
+    }
+
+    /**
+     * Returns the execution, fetch and mapping metrics of all prepared statements
+     *
+     * @return StatementMetrics Metrics
+     */
+    StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    /**
+     * Establishes a connection to the Mysql database. The primary is required, replicas that
+     * cannot be reached are skipped until the lag monitor finds them available.
      *
      * @return {boolean} True if connection successful
      */
-    boolean connect() {
+    public boolean connect() {
         if (verifyDriver()) {
             this.setState(DatabaseState.CONNECTING);
+            prepareStatements();
+            DataSourceConfig config = DataSourceConfig.load();
+            DataSourceSettings primary = config.getPrimary();
+            ConnectionPool newPool = new ConnectionPool(primary.getUrl(), primary.getUser(), primary.getPassword(), statementSql, POOL_SIZE);
             try {
-                connection = DriverManager.getConnection(dbConnectionStatement, dbUser, dbPass);
-                prepareStatements();
+                newPool.open();
+                ReplicaRouter newRouter = new ReplicaRouter(newPool, config.getMaxLagSeconds());
+                for (DataSourceSettings replica : config.getReplicas()) {
+                    newRouter.addReplica(replica.getName(), new ConnectionPool(replica.getUrl(), replica.getUser(), replica.getPassword(), statementSql, POOL_SIZE));
+                }
+                newRouter.start(config.getCheckIntervalSeconds());
+                pool = newPool;
+                router = newRouter;
+                startAvailabilitySync();
                 this.setState(DatabaseState.CONNECTED);
                 return true;
             } catch (SQLException e) {
+                newPool.close();
                 this.setState(DatabaseState.CONNECTION_FAILED);
                 return false;
             }
@@ -170,35 +341,262 @@ public class Database {
         }
     }
 
+    /**
+     * Applies pending schema migrations on the primary. Migrations are an explicit step
+     * (Main --migrate) instead of part of connecting, so that no client runs DDL on connect.
+     *
+     * @return int Number of applied migrations, -1 on error
+     */
+    public int migrateSchema() {
+        if (!verifyDriver()) {
+            return -1;
+        }
+        DataSourceSettings primary = DataSourceConfig.load().getPrimary();
+        try (Connection connection = DriverManager.getConnection(primary.getUrl(), primary.getUser(), primary.getPassword())) {
+            return new SchemaMigrator(connection).migrate();
+        } catch (SQLException e) {
+            System.out.println(e);
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the execution plan of a prepared statement as reported by EXPLAIN.
+     *
+     * @param key    Key of the prepared statement
+     * @param binder Binds the query parameters
+     * @return ArrayList<String> One entry per plan row in the form "table: key | possible keys", key is null if no
+     * index is used, the possible keys are separated by commas
+     * @throws SQLException If the statement cannot be explained
+     */
+    ArrayList<String> explain(String key, StatementBinder binder) throws SQLException {
+        ConnectionPool currentPool = pool;
+        if (currentPool == null) {
+            throw new SQLException("Not connected");
+        }
+
+        PooledConnection connection = currentPool.borrow();
+        try (PreparedStatement prep = connection.getConnection().prepareStatement("EXPLAIN " + statementSql.get(key))) {
+            binder.bind(prep);
+            ArrayList<String> plan = new ArrayList<>();
+            try (ResultSet resultSet = prep.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString("table") + ": " + resultSet.getString("key")
+                            + " | " + resultSet.getString("possible_keys"));
+                }
+            }
+            return plan;
+        } finally {
+            currentPool.release(connection);
+        }
+    }
+
     /**
      * Closes an existing connection to the database
      *
      * @return {boolean} True if disconnect successful
      */
-    boolean disconnect() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-                setState(DatabaseState.DISCONNECTED);
-                return true;
-            } catch (SQLException e) {
-                return false;
-            }
+    public boolean disconnect() {
+        if (pool != null) {
+            stopAvailabilitySync();
+            router.close();
+            router = null;
+            pool.close();
+            pool = null;
+            availabilityIndex = null;
+            bookingCache.invalidate();
+            shutdownAnalyticsPool();
+            setState(DatabaseState.DISCONNECTED);
+            return true;
         }
 
         return false;
     }
 
+    /**
+     * Returns the maximum number of queries that can run in parallel
+     *
+     * @return int Number of pooled connections
+     */
+    public int getParallelism() {
+        return POOL_SIZE;
+    }
+
+    /**
+     * Utility method to execute a prepared statement. If a QueryHandle is given, the statement
+     * is attached to it for the duration of the query so that it can be cancelled.
+     *
+     * @param prep   Statement to execute
+     * @param handle Handle of the running query, may be null
+     * @return ResultSet Result of the query
+     * @throws SQLException If the query fails or has been cancelled
+     */
+    private ResultSet executeQuery(PreparedStatement prep, QueryHandle handle) throws SQLException {
+        if (handle == null) {
+            return prep.executeQuery();
+        }
+        handle.attach(prep);
+        try {
+            return prep.executeQuery();
+        } finally {
+            handle.detach();
+        }
+    }
+
+    /**
+     * Utility method to run a query on a pooled connection. The connection is borrowed for the
+     * duration of the query, so that several queries can run in parallel on separate sessions.
+     * Read-only statements of the list views, exports and reports are routed to a replica if
+     * one is available.
+     *
+     * @param key    Key of the prepared statement
+     * @param handle Handle of the running query, may be null
+     * @param binder Binds the query parameters
+     * @param mapper Maps the result set
+     * @return T Mapped result
+     * @throws SQLException If the query fails, has been cancelled or no connection is available
+     */
+    private <T> T query(String key, QueryHandle handle, StatementBinder binder, ResultMapper<T> mapper) throws SQLException {
+        ConnectionPool currentPool = pool;
+        ReplicaRouter currentRouter = router;
+        if (currentPool == null || currentRouter == null) {
+            throw new SQLException("Not connected");
+        }
+        if (!replicaStatements.contains(key)) {
+            return query(currentPool, key, handle, binder, mapper);
+        }
+
+        ConnectionPool replicaPool = currentRouter.route();
+        boolean[] mapping = {false};
+        try {
+            return query(replicaPool, key, handle, binder, (ResultSet resultSet) -> {
+                mapping[0] = true;
+                return mapper.map(resultSet);
+            });
+        } catch (SQLException e) {
+            // Streamed rows may already have been handed on, e.g. into an export, so only
+            // queries that failed before mapping can be repeated
+            if (replicaPool == currentPool || mapping[0] || !isConnectionError(e) || (handle != null && handle.isCancelled())) {
+                throw e;
+            }
+            // The replica went away between two lag checks, read from the primary instead
+            currentRouter.markUnavailable(replicaPool);
+            return query(currentPool, key, handle, binder, mapper);
+        }
+    }
+
+    /**
+     * Runs a query on the primary, also if its statement is usually routed to a replica.
+     *
+     * @see #query(String, QueryHandle, StatementBinder, ResultMapper)
+     */
+    private <T> T queryPrimary(String key, QueryHandle handle, StatementBinder binder, ResultMapper<T> mapper) throws SQLException {
+        ConnectionPool currentPool = pool;
+        if (currentPool == null) {
+            throw new SQLException("Not connected");
+        }
+        return query(currentPool, key, handle, binder, mapper);
+    }
+
+    /**
+     * Checks whether a point in time lies within the maximum replica lag, i.e. whether a
+     * replica may not have received a change made at that time yet.
+     */
+    private boolean isWithinReplicaLag(long changedAt) {
+        ReplicaRouter currentRouter = router;
+        return currentRouter != null && System.currentTimeMillis() - changedAt <= currentRouter.getMaxLagSeconds() * 1000;
+    }
+
+    /**
+     * Runs a query on a connection of the given pool.
+     *
+     * @param currentPool Pool to borrow the connection from
+     * @param key         Key of the prepared statement
+     * @param handle      Handle of the running query, may be null
+     * @param binder      Binds the query parameters
+     * @param mapper      Maps the result set
+     * @return T Mapped result
+     * @throws SQLException If the query fails, has been cancelled or no connection is available
+     */
+    private <T> T query(ConnectionPool currentPool, String key, QueryHandle handle, StatementBinder binder, ResultMapper<T> mapper) throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        boolean streaming = streamingStatements.contains(key);
+        PooledConnection connection = currentPool.borrow();
+        try {
+            PreparedStatement prep = connection.getStatement(key);
+            prep.clearParameters();
+            if (streaming) {
+                // Makes the MySQL driver stream rows instead of reading the whole result into memory
+                prep.setFetchSize(Integer.MIN_VALUE);
+                if (handle != null) {
+                    // Rows are still read from the server while mapping, keep the query cancellable
+                    handle.attach(prep);
+                }
+            }
+            binder.bind(prep);
+            long executeStart = System.nanoTime();
+            try (ResultSet resultSet = executeQuery(prep, streaming ? null : handle)) {
+                long executed = System.nanoTime();
+                ResultSetTimer timer = new ResultSetTimer(resultSet);
+                T result = mapper.map(timer.getResultSet());
+                long mapped = System.nanoTime();
+                statementMetrics.get(key).record(executed - executeStart, timer.getFetchNanos(),
+                        mapped - executed - timer.getFetchNanos(), timer.getRows());
+                failed = false;
+                return result;
+            }
+        } catch (SQLException e) {
+            if (isConnectionError(e)) {
+                connection.invalidate();
+            }
+            throw e;
+        } finally {
+            if (streaming && handle != null) {
+                handle.detach();
+            }
+            currentPool.release(connection);
+            if (failed) {
+                statementMetrics.get(key).recordError();
+            }
+            notifyStatementListeners(key, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void notifyStatementListeners(String key, long nanos, boolean failed) {
+        for (StatementListener listener : statementListeners) {
+            listener.statementExecuted(key, nanos, failed);
+        }
+    }
+
+    /**
+     * Helper method to determine whether an exception was caused by a dropped connection.
+     *
+     * @param e Exception to check
+     * @return True if the connection is no longer usable
+     */
+    private static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
     /**
      * Retrieves all bookings from the database
      *
      * @return ArrayList<Booking> List with bookings
      */
     ArrayList<Booking> getBookingsList() {
-        PreparedStatement prep = preparedStatements.get("get-all-bookings");
+        return getBookingsList(null);
+    }
+
+    /**
+     * Retrieves all bookings from the database
+     *
+     * @param handle Handle of the running query, may be null
+     * @return ArrayList<Booking> List with bookings
+     */
+    ArrayList<Booking> getBookingsList(QueryHandle handle) {
         try {
-            return Booking.mapListFromDatabase(prep.executeQuery());
+            return query("get-all-bookings", handle, (PreparedStatement prep) -> {}, Booking::mapListFromDatabase);
         } catch (SQLException e) {
             return null;
         }
@@ -212,26 +610,35 @@ public class Database {
      * @return ArrayList<Booking> List of bookings
      */
     ArrayList<Booking> getBookingsList(LocalDate fromDate, LocalDate toDate) {
+        return getBookingsList(fromDate, toDate, null);
+    }
+
+    /**
+     * Returns a list of all bookings within a specific timeframe.
+     *
+     * @param fromDate Checkin date has to be equal or greater
+     * @param toDate   Checkout date has to be equal or less
+     * @param handle   Handle of the running query, may be null
+     * @return ArrayList<Booking> List of bookings
+     */
+    public ArrayList<Booking> getBookingsList(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
         if (fromDate == null && toDate == null) {
-            return getBookingsList();
+            return getBookingsList(handle);
         } else {
 
-            PreparedStatement prep;
-
             try {
                 if (fromDate != null && toDate != null) {
-                    prep = preparedStatements.get("get-timeframe-both-bookings");
-                    prep.setString(1, fromDate.toString());
-                    prep.setString(2, toDate.toString());
+                    return query("get-timeframe-both-bookings", handle, (PreparedStatement prep) -> {
+                        prep.setString(1, fromDate.toString());
+                        prep.setString(2, toDate.toString());
+                    }, Booking::mapListFromDatabase);
                 } else if (toDate != null) {
-                    prep = preparedStatements.get("get-timeframe-to-bookings");
-                    prep.setString(1, toDate.toString());
+                    return query("get-timeframe-to-bookings", handle,
+                            (PreparedStatement prep) -> prep.setString(1, toDate.toString()), Booking::mapListFromDatabase);
                 } else {
-                    prep = preparedStatements.get("get-timeframe-from-bookings");
-                    prep.setString(1, fromDate.toString());
+                    return query("get-timeframe-from-bookings", handle,
+                            (PreparedStatement prep) -> prep.setString(1, fromDate.toString()), Booking::mapListFromDatabase);
                 }
-
-                return Booking.mapListFromDatabase(prep.executeQuery());
             } catch (SQLException e) {
                 return null;
             }
@@ -239,40 +646,294 @@ public class Database {
     }
 
     ArrayList<RoomType> getRoomTypes() {
-        PreparedStatement prep = preparedStatements.get("get-roomtypes");
+        return getRoomTypes(null);
+    }
+
+    public ArrayList<RoomType> getRoomTypes(QueryHandle handle) {
         try {
-            return RoomType.mapListFromDatabase(prep.executeQuery());
+            return query("get-roomtypes", handle, (PreparedStatement prep) -> {}, RoomType::mapListFromDatabase);
         } catch (SQLException e) {
             return null;
         }
     }
 
     ArrayList<Room> getAvailableRooms(LocalDate fromDate, LocalDate toDate, RoomType roomType) {
-        PreparedStatement prep;
+        return getAvailableRooms(fromDate, toDate, roomType, null);
+    }
 
+    public ArrayList<Room> getAvailableRooms(LocalDate fromDate, LocalDate toDate, RoomType roomType, QueryHandle handle) {
         if (fromDate != null && toDate != null && roomType != null) {
 
-            try {
-                if (roomType.id.getValue() != 0) {
-                    prep = preparedStatements.get("get-available-rooms-by-type");
-                    prep.setInt(9, roomType.id.getValue());
-                } else {
-                    prep = preparedStatements.get("get-available-rooms-any");
+            AvailabilityIndex index = getAvailabilityIndex();
+            if (index != null) {
+                return index.getAvailableRooms(fromDate, toDate, roomType.id.getValue());
+            }
+            return queryAvailableRooms(fromDate, toDate, roomType, handle);
+        }
+
+        return new ArrayList<Room>();
+    }
+
+    /**
+     * Returns the available rooms for a batch of requests, e.g. for all open inquiries. The
+     * requests are answered in one pass over the availability index. Without index, every
+     * request is queried separately and rooms held by the requester are not taken into account.
+     *
+     * @param requests Requests to answer
+     * @param handle   Handle of the running query, may be null
+     * @return ArrayList<ArrayList<Room>> Available rooms, one list per request in request order
+     */
+    public ArrayList<ArrayList<Room>> getAvailableRooms(List<AvailabilityRequest> requests, QueryHandle handle) {
+        AvailabilityIndex index = getAvailabilityIndex();
+        if (index != null) {
+            return index.getAvailableRooms(requests);
+        }
+
+        ArrayList<ArrayList<Room>> results = new ArrayList<>(requests.size());
+        for (AvailabilityRequest request : requests) {
+            if (handle != null && handle.isCancelled()) {
+                break;
+            }
+            ArrayList<Room> rooms = queryAvailableRooms(request.from, request.to, new RoomType(request.roomTypeId, "", "", 0), handle);
+            results.add(rooms != null ? rooms : new ArrayList<Room>());
+        }
+        return results;
+    }
+
+    /**
+     * Computes a room assignment for inquiries around the current bookings and the rooms held by
+     * other inquiries, see RoomAssignmentEngine.
+     *
+     * @param inquiries Inquiries to assign
+     * @param roomTypes All room types
+     * @return RoomAssignment Proposed assignment, null if the availability index cannot be loaded
+     */
+    public RoomAssignment assignRooms(List<Inquiry> inquiries, List<RoomType> roomTypes) {
+        AvailabilityIndex index = getAvailabilityIndex();
+        if (index == null) {
+            return null;
+        }
+        return new RoomAssignmentEngine(ForkJoinPool.commonPool())
+                .assign(index.getRooms(), roomTypes, index.getIntervals(), inquiries);
+    }
+
+    /**
+     * Computes the occupancy metrics of every room type over a period. The stays of the room
+     * types are streamed and aggregated in parallel, one pooled connection per room type, so
+     * every booked room is read exactly once.
+     *
+     * @param fromDate  First night of the period
+     * @param toDate    Day after the last night of the period
+     * @param roomTypes Room types to aggregate
+     * @return ArrayList<OccupancyReport> One report per room type in the given order, null on errors
+     */
+    ArrayList<OccupancyReport> getOccupancyReports(LocalDate fromDate, LocalDate toDate, List<RoomType> roomTypes) {
+        try {
+            HashMap<Integer, Integer> roomCounts = new HashMap<>();
+            for (Room room : query("get-rooms", null, (PreparedStatement prep) -> {}, Room::mapListFromDatabase)) {
+                roomCounts.merge(room.room_type.getValue(), 1, Integer::sum);
+            }
+
+            int fromDay = (int) fromDate.toEpochDay(), toDay = (int) toDate.toEpochDay();
+            ArrayList<CompletableFuture<OccupancyReport>> reports = new ArrayList<>();
+            for (RoomType roomType : roomTypes) {
+                int roomTypeId = roomType.id.getValue();
+                reports.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        OccupancyAnalytics analytics = query("get-occupancy-by-type", null, (PreparedStatement prep) -> {
+                            prep.setInt(1, roomTypeId);
+                            prep.setString(2, toDate.toString());
+                            prep.setString(3, fromDate.toString());
+                        }, new OccupancyAnalytics(fromDay, toDay)::addFromDatabase);
+                        return analytics.toReport(roomTypeId, roomCounts.getOrDefault(roomTypeId, 0));
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, getAnalyticsPool()));
+            }
+
+            ArrayList<OccupancyReport> result = new ArrayList<>();
+            for (CompletableFuture<OccupancyReport> report : reports) {
+                result.add(report.join());
+            }
+            return result;
+        } catch (SQLException | CompletionException e) {
+            System.out.println(e);
+            return null;
+        }
+    }
+
+    private synchronized ForkJoinPool getAnalyticsPool() {
+        if (analyticsPool == null) {
+            analyticsPool = new ForkJoinPool(POOL_SIZE);
+        }
+        return analyticsPool;
+    }
+
+    /**
+     * Shuts the analytics workers down after disconnecting. Running reports are finished,
+     * the next report creates a new pool.
+     */
+    private synchronized void shutdownAnalyticsPool() {
+        if (analyticsPool != null) {
+            analyticsPool.shutdown();
+            analyticsPool = null;
+        }
+    }
+
+    /**
+     * Converts inquiries into bookings of the selected rooms, see BookingConverter. Always runs
+     * on the primary. Afterwards, the booking cache is dropped and the availability index
+     * synchronized, so the new bookings show up in all queries.
+     *
+     * @param conversions Inquiries and the rooms to book for them
+     * @return ConversionResult Created bookings and rejected inquiries, null if not connected or
+     * no transaction could be started
+     */
+    ConversionResult convertInquiries(List<InquiryConversion> conversions) {
+        ConnectionPool currentPool = pool;
+        if (currentPool == null) {
+            return null;
+        }
+
+        ConversionResult result;
+        PooledConnection connection;
+        try {
+            connection = currentPool.borrow();
+        } catch (SQLException e) {
+            System.out.println(e);
+            return null;
+        }
+        try {
+            result = new BookingConverter(connection.getConnection()).convert(conversions);
+        } finally {
+            currentPool.release(connection);
+        }
+
+        if (result != null && !result.getBookingsByInquiry().isEmpty()) {
+            invalidateBookingCache();
+            syncAvailabilityIndex();
+        }
+        return result;
+    }
+
+    /**
+     * Acquires or confirms the hold expiry lease: a named lock held by a dedicated connection to
+     * the primary. Only the process holding the lease expires holds, so that the clients and
+     * headless servers sharing a database do not all run the expiry. The lease passes to
+     * another process once the connection of the holder is closed or lost.
+     *
+     * @return boolean True if this process holds the lease
+     */
+    synchronized boolean acquireHoldExpiryLease() {
+        try {
+            if (holdExpiryLease == null) {
+                DataSourceSettings primary = DataSourceConfig.load().getPrimary();
+                holdExpiryLease = DriverManager.getConnection(primary.getUrl(), primary.getUser(), primary.getPassword());
+            }
+            try (PreparedStatement prep = holdExpiryLease.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                prep.setString(1, HOLD_EXPIRY_LOCK);
+                try (ResultSet resultSet = prep.executeQuery()) {
+                    return resultSet.next() && resultSet.getInt(1) == 1;
                 }
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+            releaseHoldExpiryLease();
+            return false;
+        }
+    }
 
-                prep.setString(1, fromDate.toString());
-                prep.setString(2, fromDate.toString());
-                prep.setString(3, toDate.toString());
-                prep.setString(4, toDate.toString());
-                prep.setString(5, fromDate.toString());
-                prep.setString(6, fromDate.toString());
-                prep.setString(7, toDate.toString());
-                prep.setString(8, toDate.toString());
+    /**
+     * Gives up the hold expiry lease by closing its connection
+     */
+    synchronized void releaseHoldExpiryLease() {
+        if (holdExpiryLease != null) {
+            try {
+                holdExpiryLease.close();
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+            holdExpiryLease = null;
+        }
+    }
+
+    /**
+     * Reads the reservations of all open inquiries with an id above the given one from the
+     * primary. The rows are streamed, the mapper receives the columns id and reservation_until.
+     *
+     * @param afterId Highest inquiry id already read
+     * @param mapper  Maps the result set
+     * @return T Mapped result
+     * @throws SQLException If the query fails or no connection is available
+     */
+    <T> T getInquiryHolds(int afterId, ResultMapper<T> mapper) throws SQLException {
+        return query("get-inquiry-holds", null, (PreparedStatement prep) -> prep.setInt(1, afterId), mapper);
+    }
 
-                return Room.mapListFromDatabase(prep.executeQuery());
+    /**
+     * Releases the holds of inquiries whose reservation has run out, see HoldExpirer. Always
+     * runs on the primary. Afterwards, the availability index is synchronized, so the released
+     * rooms show up as available.
+     *
+     * @param inquiryIds Inquiries whose reservation is due
+     * @return ExpiryResult Expired and extended inquiries, null if not connected
+     */
+    ExpiryResult expireInquiryHolds(List<Integer> inquiryIds) {
+        ConnectionPool currentPool = pool;
+        if (currentPool == null) {
+            return null;
+        }
+
+        ExpiryResult result;
+        PooledConnection connection;
+        try {
+            connection = currentPool.borrow();
+        } catch (SQLException e) {
+            System.out.println(e);
+            return null;
+        }
+        try {
+            result = new HoldExpirer(connection.getConnection()).expire(inquiryIds, LocalDate.now());
+        } finally {
+            currentPool.release(connection);
+        }
+
+        if (!result.getExpired().isEmpty()) {
+            syncAvailabilityIndex();
+        }
+        return result;
+    }
+
+    /**
+     * Returns all available rooms straight from the database, bypassing the availability index.
+     *
+     * @param fromDate Checkin date
+     * @param toDate   Checkout date
+     * @param roomType Room type, id 0 for any type
+     * @param handle   Handle of the running query, may be null
+     * @return ArrayList<Room> Available rooms, null on errors
+     */
+    ArrayList<Room> queryAvailableRooms(LocalDate fromDate, LocalDate toDate, RoomType roomType, QueryHandle handle) {
+        if (fromDate != null && toDate != null && roomType != null) {
+
+            try {
+                String key = roomType.id.getValue() != 0 ? "get-available-rooms-by-type" : "get-available-rooms-any";
+                // Same semantics as the availability index: a stay always covers at least one night
+                String checkin = fromDate.toString();
+                String checkout = (toDate.isAfter(fromDate) ? toDate : fromDate.plusDays(1)).toString();
+                return query(key, handle, (PreparedStatement prep) -> {
+                    prep.setString(1, checkout);
+                    prep.setString(2, checkin);
+                    prep.setString(3, checkout);
+                    prep.setString(4, checkin);
+                    if (roomType.id.getValue() != 0) {
+                        prep.setInt(5, roomType.id.getValue());
+                    }
+                }, Room::mapListFromDatabase);
             } catch (SQLException e) {
                 System.out.println(e);
-                return new ArrayList<Room>();
+                return null;
             }
         }
 
@@ -280,14 +941,428 @@ public class Database {
     }
 
     ArrayList<Inquiry> getInquiries() {
-        PreparedStatement prep = preparedStatements.get("get-inquiries");
+        return getInquiries(null);
+    }
+
+    public ArrayList<Inquiry> getInquiries(QueryHandle handle) {
+        try {
+            return query("get-inquiries", handle, (PreparedStatement prep) -> {}, Inquiry::mapListFromDatabase);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the rooms known to the availability index without querying the database.
+     *
+     * @return ArrayList<Room> Rooms, empty if the index has not been loaded
+     */
+    public ArrayList<Room> getLoadedRooms() {
+        AvailabilityIndex index = availabilityIndex;
+        return index != null ? index.getRooms() : new ArrayList<Room>();
+    }
+
+    /**
+     * Returns the published availability index without waiting for a sync. The index is kept
+     * up to date by the availability sync thread, readers never query the database for it.
+     *
+     * @return AvailabilityIndex Published index, null until the first load has finished
+     */
+    AvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * Starts the availability sync thread, which loads the index right away and then
+     * synchronizes it every sync interval.
+     */
+    private void startAvailabilitySync() {
+        ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "availability-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::runAvailabilitySync, 0, AVAILABILITY_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        availabilitySyncer = syncer;
+    }
+
+    private void stopAvailabilitySync() {
+        ScheduledExecutorService syncer = availabilitySyncer;
+        availabilitySyncer = null;
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+    }
+
+    /**
+     * Synchronizes the availability index right away, e.g. after bookings have been written
+     * or changed elsewhere, and waits for it. The sync runs on the availability sync thread,
+     * readers keep using the published index meanwhile.
+     */
+    public void syncAvailabilityIndex() {
+        ScheduledExecutorService syncer = availabilitySyncer;
+        if (syncer == null) {
+            return;
+        }
+        try {
+            syncer.submit(this::runAvailabilitySync).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Loads the availability index or brings it up to date, on the availability sync thread.
+     * New bookings and inquiries are found by their id being above the high water mark of
+     * the index, cancellations by their cancellation date. Incremental changes are applied to
+     * the published index, whose own lock is only taken to apply rows already read.
+     *
+     * The incremental sync misses rows committed out of id order below the high water mark,
+     * cancellations backdated before the last sync, changed dates or rooms and revoked
+     * cancellations. To bound how long such changes go unnoticed, a new index is loaded from
+     * scratch every reconcile interval and published once complete.
+     */
+    private void runAvailabilitySync() {
+        ConnectionPool syncPool = pool;
+        long now = System.currentTimeMillis();
+        AvailabilityIndex published = availabilityIndex;
+        boolean reconcile = published == null || now - availabilityReconciledAt > AVAILABILITY_RECONCILE_INTERVAL_MILLIS;
+        AvailabilityIndex index = reconcile ? new AvailabilityIndex() : published;
+        LocalDate syncDate = LocalDate.now();
+        try {
+            index.setRooms(query("get-rooms", null, (PreparedStatement prep) -> {}, Room::mapListFromDatabase));
+            query("get-booked-room-intervals", null,
+                    (PreparedStatement prep) -> prep.setInt(1, index.getHighWaterMark(AvailabilityIndex.BOOKING)),
+                    (ResultSet resultSet) -> index.addFromDatabase(AvailabilityIndex.BOOKING, resultSet));
+            query("get-inquired-room-intervals", null,
+                    (PreparedStatement prep) -> prep.setInt(1, index.getHighWaterMark(AvailabilityIndex.INQUIRY)),
+                    (ResultSet resultSet) -> index.addFromDatabase(AvailabilityIndex.INQUIRY, resultSet));
+
+            if (!reconcile) {
+                removeCancelled(index, AvailabilityIndex.BOOKING, "get-cancelled-bookings-since");
+                removeCancelled(index, AvailabilityIndex.INQUIRY, "get-cancelled-inquiries-since");
+            }
+
+            // Not published after a disconnect or reconnect in the meantime
+            if (pool == syncPool) {
+                availabilityIndex = index;
+                availabilitySyncDate = syncDate;
+                if (reconcile) {
+                    availabilityReconciledAt = now;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        } catch (RuntimeException e) {
+            // An exception would cancel all further runs of the scheduler
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Helper method to remove bookings or inquiries from the availability index that have
+     * been cancelled since the last sync.
+     */
+    private void removeCancelled(AvailabilityIndex index, int kind, String key) throws SQLException {
+        query(key, null, (PreparedStatement prep) -> prep.setDate(1, Date.valueOf(availabilitySyncDate)), (ResultSet resultSet) -> {
+            while (resultSet.next()) {
+                index.remove(kind, resultSet.getInt(1));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drops all cached booking timeframes, e.g. after bookings have been changed outside of
+     * this application.
+     */
+    public void invalidateBookingCache() {
+        bookingsChangedAt = System.currentTimeMillis();
+        bookingCache.invalidate();
+    }
+
+    /**
+     * Drops the cached booking timeframes that contain a booking or overlap its stay, e.g.
+     * after the booking has been created, moved or cancelled.
+     *
+     * @param bookingId Id of the changed booking
+     * @param checkin   New checkin date, may be null
+     * @param checkout  New checkout date, may be null
+     */
+    public void invalidateBookingCache(int bookingId, LocalDate checkin, LocalDate checkout) {
+        bookingsChangedAt = System.currentTimeMillis();
+        bookingCache.invalidateBooking(bookingId);
+        if (checkin != null && checkout != null) {
+            bookingCache.invalidate((int) checkin.toEpochDay(), (int) checkout.toEpochDay());
+        }
+    }
+
+    /**
+     * Helper method to bind the optional timeframe filter of the paged and delta booking statements.
+     *
+     * @param prep     Statement to bind
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     */
+    private static void bindTimeframeFilter(PreparedStatement prep, LocalDate fromDate, LocalDate toDate) throws SQLException {
+        String from = fromDate != null ? fromDate.toString() : null;
+        String to = toDate != null ? toDate.toString() : null;
+        prep.setString(1, from);
+        prep.setString(2, from);
+        prep.setString(3, to);
+        prep.setString(4, to);
+    }
+
+    /**
+     * Counts the bookings within a timeframe that can be loaded page by page.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param handle   Handle of the running query, may be null
+     * @return int Number of bookings, -1 on error
+     */
+    public int countBookings(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
         try {
-            ArrayList<Inquiry> l = Inquiry.mapListFromDatabase(prep.executeQuery());
-            System.out.println(l);
-            return Inquiry.mapListFromDatabase(prep.executeQuery());
+            return query("count-bookings", handle,
+                    (PreparedStatement prep) -> bindTimeframeFilter(prep, fromDate, toDate),
+                    (ResultSet resultSet) -> resultSet.next() ? resultSet.getInt(1) : 0);
         } catch (SQLException e) {
             System.out.println(e);
-            return new ArrayList<Inquiry>();
+            return -1;
+        }
+    }
+
+    /**
+     * Exports all bookings within a timeframe into a channel. The bookings are streamed from the
+     * server and written through a fixed size buffer, so exports of any size use the same
+     * amount of memory.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param format   Format of the export
+     * @param channel  Channel to write to
+     * @param listener Observer of the progress, called on the worker thread, may be null
+     * @param handle   Handle of the running query, may be null
+     * @return long Number of exported bookings, -1 on errors
+     */
+    long exportBookings(LocalDate fromDate, LocalDate toDate, ExportFormat format, WritableByteChannel channel,
+                        ExportProgressListener listener, QueryHandle handle) {
+        try {
+            return query("export-bookings", handle,
+                    (PreparedStatement prep) -> bindTimeframeFilter(prep, fromDate, toDate),
+                    BookingExportWriter.create(format, channel, listener)::export);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return -1;
+        }
+    }
+
+    /**
+     * Streams all bookings into a columnar store, e.g. to import them into an embedded repository.
+     * The rows are not buffered by the driver and the booking range cache is bypassed.
+     *
+     * @param handle Handle of the running query, may be null
+     * @return BookingStore All bookings, null on errors
+     */
+    BookingStore streamBookingStore(QueryHandle handle) {
+        try {
+            return query("export-bookings", handle,
+                    (PreparedStatement prep) -> bindTimeframeFilter(prep, null, null), BookingStore::mapFromDatabase);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns all bookings within a specific timeframe as columnar store. Timeframes with both
+     * bounds are answered from the booking range cache, which only queries the database for
+     * the parts of the timeframe it has not seen yet.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param handle   Handle of the running query, may be null
+     * @return BookingStore Bookings, null on errors
+     */
+    public BookingStore getBookingStore(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
+        try {
+            if (fromDate != null && toDate != null) {
+                return bookingCache.get((int) fromDate.toEpochDay(), (int) toDate.toEpochDay(), (int fromDay, int toDay) -> {
+                    StatementBinder binder = (PreparedStatement prep) -> {
+                        prep.setString(1, LocalDate.ofEpochDay(toDay).toString());
+                        prep.setString(2, LocalDate.ofEpochDay(fromDay).toString());
+                    };
+                    // A replica may not have the change that emptied the cache yet, and the
+                    // refill would be cached for minutes without it
+                    return isWithinReplicaLag(bookingsChangedAt)
+                            ? queryPrimary("get-timeframe-overlap-bookings", handle, binder, BookingStore::mapFromDatabase)
+                            : query("get-timeframe-overlap-bookings", handle, binder, BookingStore::mapFromDatabase);
+                });
+            } else if (toDate != null) {
+                return query("get-timeframe-to-bookings", handle,
+                        (PreparedStatement prep) -> prep.setString(1, toDate.toString()), BookingStore::mapFromDatabase);
+            } else if (fromDate != null) {
+                return query("get-timeframe-from-bookings", handle,
+                        (PreparedStatement prep) -> prep.setString(1, fromDate.toString()), BookingStore::mapFromDatabase);
+            }
+            return query("get-all-bookings", handle, (PreparedStatement prep) -> {}, BookingStore::mapFromDatabase);
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the keyset cursor pointing to the booking at a position after another cursor.
+     * Used to jump to a page whose predecessor has not been loaded: the offset only has to
+     * skip the bookings between the nearest known cursor and the page.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param after    Cursor to count from, null to count from the first booking
+     * @param position Zero-based position of the booking after the cursor
+     * @param handle   Handle of the running query, may be null
+     * @return BookingCursor Cursor, null if there is no booking at this position
+     * @throws SQLException On database errors
+     */
+    public BookingCursor getBookingsCursor(LocalDate fromDate, LocalDate toDate, BookingCursor after, int position, QueryHandle handle) throws SQLException {
+        return query("get-bookings-page-boundary" + cursorSuffix(after), handle, (PreparedStatement prep) -> {
+            bindTimeframeFilter(prep, fromDate, toDate);
+            prep.setInt(bindCursor(prep, after, 5), position);
+        }, (ResultSet resultSet) -> resultSet.next() ? new BookingCursor(resultSet.getDate(1), resultSet.getInt(2)) : null);
+    }
+
+    /**
+     * Returns a page of bookings ordered by (checkin, id), bookings without checkin date first.
+     * Pages are addressed by keyset, so loading a page costs the same no matter how deep it is.
+     * Rows are streamed from the server.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param after    Cursor pointing to the booking before the page, null for the first page
+     * @param limit    Maximum number of bookings
+     * @param handle   Handle of the running query, may be null
+     * @return BookingStore Bookings of the page
+     * @throws SQLException On database errors
+     */
+    public BookingStore getBookingsPage(LocalDate fromDate, LocalDate toDate, BookingCursor after, int limit, QueryHandle handle) throws SQLException {
+        return query(after == null ? "get-bookings-page-first" : "get-bookings-page" + cursorSuffix(after), handle, (PreparedStatement prep) -> {
+            bindTimeframeFilter(prep, fromDate, toDate);
+            prep.setInt(bindCursor(prep, after, 5), limit);
+        }, BookingStore::mapFromDatabase);
+    }
+
+    /**
+     * Returns the suffix of the paging statements continuing after a cursor
+     */
+    private static String cursorSuffix(BookingCursor after) {
+        if (after == null) {
+            return "";
+        }
+        return after.checkin != null ? "-after" : "-after-undated";
+    }
+
+    /**
+     * Binds the keyset of a cursor, see cursorSuffix()
+     *
+     * @return int Index of the next parameter
+     */
+    private static int bindCursor(PreparedStatement prep, BookingCursor after, int index) throws SQLException {
+        if (after == null) {
+            return index;
+        }
+        if (after.checkin == null) {
+            prep.setInt(index, after.id);
+            return index + 1;
+        }
+        prep.setDate(index, after.checkin);
+        prep.setDate(index + 1, after.checkin);
+        prep.setInt(index + 2, after.id);
+        return index + 3;
+    }
+
+    /**
+     * Returns all bookings changed after a change mark. Every change updates the indexed
+     * updated_at column, so each change is fetched once and no full scan is needed.
+     *
+     * @param after  Mark of the last booking of the previous sync
+     * @param handle Handle of the running query, may be null
+     * @return Delta<BookingStore> Changed bookings and the mark of the last one
+     * @throws SQLException On database errors
+     */
+    public Delta<BookingStore> getBookingsChangedSince(ChangeMark after, QueryHandle handle) throws SQLException {
+        return query("get-bookings-changed-since", handle, (PreparedStatement prep) -> {
+            prep.setTimestamp(1, after.updatedAt);
+            prep.setTimestamp(2, after.updatedAt);
+            prep.setInt(3, after.id);
+        }, (ResultSet resultSet) -> mapBookingChanges(resultSet, after));
+    }
+
+    private static Delta<BookingStore> mapBookingChanges(ResultSet resultSet, ChangeMark after) throws SQLException {
+        BookingStore changed = new BookingStore();
+        Timestamp updatedAt = after.updatedAt;
+        int id = after.id;
+        while (resultSet.next()) {
+            id = resultSet.getInt("id");
+            updatedAt = resultSet.getTimestamp("updated_at");
+            changed.add(id,
+                    Booking.toEpochDay(resultSet.getDate("checkin")),
+                    Booking.toEpochDay(resultSet.getDate("checkout")),
+                    resultSet.getDate("cancelled_at") != null,
+                    resultSet.getString("surname"),
+                    resultSet.getString("forename"));
+        }
+        return new Delta<>(changed, null, new ChangeMark(updatedAt, id));
+    }
+
+    /**
+     * Returns the ids of all bookings within a timeframe. Used to find removed bookings.
+     *
+     * @param fromDate Checkin date has to be equal or greater, may be null
+     * @param toDate   Checkout date has to be equal or less, may be null
+     * @param handle   Handle of the running query, may be null
+     * @return HashSet<Integer> Booking ids
+     * @throws SQLException On database errors
+     */
+    public HashSet<Integer> getBookingIds(LocalDate fromDate, LocalDate toDate, QueryHandle handle) throws SQLException {
+        return query("get-booking-ids", handle,
+                (PreparedStatement prep) -> bindTimeframeFilter(prep, fromDate, toDate), Database::mapIds);
+    }
+
+    /**
+     * Returns all inquiries that are new or have been cancelled since the last sync.
+     *
+     * @param highWaterMark Highest inquiry id known from the last sync
+     * @param since         Date of the last sync
+     * @param handle        Handle of the running query, may be null
+     * @return ArrayList<Inquiry> New and changed inquiries
+     * @throws SQLException On database errors
+     */
+    public ArrayList<Inquiry> getInquiriesChangedSince(int highWaterMark, LocalDate since, QueryHandle handle) throws SQLException {
+        return query("get-inquiries-changed-since", handle, (PreparedStatement prep) -> {
+            prep.setInt(1, highWaterMark);
+            prep.setDate(2, Date.valueOf(since));
+        }, Inquiry::mapListFromDatabase);
+    }
+
+    /**
+     * Returns the ids of all inquiries. Used to find removed inquiries.
+     *
+     * @param handle Handle of the running query, may be null
+     * @return HashSet<Integer> Inquiry ids
+     * @throws SQLException On database errors
+     */
+    public HashSet<Integer> getInquiryIds(QueryHandle handle) throws SQLException {
+        return query("get-inquiry-ids", handle, (PreparedStatement prep) -> {}, Database::mapIds);
+    }
+
+    private static HashSet<Integer> mapIds(ResultSet resultSet) throws SQLException {
+        HashSet<Integer> ids = new HashSet<>();
+        while (resultSet.next()) {
+            ids.add(resultSet.getInt(1));
         }
+        return ids;
     }
 }
@@ -0,0 +1,35 @@
+package application;
+
+import java.util.HashSet;
+
+/**
+ * Result of a delta query: the rows that are new or have changed since the last sync, the
+ * change mark to continue from and, if requested, the ids of all rows that still exist.
+ */
+class Delta<T> {
+
+    final T changed;
+    final HashSet<Integer> ids;
+    final ChangeMark mark;
+
+    /**
+     * Constructor
+     * @param changed New and changed rows
+     * @param ids     Ids of all existing rows, null if not fetched
+     */
+    Delta(T changed, HashSet<Integer> ids) {
+        this(changed, ids, null);
+    }
+
+    /**
+     * Constructor
+     * @param changed New and changed rows
+     * @param ids     Ids of all existing rows, null if not fetched
+     * @param mark    Mark of the last changed row, the mark of the request if nothing changed
+     */
+    Delta(T changed, HashSet<Integer> ids, ChangeMark mark) {
+        this.changed = changed;
+        this.ids = ids;
+        this.mark = mark;
+    }
+}
@@ -0,0 +1,215 @@
+package application;
+
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.BookingStoreList;
+import application.models.Inquiry;
+import javafx.collections.ObservableList;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Objects;
+
+/**
+ * Incremental refresh of the booking and inquiry lists. Instead of reloading everything, only
+ * bookings changed after the (updated_at, id) mark of the last sync and inquiries with an id
+ * above the high water mark or cancelled since the last sync are fetched. Changed bookings that have moved out of the tracked timeframe are removed right
+ * away; rows deleted in the database are only found by fetching the ids of all existing rows,
+ * which is done once per reconcile interval instead of on every sync. The result is applied
+ * to the lists as minimal, id-keyed insert, update and remove operations.
+ *
+ * All methods must be called on the JavaFX application thread.
+ */
+class DeltaSync {
+
+    private static final long ID_RECONCILE_INTERVAL_MILLIS = 5 * 60 * 1000;
+    // The first mark lies this far before the load, covering clock skew to the server and
+    // transactions that were still open when the load started
+    private static final long CHANGE_MARK_MARGIN_MILLIS = 60 * 1000;
+
+    private AsyncDatabase asyncDatabase;
+    private BookingRepository repository;
+
+    private LocalDate bookingsFrom, bookingsTo;
+    private ChangeMark bookingMark;
+    private int inquiryHighWaterMark = -1;
+    private LocalDate inquiriesSyncedOn;
+    private boolean bookingSyncRunning = false, inquirySyncRunning = false;
+    private long bookingIdsCheckedAt, inquiryIdsCheckedAt;
+
+    /**
+     * Constructor
+     * @param asyncDatabase Database to load the deltas from
+     * @param repository    Repository whose caches are invalidated on removals
+     */
+    DeltaSync(AsyncDatabase asyncDatabase, BookingRepository repository) {
+        this.asyncDatabase = asyncDatabase;
+        this.repository = repository;
+    }
+
+    /**
+     * Starts tracking a fully loaded booking timeframe.
+     *
+     * @param from     Checkin date has to be equal or greater, may be null
+     * @param to       Checkout date has to be equal or less, may be null
+     * @param loadedAt Time at which the load has been started, in milliseconds
+     */
+    void bookingsLoaded(LocalDate from, LocalDate to, long loadedAt) {
+        bookingsFrom = from;
+        bookingsTo = to;
+        bookingMark = new ChangeMark(new Timestamp(loadedAt - CHANGE_MARK_MARGIN_MILLIS), 0);
+        bookingIdsCheckedAt = System.currentTimeMillis();
+        bookingSyncRunning = false;
+    }
+
+    /**
+     * Stops tracking bookings, e.g. while the bookings are paged or after disconnecting.
+     */
+    void resetBookings() {
+        bookingMark = null;
+        bookingSyncRunning = false;
+    }
+
+    /**
+     * Starts tracking the fully loaded inquiries.
+     *
+     * @param inquiries Loaded inquiries
+     * @param loadedOn  Date at which the load has been started
+     */
+    void inquiriesLoaded(ArrayList<Inquiry> inquiries, LocalDate loadedOn) {
+        int max = 0;
+        for (Inquiry inquiry : inquiries) {
+            max = Math.max(max, inquiry.id.getValue());
+        }
+        inquiryHighWaterMark = max;
+        inquiriesSyncedOn = loadedOn;
+        inquiryIdsCheckedAt = System.currentTimeMillis();
+        inquirySyncRunning = false;
+    }
+
+    /**
+     * Stops tracking inquiries, e.g. after disconnecting.
+     */
+    void resetInquiries() {
+        inquiryHighWaterMark = -1;
+        inquirySyncRunning = false;
+    }
+
+    /**
+     * Fetches the booking delta of the tracked timeframe and applies it to the list.
+     *
+     * @param list List showing the tracked timeframe
+     */
+    void syncBookings(BookingStoreList list) {
+        if (bookingMark == null || bookingSyncRunning) {
+            return;
+        }
+        LocalDate from = bookingsFrom, to = bookingsTo;
+        long syncStartedAt = System.currentTimeMillis();
+        boolean withIds = syncStartedAt - bookingIdsCheckedAt >= ID_RECONCILE_INTERVAL_MILLIS;
+        bookingSyncRunning = true;
+        asyncDatabase.getBookingDelta(from, to, bookingMark, withIds, (Delta<BookingStore> delta) -> {
+            bookingSyncRunning = false;
+            if (delta == null || bookingMark == null || !Objects.equals(from, bookingsFrom) || !Objects.equals(to, bookingsTo)) {
+                return;
+            }
+
+            BookingStore current = list.getStore();
+            HashSet<Integer> removed = new HashSet<>();
+            if (delta.ids != null) {
+                for (int row = 0; row < current.size(); row++) {
+                    if (!delta.ids.contains(current.getId(row))) {
+                        removed.add(current.getId(row));
+                    }
+                }
+                bookingIdsCheckedAt = syncStartedAt;
+            }
+
+            BookingStore changed = new BookingStore();
+            for (int row = 0; row < delta.changed.size(); row++) {
+                int id = delta.changed.getId(row);
+                if (delta.ids != null ? delta.ids.contains(id) : isWithin(delta.changed, row, from, to)) {
+                    changed.addRow(delta.changed, row);
+                } else if (current.indexOf(id) >= 0) {
+                    removed.add(id);
+                }
+            }
+
+            if (!removed.isEmpty()) {
+                repository.invalidateBookingCache();
+            }
+            if (changed.size() > 0 || !removed.isEmpty()) {
+                list.applyDelta(changed, removed);
+            }
+            bookingMark = delta.mark;
+        });
+    }
+
+    /**
+     * Fetches the inquiry delta and applies it to the list.
+     *
+     * @param list List showing all inquiries
+     */
+    void syncInquiries(ObservableList<Inquiry> list) {
+        if (inquiryHighWaterMark < 0 || inquirySyncRunning) {
+            return;
+        }
+        LocalDate syncDate = LocalDate.now();
+        long syncStartedAt = System.currentTimeMillis();
+        boolean withIds = syncStartedAt - inquiryIdsCheckedAt >= ID_RECONCILE_INTERVAL_MILLIS;
+        inquirySyncRunning = true;
+        asyncDatabase.getInquiryDelta(inquiryHighWaterMark, inquiriesSyncedOn, withIds, (Delta<ArrayList<Inquiry>> delta) -> {
+            inquirySyncRunning = false;
+            if (delta == null || inquiryHighWaterMark < 0) {
+                return;
+            }
+
+            if (delta.ids != null) {
+                list.removeIf((Inquiry inquiry) -> !delta.ids.contains(inquiry.id.getValue()));
+                inquiryIdsCheckedAt = syncStartedAt;
+            }
+
+            HashMap<Integer, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < list.size(); i++) {
+                indexes.put(list.get(i).id.getValue(), i);
+            }
+            for (Inquiry inquiry : delta.changed) {
+                int id = inquiry.id.getValue();
+                Integer index = indexes.get(id);
+                if (index == null) {
+                    list.add(inquiry);
+                    indexes.put(id, list.size() - 1);
+                } else if (!sameValues(list.get(index), inquiry)) {
+                    list.set(index, inquiry);
+                }
+                inquiryHighWaterMark = Math.max(inquiryHighWaterMark, id);
+            }
+            inquiriesSyncedOn = syncDate;
+        });
+    }
+
+    /**
+     * Checks whether a booking lies within a timeframe, as the timeframe filter of the
+     * database does: checkin on or after from and checkout on or before to, unknown dates
+     * only match open bounds.
+     */
+    private static boolean isWithin(BookingStore store, int row, LocalDate from, LocalDate to) {
+        int checkin = store.getCheckinDay(row), checkout = store.getCheckoutDay(row);
+        return (from == null || checkin != Booking.NO_DATE && checkin >= from.toEpochDay())
+                && (to == null || checkout != Booking.NO_DATE && checkout <= to.toEpochDay());
+    }
+
+    private static boolean sameValues(Inquiry a, Inquiry b) {
+        return a.number_of_guests.getValue().equals(b.number_of_guests.getValue())
+                && a.person_id.getValue().equals(b.person_id.getValue())
+                && Objects.equals(a.group_name.getValue(), b.group_name.getValue())
+                && Objects.equals(a.from.getValue(), b.from.getValue())
+                && Objects.equals(a.to.getValue(), b.to.getValue())
+                && Objects.equals(a.created_at.getValue(), b.created_at.getValue())
+                && Objects.equals(a.reservation_until.getValue(), b.reservation_until.getValue())
+                && Objects.equals(a.cancelled_at.getValue(), b.cancelled_at.getValue());
+    }
+}
@@ -0,0 +1,566 @@
+package application;
+
+import application.assignment.RoomAssignment;
+import application.assignment.RoomAssignmentEngine;
+import application.availability.AvailabilityIndex;
+import application.availability.AvailabilityRequest;
+import application.enums.DatabaseState;
+import application.interfaces.DatabaseListener;
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * In-process BookingRepository that answers all queries from memory, e.g. to run the UI or the
+ * workload replay without the round trips to a MySQL server.
+ *
+ * The data is either added row by row before connecting or imported from a Database on every
+ * connect. Each connect publishes an immutable Snapshot through a volatile field, so all queries
+ * run without locks on the snapshot they started with:
+ *
+ *   - bookings are kept in a BookingStore with a date index, the rows with a checkin date
+ *     sorted by (checkin, id). Timeframes and pages are a binary search into the index followed
+ *     by a scan up to the end of the timeframe, as stays never end before they start.
+ *   - rooms and their occupations by active bookings and inquiries are kept in an
+ *     AvailabilityIndex, which answers availability with one binary search per room.
+ */
+public class EmbeddedBookingRepository implements BookingRepository {
+
+    private Database source;
+    private volatile boolean connected = false;
+    private CopyOnWriteArraySet<DatabaseListener> observers = new CopyOnWriteArraySet<>();
+
+    // Rows added before connecting
+    private ArrayList<RoomType> roomTypes = new ArrayList<>();
+    private ArrayList<Room> rooms = new ArrayList<>();
+    private BookingStore bookings = new BookingStore();
+    private ArrayList<Inquiry> inquiries = new ArrayList<>();
+    private int[][] occupations = new int[AvailabilityIndex.INQUIRY + 1][];
+    private int[] occupationCounts = new int[AvailabilityIndex.INQUIRY + 1];
+
+    private volatile Snapshot snapshot = new Snapshot(new ArrayList<RoomType>(), new BookingStore(), new ArrayList<Inquiry>(), null);
+
+    /**
+     * Data answered while connected. Never modified once published.
+     */
+    private static final class Snapshot {
+        final ArrayList<RoomType> roomTypes;
+        final BookingStore bookings;
+        final ArrayList<Inquiry> inquiries;
+        final AvailabilityIndex availabilityIndex;
+        final Timestamp loadedAt = new Timestamp(System.currentTimeMillis());
+
+        // Date index: rows with a checkin date ordered by (checkin, id) and their checkin days
+        int[] checkinOrder;
+        int[] checkinDays;
+        int[] undatedRows;
+
+        Snapshot(ArrayList<RoomType> roomTypes, BookingStore bookings, ArrayList<Inquiry> inquiries, AvailabilityIndex availabilityIndex) {
+            this.roomTypes = roomTypes;
+            this.bookings = bookings;
+            this.inquiries = inquiries;
+            this.availabilityIndex = availabilityIndex;
+            buildDateIndex();
+        }
+
+        /**
+         * Sorts the rows with a checkin date by (checkin, id). Both sorts run on primitive keys: the
+         * rows are ranked by id first, then sorted by checkin with the rank breaking ties.
+         */
+        private void buildDateIndex() {
+            int size = bookings.size();
+            long[] idKeys = new long[size];
+            for (int row = 0; row < size; row++) {
+                idKeys[row] = (long) bookings.getId(row) << 32 | row;
+            }
+            Arrays.sort(idKeys);
+            int[] rowOfRank = new int[size];
+            for (int rank = 0; rank < size; rank++) {
+                rowOfRank[rank] = (int) idKeys[rank];
+            }
+
+            long[] checkinKeys = new long[size];
+            int[] undated = new int[size];
+            int datedCount = 0, undatedCount = 0;
+            for (int rank = 0; rank < size; rank++) {
+                int row = rowOfRank[rank];
+                int checkin = bookings.getCheckinDay(row);
+                if (checkin == Booking.NO_DATE) {
+                    undated[undatedCount++] = row;
+                } else {
+                    checkinKeys[datedCount++] = (long) checkin << 32 | rank;
+                }
+            }
+            Arrays.sort(checkinKeys, 0, datedCount);
+
+            checkinOrder = new int[datedCount];
+            checkinDays = new int[datedCount];
+            for (int i = 0; i < datedCount; i++) {
+                checkinOrder[i] = rowOfRank[(int) checkinKeys[i]];
+                checkinDays[i] = (int) (checkinKeys[i] >> 32);
+            }
+            undatedRows = Arrays.copyOf(undated, undatedCount);
+        }
+
+        /**
+         * Returns the position of the first dated row whose checkin is equal or greater than a day.
+         */
+        int lowerBound(int day) {
+            int low = 0, high = checkinDays.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (checkinDays[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the number of positions of the paging order: undated rows by id, then the date index
+         */
+        int pagedCount() {
+            return undatedRows.length + checkinOrder.length;
+        }
+
+        /**
+         * Returns the row at a position of the paging order
+         */
+        int pagedRow(int position) {
+            return position < undatedRows.length ? undatedRows[position] : checkinOrder[position - undatedRows.length];
+        }
+
+        /**
+         * Returns True if a position of the paging order lies behind every row checking in up to a day
+         */
+        boolean pagedBeyond(int position, int toDay) {
+            return toDay != Booking.NO_DATE && position >= undatedRows.length && checkinDays[position - undatedRows.length] > toDay;
+        }
+
+        /**
+         * Returns the first position of the paging order that checks in on or after a day and
+         * follows a cursor, the same order the database pages in.
+         *
+         * @param fromDay Checkin epoch day, Booking.NO_DATE for any
+         * @param after   Cursor to start after, null to start at the beginning
+         * @return int Position
+         */
+        int pagedStart(int fromDay, BookingCursor after) {
+            int start = fromDay != Booking.NO_DATE ? undatedRows.length + lowerBound(fromDay) : 0;
+            if (after == null) {
+                return start;
+            }
+            int position;
+            if (after.checkin == null) {
+                // Undated rows are in id order
+                int low = 0, high = undatedRows.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (bookings.getId(undatedRows[mid]) <= after.id) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                position = low;
+            } else {
+                int day = Booking.toEpochDay(after.checkin), i = lowerBound(day);
+                while (i < checkinOrder.length && checkinDays[i] == day && bookings.getId(checkinOrder[i]) <= after.id) {
+                    i++;
+                }
+                position = undatedRows.length + i;
+            }
+            return Math.max(start, position);
+        }
+
+        boolean matches(int row, int fromDay, int toDay) {
+            int checkin = bookings.getCheckinDay(row), checkout = bookings.getCheckoutDay(row);
+            return (fromDay == Booking.NO_DATE || (checkin != Booking.NO_DATE && checkin >= fromDay))
+                    && (toDay == Booking.NO_DATE || (checkout != Booking.NO_DATE && checkout <= toDay));
+        }
+
+        /**
+         * Collects the rows of a timeframe: dated rows from the date index, undated rows only if
+         * the timeframe has no start.
+         *
+         * @param fromDate Checkin date has to be equal or greater, may be null
+         * @param toDate   Checkout date has to be equal or less, may be null
+         * @return BookingStore Matching bookings
+         */
+        BookingStore select(LocalDate fromDate, LocalDate toDate) {
+            int fromDay = toDay(fromDate), toDay = toDay(toDate);
+            BookingStore result = new BookingStore();
+            if (fromDay == Booking.NO_DATE && toDay == Booking.NO_DATE) {
+                for (int row = 0; row < bookings.size(); row++) {
+                    result.addRow(bookings, row);
+                }
+                return result;
+            }
+
+            for (int i = fromDay != Booking.NO_DATE ? lowerBound(fromDay) : 0; i < checkinOrder.length; i++) {
+                if (toDay != Booking.NO_DATE && checkinDays[i] > toDay) {
+                    break;
+                }
+                if (matches(checkinOrder[i], fromDay, toDay)) {
+                    result.addRow(bookings, checkinOrder[i]);
+                }
+            }
+            if (fromDay == Booking.NO_DATE) {
+                for (int row : undatedRows) {
+                    if (matches(row, fromDay, toDay)) {
+                        result.addRow(bookings, row);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Constructor for a repository that is filled row by row before connecting
+     */
+    public EmbeddedBookingRepository() {
+    }
+
+    /**
+     * Constructor for a repository that imports all data of a database on every connect. The
+     * database is only connected for the duration of the import.
+     *
+     * @param source Database to import
+     */
+    public EmbeddedBookingRepository(Database source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds a room type. Has to be called before connecting.
+     *
+     * @param roomType Room type to add
+     */
+    public void addRoomType(RoomType roomType) {
+        roomTypes.add(roomType);
+    }
+
+    /**
+     * Adds a room. Has to be called before connecting.
+     *
+     * @param room Room to add
+     */
+    public void addRoom(Room room) {
+        rooms.add(room);
+    }
+
+    /**
+     * Adds a booking and the rooms it occupies, unless it is cancelled. Has to be called before connecting.
+     *
+     * @param id          Id of the booking
+     * @param checkinDay  Checkin epoch day, Booking.NO_DATE if unknown
+     * @param checkoutDay Checkout epoch day, Booking.NO_DATE if unknown
+     * @param isCancelled True if the booking has been cancelled
+     * @param surname     Surname of the responsible person
+     * @param forename    Forename of the responsible person
+     * @param roomIds     Ids of the booked rooms
+     */
+    public void addBooking(int id, int checkinDay, int checkoutDay, boolean isCancelled, String surname, String forename, int... roomIds) {
+        bookings.add(id, checkinDay, checkoutDay, isCancelled, surname, forename);
+        if (!isCancelled && checkinDay != Booking.NO_DATE && checkoutDay != Booking.NO_DATE) {
+            for (int roomId : roomIds) {
+                addOccupation(AvailabilityIndex.BOOKING, id, roomId, checkinDay, checkoutDay);
+            }
+        }
+    }
+
+    /**
+     * Adds an inquiry and the rooms it holds, unless it is cancelled. Has to be called before connecting.
+     *
+     * @param inquiry Inquiry to add
+     * @param roomIds Ids of the held rooms
+     */
+    public void addInquiry(Inquiry inquiry, int... roomIds) {
+        inquiries.add(inquiry);
+        if (inquiry.cancelled_at.getValue().isEmpty()) {
+            int fromDay = (int) LocalDate.parse(inquiry.from.getValue()).toEpochDay();
+            int toDay = (int) LocalDate.parse(inquiry.to.getValue()).toEpochDay();
+            for (int roomId : roomIds) {
+                addOccupation(AvailabilityIndex.INQUIRY, inquiry.id.getValue(), roomId, fromDay, toDay);
+            }
+        }
+    }
+
+    private void addOccupation(int kind, int id, int roomId, int fromDay, int toDay) {
+        int[] values = occupations[kind];
+        int count = occupationCounts[kind];
+        if (values == null) {
+            values = new int[64];
+        } else if (count * 4 == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[count * 4] = id;
+        values[count * 4 + 1] = roomId;
+        values[count * 4 + 2] = fromDay;
+        values[count * 4 + 3] = toDay;
+        occupations[kind] = values;
+        occupationCounts[kind] = count + 1;
+    }
+
+    private void setState(DatabaseState state) {
+        for (DatabaseListener observer : observers) {
+            observer.databaseStateChanged(state);
+        }
+    }
+
+    /**
+     * Imports the data of the source database, if any, builds the indexes and publishes them.
+     * Has to be called off the JavaFX application thread, the import streams all bookings.
+     *
+     * @return True if the repository is ready
+     */
+    public synchronized boolean connect() {
+        setState(DatabaseState.CONNECTING);
+        Snapshot loaded;
+        if (source != null) {
+            loaded = importSource();
+        } else {
+            AvailabilityIndex index = new AvailabilityIndex();
+            index.setRooms(rooms);
+            for (int kind = AvailabilityIndex.BOOKING; kind <= AvailabilityIndex.INQUIRY; kind++) {
+                addOccupations(index, kind);
+            }
+            // The staging store keeps taking rows, the snapshot gets a copy of its own
+            BookingStore published = new BookingStore();
+            for (int row = 0; row < bookings.size(); row++) {
+                published.addRow(bookings, row);
+            }
+            loaded = new Snapshot(new ArrayList<>(roomTypes), published, new ArrayList<>(inquiries), index);
+        }
+        if (loaded == null) {
+            setState(DatabaseState.CONNECTION_FAILED);
+            return false;
+        }
+        snapshot = loaded;
+        connected = true;
+        setState(DatabaseState.CONNECTED);
+        return true;
+    }
+
+    private void addOccupations(AvailabilityIndex index, int kind) {
+        int count = occupationCounts[kind];
+        int[] ids = new int[count], roomIds = new int[count], fromDays = new int[count], toDays = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = occupations[kind][i * 4];
+            roomIds[i] = occupations[kind][i * 4 + 1];
+            fromDays[i] = occupations[kind][i * 4 + 2];
+            toDays[i] = occupations[kind][i * 4 + 3];
+        }
+        index.addAll(kind, ids, roomIds, fromDays, toDays, count);
+    }
+
+    /**
+     * Loads room types, bookings, inquiries and the room availability from the source database.
+     * The bookings are streamed, so the driver never buffers the whole table.
+     *
+     * @return Snapshot Imported data, null if the import failed
+     */
+    private Snapshot importSource() {
+        if (!source.connect()) {
+            return null;
+        }
+        try {
+            ArrayList<RoomType> importedRoomTypes = source.getRoomTypes(null);
+            BookingStore importedBookings = source.streamBookingStore(null);
+            ArrayList<Inquiry> importedInquiries = source.getInquiries(null);
+            source.syncAvailabilityIndex();
+            AvailabilityIndex importedIndex = source.getAvailabilityIndex();
+            if (importedRoomTypes == null || importedBookings == null || importedInquiries == null || importedIndex == null) {
+                return null;
+            }
+            return new Snapshot(importedRoomTypes, importedBookings, importedInquiries, importedIndex);
+        } finally {
+            source.disconnect();
+        }
+    }
+
+    public synchronized boolean disconnect() {
+        if (!connected) {
+            return false;
+        }
+        connected = false;
+        setState(DatabaseState.DISCONNECTED);
+        return true;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public void addDatabaseObserver(DatabaseListener observer) {
+        observers.add(observer);
+    }
+
+    public void removeDatabaseObserver(DatabaseListener observer) {
+        observers.remove(observer);
+    }
+
+    public int getParallelism() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static int toDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : Booking.NO_DATE;
+    }
+
+    public ArrayList<Booking> getBookingsList(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
+        BookingStore store = snapshot.select(fromDate, toDate);
+        ArrayList<Booking> list = new ArrayList<>(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            list.add(store.get(row));
+        }
+        return list;
+    }
+
+    public BookingStore getBookingStore(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
+        return snapshot.select(fromDate, toDate);
+    }
+
+    public int countBookings(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
+        Snapshot data = snapshot;
+        int fromDay = toDay(fromDate), toDay = toDay(toDate), count = 0;
+        for (int i = data.pagedStart(fromDay, null); i < data.pagedCount() && !data.pagedBeyond(i, toDay); i++) {
+            if (data.matches(data.pagedRow(i), fromDay, toDay)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public BookingCursor getBookingsCursor(LocalDate fromDate, LocalDate toDate, BookingCursor after, int position, QueryHandle handle) {
+        Snapshot data = snapshot;
+        int fromDay = toDay(fromDate), toDay = toDay(toDate), count = 0;
+        for (int i = data.pagedStart(fromDay, after); i < data.pagedCount() && !data.pagedBeyond(i, toDay); i++) {
+            if (handle != null && handle.isCancelled()) {
+                break;
+            }
+            int row = data.pagedRow(i);
+            if (data.matches(row, fromDay, toDay) && count++ == position) {
+                return BookingCursor.at(data.bookings, row);
+            }
+        }
+        return null;
+    }
+
+    public BookingStore getBookingsPage(LocalDate fromDate, LocalDate toDate, BookingCursor after, int limit, QueryHandle handle) {
+        Snapshot data = snapshot;
+        int fromDay = toDay(fromDate), toDay = toDay(toDate);
+        BookingStore page = new BookingStore();
+        for (int i = data.pagedStart(fromDay, after); i < data.pagedCount() && !data.pagedBeyond(i, toDay) && page.size() < limit; i++) {
+            int row = data.pagedRow(i);
+            if (data.matches(row, fromDay, toDay)) {
+                page.addRow(data.bookings, row);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Returns the bookings changed after a mark. The data does not change while connected, so
+     * all bookings count as changed when the snapshot has been loaded, none afterwards.
+     */
+    public Delta<BookingStore> getBookingsChangedSince(ChangeMark after, QueryHandle handle) {
+        Snapshot data = snapshot;
+        if (!after.updatedAt.before(data.loadedAt)) {
+            return new Delta<>(new BookingStore(), null, after);
+        }
+        BookingStore changed = new BookingStore();
+        for (int row = 0; row < data.bookings.size(); row++) {
+            changed.addRow(data.bookings, row);
+        }
+        return new Delta<>(changed, null, new ChangeMark(data.loadedAt, Integer.MAX_VALUE));
+    }
+
+    public HashSet<Integer> getBookingIds(LocalDate fromDate, LocalDate toDate, QueryHandle handle) {
+        BookingStore store = snapshot.select(fromDate, toDate);
+        HashSet<Integer> ids = new HashSet<>();
+        for (int row = 0; row < store.size(); row++) {
+            ids.add(store.getId(row));
+        }
+        return ids;
+    }
+
+    public void invalidateBookingCache() {
+    }
+
+    public void invalidateBookingCache(int bookingId, LocalDate checkin, LocalDate checkout) {
+    }
+
+    public ArrayList<Room> getAvailableRooms(LocalDate fromDate, LocalDate toDate, RoomType roomType, QueryHandle handle) {
+        AvailabilityIndex index = snapshot.availabilityIndex;
+        if (fromDate != null && toDate != null && roomType != null && index != null) {
+            return index.getAvailableRooms(fromDate, toDate, roomType.id.getValue());
+        }
+        return new ArrayList<Room>();
+    }
+
+    public ArrayList<ArrayList<Room>> getAvailableRooms(List<AvailabilityRequest> requests, QueryHandle handle) {
+        AvailabilityIndex index = snapshot.availabilityIndex;
+        return index != null ? index.getAvailableRooms(requests) : new ArrayList<ArrayList<Room>>();
+    }
+
+    public ArrayList<Room> getLoadedRooms() {
+        AvailabilityIndex index = snapshot.availabilityIndex;
+        return index != null ? index.getRooms() : new ArrayList<Room>();
+    }
+
+    public void syncAvailabilityIndex() {
+    }
+
+    public RoomAssignment assignRooms(List<Inquiry> inquiries, List<RoomType> roomTypes) {
+        AvailabilityIndex index = snapshot.availabilityIndex;
+        if (index == null) {
+            return null;
+        }
+        return new RoomAssignmentEngine(ForkJoinPool.commonPool())
+                .assign(index.getRooms(), roomTypes, index.getIntervals(), inquiries);
+    }
+
+    /**
+     * Returns all inquiries. The inquiries are shared between calls and must not be modified.
+     */
+    public ArrayList<Inquiry> getInquiries(QueryHandle handle) {
+        return new ArrayList<>(snapshot.inquiries);
+    }
+
+    public ArrayList<Inquiry> getInquiriesChangedSince(int highWaterMark, LocalDate since, QueryHandle handle) {
+        ArrayList<Inquiry> changed = new ArrayList<>();
+        for (Inquiry inquiry : snapshot.inquiries) {
+            if (inquiry.id.getValue() > highWaterMark) {
+                changed.add(inquiry);
+            }
+        }
+        return changed;
+    }
+
+    public HashSet<Integer> getInquiryIds(QueryHandle handle) {
+        HashSet<Integer> ids = new HashSet<>();
+        for (Inquiry inquiry : snapshot.inquiries) {
+            ids.add(inquiry.id.getValue());
+        }
+        return ids;
+    }
+
+    public ArrayList<RoomType> getRoomTypes(QueryHandle handle) {
+        return new ArrayList<>(snapshot.roomTypes);
+    }
+}
@@ -0,0 +1,390 @@
+package application;
+
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+import application.server.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless mode: serves the lists of the UI as JSON over HTTP instead of showing them, so that
+ * many front desk clients share one process with one connection pool, one booking cache and
+ * one availability index. Started with Main --headless [--port 8080] [--bind 127.0.0.1]. The
+ * server listens on the loopback address unless another bind address is given.
+ *
+ * Endpoints (GET only, dates as yyyy-mm-dd):
+ *   /bookings?from=&to=                 bookings within the timeframe, both bounds required and
+ *                                       at most MAX_BOOKINGS_DAYS apart
+ *   /availability?from=&to=&roomType=   available rooms, room type 0 or missing for any type
+ *   /inquiries                          all inquiries
+ *   /roomtypes                          all room types
+ *
+ * Requests run on virtual threads if the JVM provides them (Java 21 and later), on a cached
+ * thread pool otherwise. Either way the number of concurrent queries is bounded by the
+ * connection pool.
+ */
+class HeadlessServer {
+
+    private static final int DEFAULT_PORT = 8080, BACKLOG = 128, STOP_DELAY_SECONDS = 1, MAX_BOOKINGS_DAYS = 366;
+    private static final String
+            PORT_ARGUMENT = "--port",
+            BIND_ARGUMENT = "--bind",
+            JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private BookingRepository repository;
+    private Database database;
+    private HoldExpiryService holdExpiry;
+    private InetAddress bindAddress;
+    private int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     * @param repository  Repository to answer the requests from
+     * @param database    Database behind the repository, expires the inquiry holds
+     * @param bindAddress Address to listen on
+     * @param port        Port to listen on
+     */
+    HeadlessServer(BookingRepository repository, Database database, InetAddress bindAddress, int port) {
+        this.repository = repository;
+        this.database = database;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.holdExpiry = new HoldExpiryService(database);
+    }
+
+    /**
+     * Connects, starts serving and stops again when the JVM shuts down.
+     *
+     * @param args Command line arguments
+     */
+    static void run(String[] args) {
+        Database database = new Database();
+        HeadlessServer headlessServer = new HeadlessServer(Main.createRepository(database), database,
+                parseBindAddress(args), parsePort(args));
+        if (headlessServer.start()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(headlessServer::stop, "headless-shutdown"));
+        } else {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Connects to the database, warms up the availability index and starts listening.
+     *
+     * @return True if the server is running
+     */
+    boolean start() {
+        if (!repository.connect()) {
+            System.out.println("Could not connect to the database");
+            return false;
+        }
+        if (database.isConnected()) {
+            holdExpiry.start();
+        }
+        repository.syncAvailabilityIndex();
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(bindAddress, port), BACKLOG);
+        } catch (IOException e) {
+            System.out.println(e);
+            stop();
+            return false;
+        }
+        server.createContext("/bookings", (HttpExchange exchange) -> serve(exchange, this::getBookings));
+        server.createContext("/availability", (HttpExchange exchange) -> serve(exchange, this::getAvailability));
+        server.createContext("/inquiries", (HttpExchange exchange) -> serve(exchange, this::getInquiries));
+        server.createContext("/roomtypes", (HttpExchange exchange) -> serve(exchange, this::getRoomTypes));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Serving on " + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort());
+        return true;
+    }
+
+    /**
+     * Stops listening, lets running requests finish and disconnects.
+     */
+    void stop() {
+        if (server != null) {
+            server.stop(STOP_DELAY_SECONDS);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        holdExpiry.stop();
+        repository.disconnect();
+    }
+
+    /**
+     * Returns a virtual thread per task executor if the JVM provides one, a cached thread pool
+     * otherwise.
+     *
+     * @return ExecutorService Executor for the requests
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static int parsePort(String[] args) {
+        String value = argumentValue(args, PORT_ARGUMENT);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                System.out.println(e);
+            }
+        }
+        return DEFAULT_PORT;
+    }
+
+    /**
+     * Returns the address given with --bind, the loopback address if there is none or it
+     * cannot be resolved, so the server is never exposed by accident.
+     */
+    private static InetAddress parseBindAddress(String[] args) {
+        String value = argumentValue(args, BIND_ARGUMENT);
+        if (value != null) {
+            try {
+                return InetAddress.getByName(value);
+            } catch (UnknownHostException e) {
+                System.out.println(e);
+            }
+        }
+        return InetAddress.getLoopbackAddress();
+    }
+
+    private static String argumentValue(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs an endpoint: rejects everything but GET, answers invalid parameters with 400 and
+     * failed queries with 503.
+     */
+    private void serve(HttpExchange exchange, HttpHandler endpoint) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            endpoint.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            sendError(exchange, 503, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void getBookings(HttpExchange exchange) throws IOException {
+        HashMap<String, String> parameters = parseQuery(exchange);
+        LocalDate from = parseDate(parameters, "from"), to = parseDate(parameters, "to");
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_BOOKINGS_DAYS) {
+            throw new IllegalArgumentException("from and to must be at most " + MAX_BOOKINGS_DAYS + " days apart");
+        }
+        BookingStore bookings = repository.getBookingStore(from, to, null);
+        if (bookings == null) {
+            throw new IllegalStateException("Bookings could not be loaded");
+        }
+        try (JsonWriter json = beginJson(exchange)) {
+            json.beginArray();
+            for (int row = 0; row < bookings.size(); row++) {
+                json.beginObject()
+                        .name("id").value(bookings.getId(row))
+                        .name("checkin").value(toDate(bookings.getCheckinDay(row)))
+                        .name("checkout").value(toDate(bookings.getCheckoutDay(row)))
+                        .name("cancelled").value(bookings.isCancelled(row))
+                        .name("surname").value(bookings.getSurname(row))
+                        .name("forename").value(bookings.getForename(row))
+                        .endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    private void getAvailability(HttpExchange exchange) throws IOException {
+        HashMap<String, String> parameters = parseQuery(exchange);
+        LocalDate from = parseDate(parameters, "from"), to = parseDate(parameters, "to");
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        int roomTypeId = parseInt(parameters, "roomType");
+        ArrayList<Room> rooms = repository.getAvailableRooms(from, to, new RoomType(roomTypeId, "", "", 0), null);
+        if (rooms == null) {
+            throw new IllegalStateException("Available rooms could not be loaded");
+        }
+        try (JsonWriter json = beginJson(exchange)) {
+            json.beginArray();
+            for (Room room : rooms) {
+                json.beginObject()
+                        .name("id").value(room.id.getValue())
+                        .name("name").value(room.name.getValue())
+                        .name("description").value(room.description.getValue())
+                        .name("roomType").value(room.room_type.getValue())
+                        .endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    private void getInquiries(HttpExchange exchange) throws IOException {
+        ArrayList<Inquiry> inquiries = repository.getInquiries(null);
+        if (inquiries == null) {
+            throw new IllegalStateException("Inquiries could not be loaded");
+        }
+        try (JsonWriter json = beginJson(exchange)) {
+            json.beginArray();
+            for (Inquiry inquiry : inquiries) {
+                json.beginObject()
+                        .name("id").value(inquiry.id.getValue())
+                        .name("groupName").value(inquiry.group_name.getValue())
+                        .name("from").value(emptyToNull(inquiry.from.getValue()))
+                        .name("to").value(emptyToNull(inquiry.to.getValue()))
+                        .name("numberOfGuests").value(inquiry.number_of_guests.getValue())
+                        .name("createdAt").value(emptyToNull(inquiry.created_at.getValue()))
+                        .name("reservationUntil").value(emptyToNull(inquiry.reservation_until.getValue()))
+                        .name("cancelledAt").value(emptyToNull(inquiry.cancelled_at.getValue()))
+                        .name("personId").value(inquiry.person_id.getValue())
+                        .endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    private void getRoomTypes(HttpExchange exchange) throws IOException {
+        ArrayList<RoomType> roomTypes = repository.getRoomTypes(null);
+        if (roomTypes == null) {
+            throw new IllegalStateException("Room types could not be loaded");
+        }
+        try (JsonWriter json = beginJson(exchange)) {
+            json.beginArray();
+            for (RoomType roomType : roomTypes) {
+                json.beginObject()
+                        .name("id").value(roomType.id.getValue())
+                        .name("name").value(roomType.name.getValue())
+                        .name("description").value(roomType.description.getValue())
+                        .name("maximumNumberOfGuests").value(roomType.maximum_number_of_guests.getValue())
+                        .endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    /**
+     * Sends the headers of a successful JSON response of unknown length and returns a writer
+     * for its body
+     */
+    private static JsonWriter beginJson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter text = new StringWriter();
+        try (JsonWriter json = new JsonWriter(text)) {
+            json.beginObject().name("error").value(message).endObject();
+        }
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static HashMap<String, String> parseQuery(HttpExchange exchange) throws UnsupportedEncodingException {
+        HashMap<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static LocalDate parseDate(HashMap<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " is not a date: " + value);
+        }
+    }
+
+    private static int parseInt(HashMap<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay != Booking.NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
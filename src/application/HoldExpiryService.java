@@ -0,0 +1,214 @@
+package application;
+
+import application.expiry.ExpiryResult;
+import application.expiry.TimingWheel;
+import application.interfaces.HoldExpiryListener;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background expiry of inquiry holds. The reservations of all open inquiries are loaded into a
+ * TimingWheel, every hold is due at the start of the day after its reservation_until. The wheel
+ * is advanced once per tick on a single background thread; all holds due in the same tick are
+ * expired together by Database.expireInquiryHolds and the listeners are notified with the ids
+ * of the released inquiries.
+ *
+ * New inquiries are picked up every RELOAD_MILLIS by reading the ids above the highest one
+ * loaded. Holds that have been extended in the meantime are rescheduled when they become due,
+ * inquiries that have been converted or cancelled are skipped. Inquiries committed out of id
+ * order and shortened reservations are only found by reloading all open holds into a new
+ * wheel, which is done every RECONCILE_MILLIS. All holds are read from the primary.
+ *
+ * Every client and headless server creates the service, but only the process holding the hold
+ * expiry lease of the database runs it; the others take over once that process disconnects.
+ * Clients that do not run it see expired holds through the delta sync.
+ */
+class HoldExpiryService {
+
+    private static final long
+            TICK_MILLIS = 1000,
+            RELOAD_MILLIS = 60 * 1000,
+            RECONCILE_MILLIS = 10 * 60 * 1000,
+            RETRY_MILLIS = 30 * 1000;
+
+    private Database database;
+    private CopyOnWriteArraySet<HoldExpiryListener> listeners = new CopyOnWriteArraySet<>();
+    private ScheduledExecutorService scheduler;
+
+    // Only accessed on the scheduler thread
+    private TimingWheel wheel;
+    private int highWaterMark;
+    private long reloadedAt, reconciledAt;
+    private boolean leader;
+
+    /**
+     * Constructor
+     * @param database Database to load and expire the holds on
+     */
+    HoldExpiryService(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Adds a new observer. Observers are notified on the expiry thread, so they have to be
+     * thread-safe.
+     *
+     * @param listener Observer to add
+     */
+    void addListener(HoldExpiryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes an existing observer
+     *
+     * @param listener Observer to remove
+     */
+    void removeListener(HoldExpiryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Loads the holds and starts expiring them in the background. Holds whose reservation has
+     * already run out are expired right away.
+     */
+    synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        wheel = new TimingWheel(System.currentTimeMillis(), TICK_MILLIS);
+        highWaterMark = 0;
+        reloadedAt = Long.MIN_VALUE;
+        leader = false;
+        scheduler = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops expiring holds, e.g. before disconnecting.
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        database.releaseHoldExpiryLease();
+    }
+
+    /**
+     * Returns the point in time at which a hold runs out
+     *
+     * @param reservationUntil Last day of the reservation
+     * @return long Milliseconds since the epoch
+     */
+    static long expiresAt(LocalDate reservationUntil) {
+        return reservationUntil.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Confirms the lease and loads new holds if due, advances the wheel and expires the holds
+     * that have run out.
+     */
+    private void tick() {
+        // An exception would cancel all further ticks of the scheduler
+        try {
+            long now = System.currentTimeMillis();
+            if (now - reloadedAt >= RELOAD_MILLIS) {
+                boolean wasLeader = leader;
+                leader = database.acquireHoldExpiryLease();
+                if (leader && (!wasLeader || now - reconciledAt >= RECONCILE_MILLIS)) {
+                    reconcileHolds(now);
+                } else if (leader) {
+                    int loaded = loadHolds(highWaterMark, wheel);
+                    highWaterMark = Math.max(highWaterMark, loaded);
+                }
+                reloadedAt = now;
+            }
+            if (!leader) {
+                return;
+            }
+
+            ArrayList<Integer> due = new ArrayList<>();
+            if (wheel.advance(now, due) == 0) {
+                return;
+            }
+            ExpiryResult result = database.expireInquiryHolds(due);
+            if (result == null) {
+                reschedule(due, now + RETRY_MILLIS);
+                return;
+            }
+            for (Map.Entry<Integer, LocalDate> extended : result.getExtended().entrySet()) {
+                wheel.schedule(extended.getKey(), expiresAt(extended.getValue()));
+            }
+            reschedule(result.getFailed(), now + RETRY_MILLIS);
+            if (!result.getExpired().isEmpty()) {
+                System.out.println("Released the holds of " + result.getExpired().size() + " expired inquiries");
+                for (HoldExpiryListener listener : listeners) {
+                    listener.holdsExpired(result.getExpired());
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Replaces the wheel with one holding all open holds. Holds whose inquiry has been closed
+     * are dropped, all others are scheduled at their current reservation.
+     */
+    private void reconcileHolds(long now) {
+        TimingWheel reloaded = new TimingWheel(now, TICK_MILLIS);
+        int loaded = loadHolds(0, reloaded);
+        if (loaded >= 0) {
+            wheel = reloaded;
+            highWaterMark = loaded;
+            reconciledAt = now;
+        }
+    }
+
+    /**
+     * Schedules the holds of all open inquiries above an id
+     *
+     * @return int Highest id read, the given one if there are none, -1 on errors
+     */
+    private int loadHolds(int afterId, TimingWheel target) {
+        try {
+            return database.getInquiryHolds(afterId, (ResultSet resultSet) -> {
+                int maxId = afterId;
+                while (resultSet.next()) {
+                    int id = resultSet.getInt("id");
+                    Date reservationUntil = resultSet.getDate("reservation_until");
+                    if (reservationUntil != null) {
+                        target.schedule(id, expiresAt(reservationUntil.toLocalDate()));
+                    }
+                    maxId = Math.max(maxId, id);
+                }
+                return maxId;
+            });
+        } catch (SQLException e) {
+            System.out.println(e);
+            return -1;
+        }
+    }
+
+    private void reschedule(List<Integer> inquiryIds, long deadlineMillis) {
+        for (int inquiryId : inquiryIds) {
+            wheel.schedule(inquiryId, deadlineMillis);
+        }
+    }
+}
@@ -1,16 +1,35 @@
 package application;
 
 import application.enums.DatabaseState;
+import application.enums.ExportFormat;
+import application.analytics.OccupancyReport;
+import application.assignment.RoomAssignment;
+import application.availability.AvailabilityIndex;
+import application.availability.AvailabilityRequest;
+import application.conversion.ConversionResult;
+import application.conversion.InquiryConversion;
 import application.interfaces.ControllerListener;
 import application.interfaces.DatabaseListener;
+import application.interfaces.HoldExpiryListener;
+import application.metrics.StatementStats;
 import application.models.Booking;
+import application.models.BookingStore;
+import application.models.BookingStoreList;
 import application.models.Inquiry;
 import application.models.Room;
 import application.models.RoomType;
+import application.snapshot.Snapshot;
+import application.snapshot.SnapshotFile;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -19,30 +38,68 @@ import javafx.scene.input.*;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 
 /**
  * Main Application
  */
-public class Main extends Application implements DatabaseListener, ControllerListener {
+public class Main extends Application implements DatabaseListener, ControllerListener, HoldExpiryListener {
 
-    private static final int PREF_WIDTH = 1200, PREF_HEIGHT = 600;
+    private static final int PREF_WIDTH = 1200, PREF_HEIGHT = 600, AUTO_REFRESH_SECONDS = 5, METRICS_REFRESH_SECONDS = 1;
+    private static final int QUERY_QUIET_MILLIS = 250, QUERY_MAX_WAIT_MILLIS = 1000, OCCUPANCY_REPORT_YEARS = 3;
     private static final String
             WINDOW_TITLE = "List bookings",
             DATABASE_CONNECTING = "Connecting...",
             DATABASE_CONNECTED = "Connected",
             DATABASE_DISCONNECTED = "Disconnected",
             DATABASE_CONNECTION_FAILED = "Connection failed!",
+            DATABASE_OFFLINE_SNAPSHOT = "Offline (last session)",
+            ASSIGN_ROOMS_TITLE = "Room assignment",
+            OCCUPANCY_REPORT_TITLE = "Occupancy report",
+            EXPORT_TITLE = "Export bookings",
+            BOOK_INQUIRY_TITLE = "Book inquiries",
+            BOOK_INQUIRY_INCOMPLETE = "Drop an inquiry and select the rooms to book first.",
+            BOOK_INQUIRY_FAILED = "No inquiries were booked, the database transaction could not be started.",
+            BOOK_ALL = "Book all",
+            DROP_ZONE_EMPTY = "Drop Reservation here",
+            INQUIRY_FITS = "fits",
+            INQUIRY_DOES_NOT_FIT = "doesn't fit",
             BT_CONNECT_CONNECT = "Connect",
-            BT_CONNECT_DISCONNECT = "Disconnect";
+            BT_CONNECT_DISCONNECT = "Disconnect",
+            BACKEND_PROPERTY = "starview.backend",
+            EMBEDDED_BACKEND = "embedded",
+            HEADLESS_ARGUMENT = "--headless",
+            MIGRATE_ARGUMENT = "--migrate";
 
     private Stage primaryStage;
     private Database database;
+    private BookingRepository repository;
+    private AsyncDatabase asyncDatabase;
+    private DeltaSync deltaSync;
+    private HoldExpiryService holdExpiry;
+    private QueryScheduler queryScheduler = new QueryScheduler(Duration.millis(QUERY_QUIET_MILLIS), Duration.millis(QUERY_MAX_WAIT_MILLIS));
+    private Timeline autoRefresh;
+    private Timeline metricsRefresh;
+    private SnapshotFile snapshotFile = new SnapshotFile(Paths.get(System.getProperty("user.home"), ".starview", "snapshot.bin"));
+    private Snapshot warmStart;
 
     // FX Stuff
 
@@ -50,11 +107,14 @@ public class Main extends Application implements DatabaseListener, ControllerLis
     private BookingTableController bookingTableController;
     private ListView<Inquiry> inquiryTable;
     private Inquiry draggedInquiry;
+    private Inquiry droppedInquiry;
     private AvailabilityTableController availabilityTableController;
-    private ObservableList<Booking> bookingList = FXCollections.observableArrayList();
+    private BookingStoreList bookingList = new BookingStoreList(new BookingStore());
+    private PagedBookingList pagedBookingList;
     private ObservableList<RoomType> roomTypes = FXCollections.observableArrayList();
     private ObservableList<Room> availableRoomList = FXCollections.observableArrayList();
     private ObservableList<Inquiry> inquiryList = FXCollections.observableArrayList();
+    private HashMap<Integer, Boolean> inquiryFits = new HashMap<>();
 
     /**
      * Initializer
@@ -68,6 +128,92 @@ public class Main extends Application implements DatabaseListener, ControllerLis
 
         setUpGUI();
         setUpDatabase();
+        warmStart();
+    }
+
+    /**
+     * Show the snapshot of the last session read-only and connect in the background. Without
+     * snapshot, the application waits for the user to connect.
+     */
+    private void warmStart() {
+        Snapshot snapshot;
+        try {
+            snapshot = snapshotFile.load();
+        } catch (IOException e) {
+            System.out.println(e);
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+
+        warmStart = snapshot;
+        populateRoomTypeDropDown(snapshot.getRoomTypes());
+        if (snapshot.isBookingsComplete()) {
+            DatePicker pickerFrom = (DatePicker) primaryStage.getScene().lookup("#pickerDateFrom");
+            DatePicker pickerTo = (DatePicker) primaryStage.getScene().lookup("#pickerDateTo");
+            pickerFrom.setValue(snapshot.getBookingsFrom());
+            pickerTo.setValue(snapshot.getBookingsTo());
+        }
+        bookingList.setStore(snapshot.getBookings());
+        bookingTableController.setDataSource(bookingList);
+        bookingTableController.setEnabled(true);
+        inquiryList.setAll(snapshot.getInquiries());
+        setUpInquiryCells();
+        inquiryTable.setItems(inquiryList);
+        availableRoomList.setAll(snapshot.getRooms());
+        availabilityTableController.setDataSource(availableRoomList);
+
+        Label lbDatabaseState = (Label) primaryStage.getScene().lookup("#lbDatabaseState");
+        lbDatabaseState.setText(DATABASE_OFFLINE_SNAPSHOT);
+
+        Thread connector = new Thread(repository::connect, "database-connect");
+        connector.setDaemon(true);
+        connector.start();
+    }
+
+    /**
+     * Bring the data of the snapshot up to date after connecting. A complete bookings timeframe
+     * and the inquiries are synchronized by delta, a partially loaded booking list is reloaded.
+     * @param snapshot Snapshot shown since the start
+     */
+    private void syncSnapshot(Snapshot snapshot) {
+        LocalDate savedOn = Instant.ofEpochMilli(snapshot.getSavedAt()).atZone(ZoneId.systemDefault()).toLocalDate();
+        if (snapshot.isBookingsComplete() && snapshot.getBookingsFrom() != null && snapshot.getBookingsTo() != null) {
+            deltaSync.bookingsLoaded(snapshot.getBookingsFrom(), snapshot.getBookingsTo(), snapshot.getSavedAt());
+            deltaSync.syncBookings(bookingList);
+        } else {
+            loadBookings(snapshot.getBookingsFrom(), snapshot.getBookingsTo());
+        }
+        deltaSync.inquiriesLoaded(new ArrayList<>(inquiryList), savedOn);
+        deltaSync.syncInquiries(inquiryList);
+    }
+
+    /**
+     * Save the data currently shown as snapshot for the next start
+     */
+    private void saveSnapshot() {
+        if (!repository.isConnected() || roomTypes.isEmpty()) {
+            return;
+        }
+        DatePicker pickerFrom = (DatePicker) primaryStage.getScene().lookup("#pickerDateFrom");
+        DatePicker pickerTo = (DatePicker) primaryStage.getScene().lookup("#pickerDateTo");
+        boolean paged = pagedBookingList != null;
+
+        ArrayList<RoomType> savedRoomTypes = new ArrayList<>();
+        for (RoomType roomType : roomTypes) {
+            if (roomType.id.getValue() != 0) {
+                savedRoomTypes.add(roomType);
+            }
+        }
+
+        try {
+            snapshotFile.save(new Snapshot(System.currentTimeMillis(), pickerFrom.getValue(), pickerTo.getValue(), !paged,
+                    savedRoomTypes, repository.getLoadedRooms(), paged ? pagedBookingList.getLoadedRows() : bookingList.getStore(),
+                    new ArrayList<>(inquiryList)));
+        } catch (IOException e) {
+            System.out.println(e);
+        }
     }
 
     /**
@@ -96,12 +242,107 @@ public class Main extends Application implements DatabaseListener, ControllerLis
     }
 
     /**
-     * Set up Database
+     * Set up Database. With -Dstarview.backend=embedded, the database is imported into an
+     * EmbeddedBookingRepository on connect and all lists are answered from memory; exports and
+     * occupancy reports need the database and are not available then.
      * @throws Exception
      */
     private void setUpDatabase() throws Exception {
         database = new Database();
-        database.addDatabaseObserver(this);
+        repository = createRepository(database);
+        repository.addDatabaseObserver(this);
+        asyncDatabase = new AsyncDatabase(repository, database);
+        deltaSync = new DeltaSync(asyncDatabase, repository);
+        holdExpiry = new HoldExpiryService(database);
+        holdExpiry.addListener(this);
+
+        autoRefresh = new Timeline(new KeyFrame(Duration.seconds(AUTO_REFRESH_SECONDS), (ActionEvent event) -> {
+            deltaSync.syncBookings(bookingList);
+            deltaSync.syncInquiries(inquiryList);
+            scheduleInquiryEvaluation();
+        }));
+        autoRefresh.setCycleCount(Animation.INDEFINITE);
+
+        inquiryList.addListener((ListChangeListener<Inquiry>) change -> scheduleInquiryEvaluation());
+
+        metricsRefresh = new Timeline(new KeyFrame(Duration.seconds(METRICS_REFRESH_SECONDS), (ActionEvent event) -> updateStatementMetrics()));
+        metricsRefresh.setCycleCount(Animation.INDEFINITE);
+        metricsRefresh.play();
+    }
+
+    /**
+     * Schedule a check of all open inquiries against the current availability. An inquiry fits
+     * if the rooms available for its stay, including the rooms it already holds, can host all
+     * of its guests.
+     */
+    private void scheduleInquiryEvaluation() {
+        queryScheduler.schedule("inquiry-availability", () -> {
+            if (!repository.isConnected() || roomTypes.isEmpty()) {
+                return;
+            }
+            ArrayList<Inquiry> openInquiries = new ArrayList<>();
+            ArrayList<AvailabilityRequest> requests = new ArrayList<>();
+            for (Inquiry inquiry : inquiryList) {
+                if (inquiry.cancelled_at.getValue().isEmpty()) {
+                    openInquiries.add(inquiry);
+                    requests.add(new AvailabilityRequest(LocalDate.parse(inquiry.from.getValue()), LocalDate.parse(inquiry.to.getValue()),
+                            0, AvailabilityIndex.key(AvailabilityIndex.INQUIRY, inquiry.id.getValue())));
+                }
+            }
+
+            HashMap<Integer, Integer> capacities = new HashMap<>();
+            for (RoomType roomType : roomTypes) {
+                capacities.put(roomType.id.getValue(), roomType.maximum_number_of_guests.getValue());
+            }
+
+            asyncDatabase.getAvailableRooms(requests, (ArrayList<ArrayList<Room>> results) -> {
+                if (results == null) {
+                    return;
+                }
+                inquiryFits.clear();
+                for (int i = 0; i < results.size(); i++) {
+                    int capacity = 0;
+                    for (Room room : results.get(i)) {
+                        capacity += capacities.getOrDefault(room.room_type.getValue(), 0);
+                    }
+                    Inquiry inquiry = openInquiries.get(i);
+                    inquiryFits.put(inquiry.id.getValue(), capacity >= inquiry.number_of_guests.getValue());
+                }
+                inquiryTable.refresh();
+            });
+        });
+    }
+
+    /**
+     * Show the statement that took the most time so far next to the database state. The
+     * tooltip lists the metrics of all statements, hottest first.
+     */
+    private void updateStatementMetrics() {
+        Label lbStatementMetrics = (Label) primaryStage.getScene().lookup("#lbStatementMetrics");
+        ArrayList<StatementStats> statements = database.getStatementMetrics().getAll();
+        if (statements.isEmpty()) {
+            lbStatementMetrics.setText("");
+            lbStatementMetrics.setTooltip(null);
+            return;
+        }
+
+        StatementStats hottest = statements.get(0);
+        lbStatementMetrics.setText(String.format("Hottest: %s, %d runs, p99 exec %.1f / fetch %.1f / map %.1f ms",
+                hottest.getKey(), hottest.getExecutions(), hottest.getExecutionP99Millis(),
+                hottest.getFetchP99Millis(), hottest.getMappingP99Millis()));
+
+        StringBuilder details = new StringBuilder("Statement: runs, rows, errors, p50 / p99 / p99.9 exec | fetch | map (ms)");
+        for (StatementStats stats : statements) {
+            details.append(String.format("%n%s: %d, %d, %d, %.1f / %.1f / %.1f | %.1f / %.1f / %.1f | %.1f / %.1f / %.1f",
+                    stats.getKey(), stats.getExecutions(), stats.getRows(), stats.getErrors(),
+                    stats.getExecutionP50Millis(), stats.getExecutionP99Millis(), stats.getExecutionP999Millis(),
+                    stats.getFetchP50Millis(), stats.getFetchP99Millis(), stats.getFetchP999Millis(),
+                    stats.getMappingP50Millis(), stats.getMappingP99Millis(), stats.getMappingP999Millis()));
+        }
+        if (lbStatementMetrics.getTooltip() == null) {
+            lbStatementMetrics.setTooltip(new Tooltip());
+        }
+        lbStatementMetrics.getTooltip().setText(details.toString());
     }
 
     /**
@@ -125,14 +366,17 @@ public class Main extends Application implements DatabaseListener, ControllerLis
 
     /**
      * Populate room type dropdown with RoomTypes
+     * @param loadedRoomTypes Room types loaded from the database
      */
-    private void populateRoomTypeDropDown() {
+    private void populateRoomTypeDropDown(ArrayList<RoomType> loadedRoomTypes) {
         ComboBox<RoomType> roomTypeDropDown = (ComboBox<RoomType>) primaryStage.getScene().lookup("#ddRoomType");
 
-        roomTypes.add(new RoomType(
+        roomTypes.setAll(new RoomType(
                 0, "Any", "", 0
         ));
-        roomTypes.addAll(database.getRoomTypes());
+        if (loadedRoomTypes != null) {
+            roomTypes.addAll(loadedRoomTypes);
+        }
         roomTypeDropDown.setItems(roomTypes);
         roomTypeDropDown.setCellFactory((ListView<RoomType> listView) ->
             new ListCell<RoomType>() {
@@ -172,15 +416,38 @@ public class Main extends Application implements DatabaseListener, ControllerLis
 
                 Label dropZone = (Label) primaryStage.getScene().lookup("#lbDropZone");
                 dropZone.setText(draggedInquiry.group_name.getValue());
+                droppedInquiry = draggedInquiry;
             }
         });
     }
 
     /**
-     * Main entry point
+     * Returns the repository selected by -Dstarview.backend: the database itself, or an
+     * EmbeddedBookingRepository importing it on connect
+     * @param database Database to use
+     * @return BookingRepository Repository to answer the lists from
+     */
+    static BookingRepository createRepository(Database database) {
+        return EMBEDDED_BACKEND.equals(System.getProperty(BACKEND_PROPERTY)) ? new EmbeddedBookingRepository(database) : database;
+    }
+
+    /**
+     * Main entry point. With --headless [--port 8080] [--bind 127.0.0.1], the lists are served as
+     * JSON over HTTP instead of showing the window, see HeadlessServer.
      * @param args
      */
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(MIGRATE_ARGUMENT)) {
+            int applied = new Database().migrateSchema();
+            if (applied >= 0) {
+                System.out.println("Applied " + applied + " schema migration(s)");
+            }
+            System.exit(applied >= 0 ? 0 : 1);
+        }
+        if (Arrays.asList(args).contains(HEADLESS_ARGUMENT)) {
+            HeadlessServer.run(args);
+            return;
+        }
         launch(args);
     }
 
@@ -189,7 +456,11 @@ public class Main extends Application implements DatabaseListener, ControllerLis
      */
     @Override
     public void stop() {
-        database.disconnect();
+        metricsRefresh.stop();
+        holdExpiry.stop();
+        saveSnapshot();
+        asyncDatabase.shutdown();
+        repository.disconnect();
     }
 
 
@@ -203,6 +474,10 @@ public class Main extends Application implements DatabaseListener, ControllerLis
      */
     @Override
     public void databaseStateChanged(DatabaseState state) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> databaseStateChanged(state));
+            return;
+        }
         Label lbDatabaseState = (Label) primaryStage.getScene().lookup("#lbDatabaseState");
         Button btConnect= (Button) primaryStage.getScene().lookup("#btConnect");
 
@@ -219,52 +494,71 @@ public class Main extends Application implements DatabaseListener, ControllerLis
                 break;
             case CONNECTED:
                 lbDatabaseState.setText(DATABASE_CONNECTED);
-                bookingList.setAll(database.getBookingsList());
-                inquiryList.setAll(database.getInquiries());
-                System.out.format("HAVE %d", inquiryList.size());
+                if (warmStart != null) {
+                    syncSnapshot(warmStart);
+                    warmStart = null;
+                } else {
+                    loadBookings(null, null);
+                    LocalDate inquiriesLoadedOn = LocalDate.now();
+                    asyncDatabase.getInquiries((ArrayList<Inquiry> inquiries) -> {
+                        inquiryList.setAll(inquiries);
+                        deltaSync.inquiriesLoaded(inquiries, inquiriesLoadedOn);
+                    });
+                }
                 inquiryTable.setItems(inquiryList);
-                bookingTableController.setDataSource(bookingList);
+                autoRefresh.play();
+                if (database.isConnected()) {
+                    holdExpiry.start();
+                }
                 availabilityTableController.setDataSource(availableRoomList);
                 setInterfaceEnabled(true);
                 btConnect.setDisable(false);
                 btConnect.setText(BT_CONNECT_DISCONNECT);
-                populateRoomTypeDropDown();
-                inquiryTable.setCellFactory((ListView<Inquiry> listView) -> {
-
-                    ListCell<Inquiry> cell = new ListCell<Inquiry>() {
-                        @Override
-                        public void updateItem(Inquiry item, boolean empty) {
-                            super.updateItem(item, empty);
-                            if (!empty) {
-                                setText(item.group_name.getValue());
-                            }
-                        }
-                    };
-
-                    cell.setOnDragDetected(event -> {
-                        if (!cell.isEmpty()) {
-                            Dragboard db = cell.startDragAndDrop(TransferMode.ANY);
-                            ClipboardContent cc = new ClipboardContent();
-                            cc.putString("Hello");
-                            db.setContent(cc);
-                            draggedInquiry = cell.getItem();
-
-                        }
-                    });
-
-                    return cell;
+                asyncDatabase.getRoomTypes((ArrayList<RoomType> loadedRoomTypes) -> {
+                    if (loadedRoomTypes == null) {
+                        return;
+                    }
+                    populateRoomTypeDropDown(loadedRoomTypes);
+                    scheduleInquiryEvaluation();
                 });
+                setUpInquiryCells();
 
                 break;
             default:
+                warmStart = null;
                 lbDatabaseState.setText(DATABASE_DISCONNECTED);
                 setInterfaceEnabled(false);
                 btConnect.setDisable(false);
                 btConnect.setText(BT_CONNECT_CONNECT);
-                bookingList.clear();
+                autoRefresh.stop();
+                holdExpiry.stop();
+                queryScheduler.cancelAll();
+                inquiryFits.clear();
+                deltaSync.resetBookings();
+                deltaSync.resetInquiries();
+                showPagedBookings(null);
+                bookingList.setStore(new BookingStore());
+                bookingTableController.setDataSource(bookingList);
         }
     }
 
+    /* -----------------------
+    HoldExpiryListener methods
+    ------------------------ */
+    /**
+     * Handler for expired inquiry holds, refreshes the inquiries and the available rooms.
+     * @param inquiryIds Inquiries whose holds have been released
+     */
+    @Override
+    public void holdsExpired(List<Integer> inquiryIds) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> holdsExpired(inquiryIds));
+            return;
+        }
+        deltaSync.syncInquiries(inquiryList);
+        scheduleAvailabilityQuery();
+    }
+
     /* -----------------------
     ControllerListener methods
     ------------------------ */
@@ -275,7 +569,7 @@ public class Main extends Application implements DatabaseListener, ControllerLis
      */
     @Override
     public void bookingsTimeframeChanged(LocalDate from, LocalDate to) {
-        bookingList.setAll(database.getBookingsList(from, to));
+        loadBookings(from, to);
     }
 
     /**
@@ -283,31 +577,361 @@ public class Main extends Application implements DatabaseListener, ControllerLis
      */
     @Override
     public void toggleDatabaseConnection() {
-        if (database.isConnected()) {
-            database.disconnect();
+        if (repository.isConnected()) {
+            queryScheduler.cancelAll();
+            asyncDatabase.cancelAll();
+            repository.disconnect();
         } else {
-            database.connect();
+            asyncDatabase.connect(null);
         }
     }
 
     @Override
     public void timeframeChanged(LocalDate from, LocalDate to, String timeframeId) {
+        if (!repository.isConnected()) {
+            return;
+        }
         switch(timeframeId) {
             case "bookings":
-                bookingList.setAll(database.getBookingsList(from, to));
+                queryScheduler.schedule("bookings", () -> loadBookings(from, to));
                 break;
             case "availability":
-                System.out.println("CHANGEd");
-                ComboBox ddRoomType = (ComboBox) primaryStage.getScene().lookup("#ddRoomType");
-                availableRoomList.setAll(database.getAvailableRooms(from, to, (RoomType) ddRoomType.getValue()));
+                scheduleAvailabilityQuery();
                 break;
         }
     }
 
     @Override
     public void roomTypeChanged(RoomType roomType) {
-        DatePicker pickerFromAvail = (DatePicker) primaryStage.getScene().lookup("#pickerDateFromAvailability");
-        DatePicker pickerToAvail = (DatePicker) primaryStage.getScene().lookup("#pickerDateToAvailability");
-        availableRoomList.setAll(database.getAvailableRooms(pickerFromAvail.getValue(), pickerToAvail.getValue(), (RoomType) roomType));
+        if (!repository.isConnected()) {
+            return;
+        }
+        scheduleAvailabilityQuery();
+    }
+
+    @Override
+    public void bookingSearchChanged(String query) {
+        bookingList.setQuery(query);
+    }
+
+    @Override
+    public void hideCancelledChanged(boolean hideCancelled) {
+        bookingList.setFilter("hide-cancelled", hideCancelled ? (BookingStore store, int row) -> !store.isCancelled(row) : null);
+    }
+
+    /**
+     * Set up the inquiry list cells: group name, fits badge and drag source
+     */
+    private void setUpInquiryCells() {
+        inquiryTable.setCellFactory((ListView<Inquiry> listView) -> {
+
+            ListCell<Inquiry> cell = new ListCell<Inquiry>() {
+                private Label badge = new Label();
+
+                @Override
+                public void updateItem(Inquiry item, boolean empty) {
+                    super.updateItem(item, empty);
+                    if (!empty) {
+                        setText(item.group_name.getValue());
+                        Boolean fits = inquiryFits.get(item.id.getValue());
+                        if (fits != null) {
+                            badge.setText(fits ? INQUIRY_FITS : INQUIRY_DOES_NOT_FIT);
+                            badge.setTextFill(fits ? Color.GREEN : Color.FIREBRICK);
+                            setGraphic(badge);
+                        } else {
+                            setGraphic(null);
+                        }
+                    } else {
+                        setText(null);
+                        setGraphic(null);
+                    }
+                }
+            };
+
+            cell.setOnDragDetected(event -> {
+                if (!cell.isEmpty()) {
+                    Dragboard db = cell.startDragAndDrop(TransferMode.ANY);
+                    ClipboardContent cc = new ClipboardContent();
+                    cc.putString("Hello");
+                    db.setContent(cc);
+                    draggedInquiry = cell.getItem();
+
+                }
+            });
+
+            return cell;
+        });
+    }
+
+    /**
+     * Compute a room assignment for all open inquiries and show the proposal
+     */
+    @Override
+    public void assignRoomsRequested() {
+        if (!repository.isConnected()) {
+            return;
+        }
+        ArrayList<Inquiry> inquiries = new ArrayList<>(inquiryList);
+        asyncDatabase.assignRooms(inquiries, new ArrayList<>(roomTypes), (RoomAssignment assignment) -> {
+            if (assignment == null) {
+                return;
+            }
+            HashMap<Integer, String> groupNames = new HashMap<>();
+            for (Inquiry inquiry : inquiries) {
+                groupNames.put(inquiry.id.getValue(), inquiry.group_name.getValue());
+            }
+
+            StringBuilder details = new StringBuilder();
+            for (Map.Entry<Integer, ArrayList<Integer>> entry : assignment.getRoomsByInquiry().entrySet()) {
+                details.append(groupNames.get(entry.getKey())).append(": rooms ").append(entry.getValue()).append('\n');
+            }
+            for (int inquiryId : assignment.getUnassigned()) {
+                details.append(groupNames.get(inquiryId)).append(": no rooms available\n");
+            }
+
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle(ASSIGN_ROOMS_TITLE);
+            alert.setHeaderText(String.format("Assigned %d inquiries, %d could not be placed (%d ms)",
+                    assignment.getRoomsByInquiry().size(), assignment.getUnassigned().size(), assignment.getElapsedMillis()));
+            TextArea detailsArea = new TextArea(details.toString());
+            detailsArea.setEditable(false);
+            alert.getDialogPane().setExpandableContent(detailsArea);
+
+            // The proposal can be booked as a whole, the conversion rejects inquiries whose rooms have been taken since
+            ButtonType bookAll = new ButtonType(BOOK_ALL, ButtonBar.ButtonData.OK_DONE);
+            if (database.isConnected() && !assignment.getRoomsByInquiry().isEmpty()) {
+                alert.getButtonTypes().setAll(bookAll, ButtonType.CLOSE);
+            }
+            alert.setOnHidden((DialogEvent event) -> {
+                if (alert.getResult() == bookAll) {
+                    ArrayList<InquiryConversion> conversions = new ArrayList<>();
+                    for (Map.Entry<Integer, ArrayList<Integer>> entry : assignment.getRoomsByInquiry().entrySet()) {
+                        conversions.add(new InquiryConversion(entry.getKey(), entry.getValue()));
+                    }
+                    convertInquiries(conversions, groupNames);
+                }
+            });
+            alert.show();
+        });
+    }
+
+    /**
+     * Book the rooms selected in the availability table for the inquiry dropped on the drop zone
+     */
+    @Override
+    public void bookInquiryRequested() {
+        if (!database.isConnected()) {
+            return;
+        }
+        ArrayList<Integer> roomIds = availabilityTableController.getSelectedRoomIds();
+        if (droppedInquiry == null || roomIds.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, BOOK_INQUIRY_INCOMPLETE, ButtonType.OK);
+            alert.setTitle(BOOK_INQUIRY_TITLE);
+            alert.show();
+            return;
+        }
+        HashMap<Integer, String> groupNames = new HashMap<>();
+        groupNames.put(droppedInquiry.id.getValue(), droppedInquiry.group_name.getValue());
+        ArrayList<InquiryConversion> conversions = new ArrayList<>();
+        conversions.add(new InquiryConversion(droppedInquiry.id.getValue(), roomIds));
+        convertInquiries(conversions, groupNames);
+    }
+
+    /**
+     * Convert inquiries into bookings, show the outcome and bring bookings, inquiries and
+     * availability up to date
+     * @param conversions Inquiries and the rooms to book for them
+     * @param groupNames Group names of the inquiries by id
+     */
+    private void convertInquiries(ArrayList<InquiryConversion> conversions, HashMap<Integer, String> groupNames) {
+        asyncDatabase.convertInquiries(conversions, (ConversionResult result) -> {
+            if (result == null) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, BOOK_INQUIRY_FAILED, ButtonType.OK);
+                alert.setTitle(BOOK_INQUIRY_TITLE);
+                alert.show();
+                return;
+            }
+            if (droppedInquiry != null && result.getBookingsByInquiry().containsKey(droppedInquiry.id.getValue())) {
+                droppedInquiry = null;
+                ((Label) primaryStage.getScene().lookup("#lbDropZone")).setText(DROP_ZONE_EMPTY);
+            }
+            deltaSync.syncBookings(bookingList);
+            deltaSync.syncInquiries(inquiryList);
+            scheduleAvailabilityQuery();
+
+            StringBuilder details = new StringBuilder();
+            for (Map.Entry<Integer, Integer> entry : result.getBookingsByInquiry().entrySet()) {
+                details.append(groupNames.get(entry.getKey())).append(": booking ").append(entry.getValue()).append('\n');
+            }
+            for (Map.Entry<Integer, String> entry : result.getRejected().entrySet()) {
+                details.append(groupNames.get(entry.getKey())).append(": ").append(entry.getValue()).append('\n');
+            }
+
+            Alert alert = new Alert(result.getRejected().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+            alert.setTitle(BOOK_INQUIRY_TITLE);
+            alert.setHeaderText(String.format("Booked %d inquiries, %d rejected (%d ms)",
+                    result.getBookingsByInquiry().size(), result.getRejected().size(), result.getElapsedMillis()));
+            TextArea detailsArea = new TextArea(details.toString());
+            detailsArea.setEditable(false);
+            alert.getDialogPane().setExpandableContent(detailsArea);
+            alert.show();
+        });
+    }
+
+    /**
+     * Compute and show the occupancy metrics per room type. The period is the bookings
+     * timeframe if both dates are set, otherwise the last OCCUPANCY_REPORT_YEARS years.
+     */
+    @Override
+    public void occupancyReportRequested() {
+        if (!database.isConnected()) {
+            return;
+        }
+        DatePicker pickerFrom = (DatePicker) primaryStage.getScene().lookup("#pickerDateFrom");
+        DatePicker pickerTo = (DatePicker) primaryStage.getScene().lookup("#pickerDateTo");
+        LocalDate to = pickerFrom.getValue() != null && pickerTo.getValue() != null ? pickerTo.getValue() : LocalDate.now();
+        LocalDate from = pickerFrom.getValue() != null && pickerTo.getValue() != null ? pickerFrom.getValue() : to.minusYears(OCCUPANCY_REPORT_YEARS);
+
+        ArrayList<RoomType> reportedTypes = new ArrayList<>();
+        for (RoomType roomType : roomTypes) {
+            if (roomType.id.getValue() != 0) {
+                reportedTypes.add(roomType);
+            }
+        }
+
+        asyncDatabase.getOccupancyReports(from, to, reportedTypes, (ArrayList<OccupancyReport> reports) -> {
+            if (reports == null) {
+                return;
+            }
+            StringBuilder details = new StringBuilder();
+            for (int i = 0; i < reports.size(); i++) {
+                OccupancyReport report = reports.get(i);
+                String leadTime = Double.isNaN(report.getAverageLeadTime()) ? "unknown" : String.format("%.0f days", report.getAverageLeadTime());
+                details.append(String.format("%s (%d rooms): occupancy %.1f%%, %d stays, %.1f nights per stay, lead time %s, %.1f%% cancelled%n",
+                        reportedTypes.get(i).name.getValue(), report.getRoomCount(), report.getOccupancyRate() * 100,
+                        report.getStays(), report.getAverageLengthOfStay(), leadTime, report.getCancellationRate() * 100));
+            }
+
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle(OCCUPANCY_REPORT_TITLE);
+            alert.setHeaderText("Occupancy from " + from + " to " + to);
+            TextArea detailsArea = new TextArea(details.toString());
+            detailsArea.setEditable(false);
+            alert.getDialogPane().setContent(detailsArea);
+            alert.show();
+        });
+    }
+
+    @Override
+    public void exportBookingsRequested() {
+        if (!database.isConnected()) {
+            return;
+        }
+        DatePicker pickerFrom = (DatePicker) primaryStage.getScene().lookup("#pickerDateFrom");
+        DatePicker pickerTo = (DatePicker) primaryStage.getScene().lookup("#pickerDateTo");
+        LocalDate from = pickerFrom.getValue(), to = pickerTo.getValue();
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(EXPORT_TITLE);
+        FileChooser.ExtensionFilter csvFilter = new FileChooser.ExtensionFilter("CSV (*.csv)", "*." + ExportFormat.CSV.getExtension());
+        FileChooser.ExtensionFilter columnarFilter = new FileChooser.ExtensionFilter("Columnar (*.svbc)", "*." + ExportFormat.COLUMNAR.getExtension());
+        chooser.getExtensionFilters().addAll(csvFilter, columnarFilter);
+        chooser.setInitialFileName("bookings." + ExportFormat.CSV.getExtension());
+        File file = chooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        ExportFormat format = chooser.getSelectedExtensionFilter() == columnarFilter ? ExportFormat.COLUMNAR : ExportFormat.CSV;
+
+        Alert progress = new Alert(Alert.AlertType.NONE, "Starting...", ButtonType.CANCEL);
+        progress.setTitle(EXPORT_TITLE);
+        progress.setHeaderText("Exporting bookings " + (from != null ? "from " + from + " " : "") + (to != null ? "to " + to + " " : "") + "to " + file.getName());
+        progress.resultProperty().addListener((observable, oldResult, result) -> {
+            if (result == ButtonType.CANCEL) {
+                asyncDatabase.cancel("export");
+            }
+        });
+        progress.show();
+
+        asyncDatabase.exportBookings(from, to, format, file.toPath(),
+                (long rows, long bytes) -> Platform.runLater(() -> progress.setContentText(
+                        String.format("%,d bookings, %.1f MB written", rows, bytes / (1024.0 * 1024.0)))),
+                (Long rows) -> {
+                    progress.setResult(ButtonType.OK);
+                    Alert alert = new Alert(rows >= 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+                    alert.setTitle(EXPORT_TITLE);
+                    alert.setHeaderText(rows >= 0 ? String.format("Exported %,d bookings to %s", rows, file.getName()) : "Export failed");
+                    alert.show();
+                });
+    }
+
+    /**
+     * Schedule a query for the available rooms. The timeframe and room type are read when the
+     * query runs, so a burst of changes to the pickers and the dropdown results in one query
+     * for the final selection.
+     */
+    private void scheduleAvailabilityQuery() {
+        queryScheduler.schedule("availability", () -> {
+            DatePicker pickerFromAvail = (DatePicker) primaryStage.getScene().lookup("#pickerDateFromAvailability");
+            DatePicker pickerToAvail = (DatePicker) primaryStage.getScene().lookup("#pickerDateToAvailability");
+            ComboBox ddRoomType = (ComboBox) primaryStage.getScene().lookup("#ddRoomType");
+            asyncDatabase.getAvailableRooms(pickerFromAvail.getValue(), pickerToAvail.getValue(), (RoomType) ddRoomType.getValue(), availableRoomList::setAll);
+        });
+    }
+
+    /**
+     * Load the bookings of a timeframe into the bookings table. Without any bounds, the
+     * bookings are streamed page by page while the table scrolls instead of loading the
+     * whole history at once. Fully loaded timeframes are kept up to date by the delta sync.
+     * @param from From date for new timeframe, may be null
+     * @param to To date for new timeframe, may be null
+     */
+    private void loadBookings(LocalDate from, LocalDate to) {
+        deltaSync.resetBookings();
+        if (from == null && to == null) {
+            asyncDatabase.countBookings(null, null, (Integer count) -> {
+                if (count >= 0) {
+                    showPagedBookings(new PagedBookingList(asyncDatabase, null, null, count));
+                }
+            });
+        } else {
+            long loadedAt = System.currentTimeMillis();
+            asyncDatabase.getBookingStore(from, to, (BookingStore bookings) -> {
+                showBookings(bookings);
+                if (bookings != null) {
+                    deltaSync.bookingsLoaded(from, to, loadedAt);
+                }
+            });
+        }
+    }
+
+    /**
+     * Show loaded bookings in the bookings table
+     * @param bookings Loaded bookings, null if the query failed
+     */
+    private void showBookings(BookingStore bookings) {
+        if (bookings != null) {
+            showPagedBookings(null);
+            bookingList.setStore(bookings);
+            bookingTableController.setDataSource(bookingList);
+        }
+    }
+
+    /**
+     * Show a paged booking list in the bookings table, replacing the current one
+     * @param list Paged list to show, null to stop paging
+     */
+    private void showPagedBookings(PagedBookingList list) {
+        if (pagedBookingList != null) {
+            pagedBookingList.dispose();
+        }
+        pagedBookingList = list;
+        // Paged bookings are not held in memory and therefore cannot be searched or filtered
+        primaryStage.getScene().lookup("#tfBookingSearch").setDisable(list != null);
+        primaryStage.getScene().lookup("#cbHideCancelled").setDisable(list != null);
+        if (list != null) {
+            bookingList.setStore(new BookingStore());
+            bookingTableController.setDataSource(list, false);
+        }
     }
 }
@@ -0,0 +1,177 @@
+package application;
+
+import application.models.Booking;
+import application.models.BookingStore;
+import javafx.collections.ObservableListBase;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Observable list of bookings that loads its rows page by page on demand. The TableView only
+ * asks for the rows it displays, so only the pages around the visible rows are loaded and
+ * kept as BookingStores. Least recently used pages are dropped, which keeps the memory
+ * footprint constant no matter how many bookings there are.
+ *
+ * Pages are loaded one at a time, the most recently requested first. Only the last
+ * MAX_PENDING_PAGES requests are kept, so scrolling past pages never queues up their loads.
+ * Bookings without checkin date are listed first.
+ *
+ * Rows that have not been loaded yet are represented by a placeholder booking.
+ */
+class PagedBookingList extends ObservableListBase<Booking> {
+
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 10;
+    private static final int MAX_PENDING_PAGES = 2;
+    private static final Booking PLACEHOLDER = new Booking(0, null, null, false, "Loading...", "");
+
+    private AsyncDatabase asyncDatabase;
+    private LocalDate from, to;
+    private int size;
+    private boolean disposed = false;
+
+    private LinkedHashMap<Integer, BookingStore> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private HashMap<Integer, BookingCursor> pageCursors = new HashMap<>();
+    private ArrayDeque<Integer> pendingPages = new ArrayDeque<>();
+    private int loadingPage = -1;
+
+    /**
+     * Constructor
+     * @param asyncDatabase Database to load the pages from
+     * @param from          Checkin date has to be equal or greater, may be null
+     * @param to            Checkout date has to be equal or less, may be null
+     * @param size          Number of bookings, see Database.countBookings()
+     */
+    PagedBookingList(AsyncDatabase asyncDatabase, LocalDate from, LocalDate to, int size) {
+        this.asyncDatabase = asyncDatabase;
+        this.from = from;
+        this.to = to;
+        this.size = size;
+    }
+
+    @Override
+    public Booking get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        int page = index / PAGE_SIZE;
+        BookingStore rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return PLACEHOLDER;
+        }
+        int offset = index % PAGE_SIZE;
+        return offset < rows.size() ? rows.get(offset) : PLACEHOLDER;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the rows of the leading pages that are loaded, i.e. the top of the list up to
+     * the first page that is not loaded.
+     *
+     * @return BookingStore Loaded rows
+     */
+    BookingStore getLoadedRows() {
+        BookingStore rows = new BookingStore();
+        for (int page = 0; pages.containsKey(page); page++) {
+            BookingStore pageRows = pages.get(page);
+            for (int row = 0; row < pageRows.size(); row++) {
+                rows.addRow(pageRows, row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Stops loading pages, e.g. when the list is replaced in the table.
+     */
+    void dispose() {
+        disposed = true;
+        pages.clear();
+    }
+
+    /**
+     * Requests a page from the database unless it is already being loaded or requested.
+     * The oldest request is dropped if too many are pending.
+     *
+     * @param page Number of the page
+     */
+    private void requestPage(int page) {
+        if (disposed || page == loadingPage || pendingPages.contains(page)) {
+            return;
+        }
+        pendingPages.addLast(page);
+        if (pendingPages.size() > MAX_PENDING_PAGES) {
+            pendingPages.removeFirst();
+        }
+        if (loadingPage < 0) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Loads the most recently requested page, starting from the nearest page whose cursor is known.
+     */
+    private void loadNextPage() {
+        Integer page = pendingPages.pollLast();
+        if (disposed || page == null) {
+            return;
+        }
+        int known = page;
+        while (known > 0 && !pageCursors.containsKey(known)) {
+            known--;
+        }
+        loadingPage = page;
+        asyncDatabase.getBookingsPage(from, to, pageCursors.get(known), (page - known) * PAGE_SIZE, PAGE_SIZE,
+                (BookingStore rows) -> pageLoaded(page, rows));
+    }
+
+    /**
+     * Stores a loaded page, notifies the table about the replaced placeholders and loads the next
+     * requested page.
+     *
+     * @param page Number of the page
+     * @param rows Loaded bookings, null on errors
+     */
+    private void pageLoaded(int page, BookingStore rows) {
+        loadingPage = -1;
+        if (disposed) {
+            return;
+        }
+        if (rows == null) {
+            loadNextPage();
+            return;
+        }
+
+        pages.put(page, rows);
+        if (rows.size() > 0) {
+            int last = rows.size() - 1;
+            pageCursors.put(page + 1, BookingCursor.at(rows, last));
+        }
+
+        Iterator<Integer> lru = pages.keySet().iterator();
+        while (pages.size() > MAX_PAGES && lru.hasNext()) {
+            lru.next();
+            lru.remove();
+        }
+
+        int start = page * PAGE_SIZE;
+        int end = Math.min(start + rows.size(), size);
+        if (start < end) {
+            beginChange();
+            nextReplace(start, end, new ArrayList<>(Collections.nCopies(end - start, PLACEHOLDER)));
+            endChange();
+        }
+        loadNextPage();
+    }
+}
@@ -0,0 +1,119 @@
+package application;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+
+/**
+ * Connection of the ConnectionPool. Every pooled connection keeps its own cache of
+ * prepared statements, so statements are never shared between threads.
+ */
+class PooledConnection {
+
+    private static final String VALIDATION_QUERY = "SELECT 1";
+
+    private Connection connection;
+    private HashMap<String, String> statementSql;
+    private HashMap<String, PreparedStatement> preparedStatements;
+    private long lastUsed;
+    private boolean broken = false;
+
+    /**
+     * Constructor
+     * @param connection   JDBC connection to wrap
+     * @param statementSql SQL of all statements by key
+     */
+    PooledConnection(Connection connection, HashMap<String, String> statementSql) {
+        this.connection = connection;
+        this.statementSql = statementSql;
+        this.preparedStatements = new HashMap<>();
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the prepared statement for a key. Statements are prepared on first use and cached
+     * for the lifetime of the connection.
+     *
+     * @param key Key of the statement
+     * @return PreparedStatement Prepared statement
+     * @throws SQLException If the statement cannot be prepared
+     */
+    PreparedStatement getStatement(String key) throws SQLException {
+        PreparedStatement prep = preparedStatements.get(key);
+        if (prep == null) {
+            String sql = statementSql.get(key);
+            if (sql == null) {
+                throw new SQLException(String.format("Unknown statement '%s'", key));
+            }
+            prep = connection.prepareStatement(sql);
+            preparedStatements.put(key, prep);
+        }
+        return prep;
+    }
+
+    /**
+     * Returns the wrapped JDBC connection
+     *
+     * @return Connection JDBC connection
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Checks whether the connection is still usable by running a trivial query.
+     *
+     * @return True if the connection is valid
+     */
+    boolean validate() {
+        if (broken) {
+            return false;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(VALIDATION_QUERY)) {
+            return resultSet.next();
+        } catch (SQLException e) {
+            broken = true;
+            return false;
+        }
+    }
+
+    /**
+     * Marks the connection as broken. Broken connections are discarded by the pool.
+     */
+    void invalidate() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Closes all cached statements and the connection itself.
+     */
+    void close() {
+        for (PreparedStatement prep : preparedStatements.values()) {
+            try {
+                prep.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        preparedStatements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package application;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executor;
+
+/**
+ * Handle for a single asynchronous query. The Database attaches the statement it is
+ * about to execute so that the query can be cancelled from another thread
+ * through Statement.cancel().
+ *
+ * Attaching, detaching and cancelling are serialized on the handle: a statement is only
+ * cancelled while it is attached, and detaching waits for a cancel in progress, so that a
+ * late cancel never kills a query that already runs on the next borrower of the connection.
+ * Statement.cancel() opens a connection of its own and may block, so it runs on the given
+ * executor and never on the thread that cancels the query.
+ */
+class QueryHandle {
+
+    private Statement statement;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Attach the statement that is about to be executed.
+     *
+     * @param statement Statement to attach
+     * @throws SQLException If the handle has already been cancelled
+     */
+    synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query has been cancelled");
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Detach the statement once the query has finished, before its connection is released.
+     */
+    synchronized void detach() {
+        this.statement = null;
+    }
+
+    /**
+     * Cancel the query. The handle is marked as cancelled right away, a statement that is
+     * currently executing is cancelled on the server by the canceller.
+     *
+     * @param canceller Executor to cancel the statement on
+     */
+    void cancel(Executor canceller) {
+        cancelled = true;
+        canceller.execute(this::cancelStatement);
+    }
+
+    /**
+     * Cancel the attached statement, if any, on the server.
+     */
+    private synchronized void cancelStatement() {
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+    }
+
+    /**
+     * Returns True if this query has been cancelled
+     *
+     * @return True if cancelled
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,89 @@
+package application;
+
+import javafx.animation.PauseTransition;
+import javafx.util.Duration;
+
+import java.util.HashMap;
+
+/**
+ * Debounces and coalesces the query intents of the user interface. Every change of a date
+ * picker or the room type dropdown schedules a query for its target ("bookings" or
+ * "availability"), replacing the intent still pending for that target. The query only runs
+ * once the target has been quiet for a short period, so a burst of changes, e.g. both
+ * pickers being set by an inquiry drop, results in a single query.
+ *
+ * To keep the interface responsive during long bursts, a pending query runs at the latest
+ * after the maximum wait, counted from the first intent of the burst.
+ *
+ * Must be used from the JavaFX application thread.
+ */
+class QueryScheduler {
+
+    private Duration quietPeriod, maxWait;
+    private HashMap<String, Pending> pending = new HashMap<>();
+
+    private static class Pending {
+        PauseTransition timer;
+        Runnable query;
+        long burstStart;
+    }
+
+    /**
+     * Constructor
+     * @param quietPeriod Time a target has to be quiet before its query runs
+     * @param maxWait     Maximum time an intent waits during a burst
+     */
+    QueryScheduler(Duration quietPeriod, Duration maxWait) {
+        this.quietPeriod = quietPeriod;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Schedules a query for a target, superseding the query still pending for the same target.
+     *
+     * @param target Target of the query
+     * @param query  Query to run
+     */
+    void schedule(String target, Runnable query) {
+        Pending entry = pending.get(target);
+        long now = System.currentTimeMillis();
+        if (entry == null) {
+            Pending created = new Pending();
+            created.timer = new PauseTransition();
+            created.timer.setOnFinished(event -> run(created));
+            pending.put(target, created);
+            entry = created;
+        }
+        if (entry.query == null) {
+            entry.burstStart = now;
+        }
+        entry.query = query;
+
+        double remaining = maxWait.toMillis() - (now - entry.burstStart);
+        if (remaining <= 0) {
+            entry.timer.stop();
+            run(entry);
+            return;
+        }
+        entry.timer.setDuration(Duration.millis(Math.min(quietPeriod.toMillis(), remaining)));
+        entry.timer.playFromStart();
+    }
+
+    /**
+     * Drops all pending queries, e.g. before disconnecting.
+     */
+    void cancelAll() {
+        for (Pending entry : pending.values()) {
+            entry.timer.stop();
+            entry.query = null;
+        }
+    }
+
+    private void run(Pending entry) {
+        Runnable query = entry.query;
+        entry.query = null;
+        if (query != null) {
+            query.run();
+        }
+    }
+}
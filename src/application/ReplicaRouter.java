@@ -0,0 +1,200 @@
+package application;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only queries round-robin to the connection pools of the read replicas. The
+ * replication lag of every replica is checked periodically with SHOW SLAVE STATUS. Replicas
+ * that lag behind by more than the allowed number of seconds, have stopped replicating or
+ * cannot be reached are skipped until a later check finds them healthy again. If no replica
+ * is healthy, reads fall back to the primary.
+ */
+class ReplicaRouter {
+
+    private ConnectionPool primary;
+    private ArrayList<Replica> replicas = new ArrayList<>();
+    private long maxLagSeconds;
+    private AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService lagMonitor;
+
+    /**
+     * Constructor
+     * @param primary       Pool of the primary
+     * @param maxLagSeconds Replicas lagging further behind the primary are skipped
+     */
+    ReplicaRouter(ConnectionPool primary, long maxLagSeconds) {
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * Adds a replica. The replica is only used once a lag check has found it healthy.
+     *
+     * @param name Name of the replica, used in log messages
+     * @param pool Pool of the replica
+     */
+    void addReplica(String name, ConnectionPool pool) {
+        replicas.add(new Replica(name, pool));
+    }
+
+    /**
+     * Checks the lag of all replicas now and then periodically in the background.
+     *
+     * @param intervalSeconds Interval between two checks
+     */
+    void start(long intervalSeconds) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        checkLag();
+        lagMonitor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagMonitor.scheduleWithFixedDelay(this::checkLag, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the lag above which replicas are skipped
+     *
+     * @return long Maximum lag in seconds
+     */
+    long getMaxLagSeconds() {
+        return maxLagSeconds;
+    }
+
+    /**
+     * Returns the pool to run a read-only query on: the next healthy replica, the primary if
+     * there is none.
+     *
+     * @return ConnectionPool Pool to borrow the connection from
+     */
+    ConnectionPool route() {
+        int count = replicas.size();
+        if (count > 0) {
+            int start = Math.floorMod(next.getAndIncrement(), count);
+            for (int i = 0; i < count; i++) {
+                Replica replica = replicas.get((start + i) % count);
+                if (replica.healthy) {
+                    return replica.pool;
+                }
+            }
+        }
+        return primary;
+    }
+
+    ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Skips a replica until the next lag check, e.g. after it has dropped a connection.
+     *
+     * @param pool Pool of the replica
+     */
+    void markUnavailable(ConnectionPool pool) {
+        for (Replica replica : replicas) {
+            if (replica.pool == pool && replica.healthy) {
+                replica.healthy = false;
+                System.out.println(replica.name + " is unavailable, reading from the primary");
+            }
+        }
+    }
+
+    /**
+     * Stops the lag checks and closes the pools of all replicas. The primary is left open.
+     */
+    void close() {
+        if (lagMonitor != null) {
+            lagMonitor.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.healthy = false;
+            replica.pool.close();
+        }
+    }
+
+    /**
+     * Checks the replication lag of all replicas and marks them healthy or skipped.
+     */
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            String reason = null;
+            try {
+                Long lag = queryLag(replica.pool);
+                healthy = lag != null && lag <= maxLagSeconds;
+                if (!healthy) {
+                    reason = lag == null ? "is not replicating" : "lags " + lag + "s behind";
+                }
+            } catch (SQLException e) {
+                healthy = false;
+                reason = "cannot be reached (" + e.getMessage() + ")";
+            }
+            if (healthy != replica.healthy) {
+                System.out.println(healthy ? replica.name + " is healthy, routing reads to it" : replica.name + " " + reason + ", skipping it");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Queries the replication lag of a replica.
+     *
+     * @param pool Pool of the replica
+     * @return Long Seconds behind the primary, null if the server is not replicating
+     * @throws SQLException If the replica cannot be reached
+     */
+    private static Long queryLag(ConnectionPool pool) throws SQLException {
+        PooledConnection connection = pool.borrow();
+        try (Statement statement = connection.getConnection().createStatement()) {
+            ResultSet resultSet;
+            String column;
+            try {
+                resultSet = statement.executeQuery("SHOW SLAVE STATUS");
+                column = "Seconds_Behind_Master";
+            } catch (SQLException e) {
+                // Servers from MySQL 8.4 on only know the new syntax
+                resultSet = statement.executeQuery("SHOW REPLICA STATUS");
+                column = "Seconds_Behind_Source";
+            }
+            try {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long lag = resultSet.getLong(column);
+                return resultSet.wasNull() ? null : lag;
+            } finally {
+                resultSet.close();
+            }
+        } catch (SQLException e) {
+            connection.invalidate();
+            throw e;
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Replica and its health
+     */
+    private static class Replica {
+
+        private String name;
+        private ConnectionPool pool;
+        private volatile boolean healthy = false;
+
+        Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package application.analytics;
+
+import application.models.Booking;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Single-pass occupancy aggregation of the stays of one room type over a period [fromDay, toDay).
+ *
+ * Stays are consumed as a stream. Every stay only adds +1 at its first and -1 after its last
+ * night within the period to a change array; a sweep over the array yields the occupied rooms
+ * per night. Memory therefore depends on the number of days in the period, not on the number
+ * of bookings.
+ */
+public class OccupancyAnalytics {
+
+    private int fromDay, toDay;
+    private int[] changes;
+    private long stays, nights, cancelled, leadTimeDays, leadTimeCount;
+
+    /**
+     * Constructor
+     * @param fromDay First night of the period as epoch day
+     * @param toDay   First epoch day after the period
+     */
+    public OccupancyAnalytics(int fromDay, int toDay) {
+        this.fromDay = fromDay;
+        this.toDay = Math.max(toDay, fromDay);
+        this.changes = new int[this.toDay - fromDay + 1];
+    }
+
+    /**
+     * Adds a stay in one room.
+     *
+     * @param checkinDay  Checkin as epoch day
+     * @param checkoutDay Checkout as epoch day
+     * @param isCancelled True if the stay has been cancelled
+     * @param bookedDay   Epoch day the stay was booked, Booking.NO_DATE if unknown
+     */
+    public void add(int checkinDay, int checkoutDay, boolean isCancelled, int bookedDay) {
+        if (isCancelled) {
+            cancelled++;
+            return;
+        }
+        stays++;
+        nights += Math.max(checkoutDay - checkinDay, 1);
+        if (bookedDay != Booking.NO_DATE) {
+            leadTimeDays += Math.max(checkinDay - bookedDay, 0);
+            leadTimeCount++;
+        }
+
+        int first = Math.max(checkinDay, fromDay);
+        int last = Math.min(Math.max(checkoutDay, checkinDay + 1), toDay);
+        if (first < last) {
+            changes[first - fromDay]++;
+            changes[last - fromDay]--;
+        }
+    }
+
+    /**
+     * Adds all stays of a result set. The result set has to provide the columns checkin,
+     * checkout, cancelled_at and created_at (in this order). Rows are read one by one, so the
+     * result set can be streamed.
+     *
+     * @param resultSet Result set to consume
+     * @return OccupancyAnalytics This instance
+     * @throws SQLException On database errors
+     */
+    public OccupancyAnalytics addFromDatabase(ResultSet resultSet) throws SQLException {
+        while (resultSet.next()) {
+            int checkin = Booking.toEpochDay(resultSet.getDate(1));
+            int checkout = Booking.toEpochDay(resultSet.getDate(2));
+            if (checkin != Booking.NO_DATE && checkout != Booking.NO_DATE) {
+                add(checkin, checkout, resultSet.getDate(3) != null, Booking.toEpochDay(resultSet.getDate(4)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Runs the sweep over the period and returns the metrics.
+     *
+     * @param roomTypeId Id of the aggregated room type
+     * @param roomCount  Number of rooms of the type
+     * @return OccupancyReport Metrics
+     */
+    public OccupancyReport toReport(int roomTypeId, int roomCount) {
+        int[] occupiedRooms = new int[toDay - fromDay];
+        int occupied = 0;
+        for (int night = 0; night < occupiedRooms.length; night++) {
+            occupied += changes[night];
+            occupiedRooms[night] = occupied;
+        }
+        return new OccupancyReport(roomTypeId, roomCount, fromDay, occupiedRooms, stays, nights, cancelled, leadTimeDays, leadTimeCount);
+    }
+}
@@ -0,0 +1,96 @@
+package application.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * Occupancy metrics of a room type over a period. Stays are counted per booked room, i.e. a
+ * booking of two rooms counts as two stays.
+ */
+public class OccupancyReport {
+
+    private int roomTypeId, roomCount, firstDay;
+    private int[] occupiedRooms;
+    private long stays, nights, cancelled, leadTimeDays, leadTimeCount;
+
+    OccupancyReport(int roomTypeId, int roomCount, int firstDay, int[] occupiedRooms,
+                    long stays, long nights, long cancelled, long leadTimeDays, long leadTimeCount) {
+        this.roomTypeId = roomTypeId;
+        this.roomCount = roomCount;
+        this.firstDay = firstDay;
+        this.occupiedRooms = occupiedRooms;
+        this.stays = stays;
+        this.nights = nights;
+        this.cancelled = cancelled;
+        this.leadTimeDays = leadTimeDays;
+        this.leadTimeCount = leadTimeCount;
+    }
+
+    public int getRoomTypeId() {
+        return roomTypeId;
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    public LocalDate getFirstNight() {
+        return LocalDate.ofEpochDay(firstDay);
+    }
+
+    /**
+     * Returns the number of occupied rooms for every night of the period
+     *
+     * @return int[] Occupied rooms, index 0 is the first night
+     */
+    public int[] getOccupiedRooms() {
+        return occupiedRooms;
+    }
+
+    /**
+     * Returns the share of room nights that were occupied over the whole period
+     *
+     * @return double Occupancy between 0 and 1, 0 if the type has no rooms
+     */
+    public double getOccupancyRate() {
+        if (roomCount == 0 || occupiedRooms.length == 0) {
+            return 0;
+        }
+        long occupied = 0;
+        for (int rooms : occupiedRooms) {
+            occupied += rooms;
+        }
+        return (double) occupied / ((long) roomCount * occupiedRooms.length);
+    }
+
+    public long getStays() {
+        return stays;
+    }
+
+    /**
+     * Returns the average length of the stays, including nights outside the period
+     *
+     * @return double Nights per stay, 0 without stays
+     */
+    public double getAverageLengthOfStay() {
+        return stays > 0 ? (double) nights / stays : 0;
+    }
+
+    /**
+     * Returns the average number of days between booking and checkin
+     *
+     * @return double Days, NaN if no stay has a booking date
+     */
+    public double getAverageLeadTime() {
+        return leadTimeCount > 0 ? (double) leadTimeDays / leadTimeCount : Double.NaN;
+    }
+
+    /**
+     * Returns the share of cancelled stays
+     *
+     * @return double Cancellation rate between 0 and 1
+     */
+    public double getCancellationRate() {
+        long total = stays + cancelled;
+        return total > 0 ? (double) cancelled / total : 0;
+    }
+}
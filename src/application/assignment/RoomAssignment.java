@@ -0,0 +1,49 @@
+package application.assignment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Result of an automatic room assignment: the rooms proposed for every assigned inquiry and
+ * the inquiries that could not be placed.
+ */
+public class RoomAssignment {
+
+    private LinkedHashMap<Integer, ArrayList<Integer>> roomsByInquiry = new LinkedHashMap<>();
+    private ArrayList<Integer> unassigned = new ArrayList<>();
+    private long elapsedMillis;
+
+    void assign(int inquiryId, ArrayList<Integer> roomIds) {
+        roomsByInquiry.put(inquiryId, roomIds);
+    }
+
+    void addUnassigned(int inquiryId) {
+        unassigned.add(inquiryId);
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the proposed rooms of all assigned inquiries
+     *
+     * @return LinkedHashMap<Integer, ArrayList<Integer>> Room ids by inquiry id
+     */
+    public LinkedHashMap<Integer, ArrayList<Integer>> getRoomsByInquiry() {
+        return roomsByInquiry;
+    }
+
+    /**
+     * Returns the inquiries that could not be placed in any room type
+     *
+     * @return ArrayList<Integer> Inquiry ids
+     */
+    public ArrayList<Integer> getUnassigned() {
+        return unassigned;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,220 @@
+package application.assignment;
+
+import application.availability.AvailabilityIndex;
+import application.availability.RoomIntervals;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Computes a conflict-free room assignment for a backlog of inquiries around the existing bookings.
+ *
+ * Every inquiry is given an ordered list of candidate room types: the types needing the fewest
+ * rooms for its group first, then the ones wasting the fewest beds. Assignment runs in rounds;
+ * in every round each unplaced inquiry tries its next candidate type. Within a round the room
+ * types are independent of each other and are solved in parallel on a fork-join pool.
+ *
+ * A room type is solved by greedy interval scheduling: inquiries are placed in order of their
+ * checkin, longer stays first, each into the free rooms that fit most tightly, i.e. leave the
+ * smallest gaps to the neighbouring occupations. Packing stays back to back keeps long free
+ * stretches available for later, longer stays. Inquiries that do not fit spill over to their
+ * next candidate type in the following round.
+ *
+ * Rooms held by open inquiries stay occupied, except for the holds of the inquiry being placed:
+ * an inquiry may keep or give up its own rooms, but never takes the rooms held by another one.
+ */
+public class RoomAssignmentEngine {
+
+    // Gap assumed if a room has no occupation before or after a stay
+    private static final int OPEN_GAP = 10000;
+
+    private ForkJoinPool pool;
+
+    private static class Request {
+        int inquiryId, fromDay, toDay, guests;
+        int[] candidateTypes;
+        int round;
+    }
+
+    private static class TypeSchedule {
+        int capacity;
+        int[] roomIds;
+        RoomIntervals[] occupied;
+    }
+
+    /**
+     * Constructor
+     * @param pool Pool to solve the room types on
+     */
+    public RoomAssignmentEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Assigns rooms to inquiries.
+     *
+     * @param rooms     All rooms
+     * @param roomTypes All room types
+     * @param occupied  Intervals of the existing bookings and inquiry holds by room id, modified by the assignment
+     * @param inquiries Inquiries to assign, cancelled inquiries are skipped
+     * @return RoomAssignment Proposed rooms and unassigned inquiries
+     */
+    public RoomAssignment assign(List<Room> rooms, List<RoomType> roomTypes, Map<Integer, RoomIntervals> occupied, List<Inquiry> inquiries) {
+        long start = System.currentTimeMillis();
+        HashMap<Integer, TypeSchedule> schedules = buildSchedules(rooms, roomTypes, occupied);
+        RoomAssignment assignment = new RoomAssignment();
+
+        ArrayList<Request> pending = new ArrayList<>();
+        for (Inquiry inquiry : inquiries) {
+            if (!inquiry.cancelled_at.getValue().isEmpty()) {
+                continue;
+            }
+            Request request = new Request();
+            request.inquiryId = inquiry.id.getValue();
+            request.fromDay = (int) LocalDate.parse(inquiry.from.getValue()).toEpochDay();
+            request.toDay = Math.max((int) LocalDate.parse(inquiry.to.getValue()).toEpochDay(), request.fromDay + 1);
+            request.guests = Math.max(1, inquiry.number_of_guests.getValue());
+            request.candidateTypes = candidateTypes(request.guests, schedules);
+            pending.add(request);
+        }
+
+        while (!pending.isEmpty()) {
+            HashMap<Integer, ArrayList<Request>> byType = new HashMap<>();
+            for (Request request : pending) {
+                if (request.round < request.candidateTypes.length) {
+                    byType.computeIfAbsent(request.candidateTypes[request.round], (Integer type) -> new ArrayList<>()).add(request);
+                } else {
+                    assignment.addUnassigned(request.inquiryId);
+                }
+            }
+
+            ArrayList<ForkJoinTask<ArrayList<Request>>> tasks = new ArrayList<>();
+            HashMap<Integer, HashMap<Integer, ArrayList<Integer>>> results = new HashMap<>();
+            for (Map.Entry<Integer, ArrayList<Request>> entry : byType.entrySet()) {
+                TypeSchedule schedule = schedules.get(entry.getKey());
+                HashMap<Integer, ArrayList<Integer>> typeResult = new HashMap<>();
+                results.put(entry.getKey(), typeResult);
+                tasks.add(pool.submit(() -> schedule(schedule, entry.getValue(), typeResult)));
+            }
+
+            pending = new ArrayList<>();
+            for (ForkJoinTask<ArrayList<Request>> task : tasks) {
+                for (Request request : task.join()) {
+                    request.round++;
+                    pending.add(request);
+                }
+            }
+            for (HashMap<Integer, ArrayList<Integer>> typeResult : results.values()) {
+                for (Map.Entry<Integer, ArrayList<Integer>> entry : typeResult.entrySet()) {
+                    assignment.assign(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        assignment.setElapsedMillis(System.currentTimeMillis() - start);
+        return assignment;
+    }
+
+    private static HashMap<Integer, TypeSchedule> buildSchedules(List<Room> rooms, List<RoomType> roomTypes, Map<Integer, RoomIntervals> occupied) {
+        HashMap<Integer, ArrayList<Room>> roomsByType = new HashMap<>();
+        for (Room room : rooms) {
+            roomsByType.computeIfAbsent(room.room_type.getValue(), (Integer type) -> new ArrayList<>()).add(room);
+        }
+
+        HashMap<Integer, TypeSchedule> schedules = new HashMap<>();
+        for (RoomType roomType : roomTypes) {
+            ArrayList<Room> typeRooms = roomsByType.get(roomType.id.getValue());
+            if (typeRooms == null || roomType.maximum_number_of_guests.getValue() <= 0) {
+                continue;
+            }
+            TypeSchedule schedule = new TypeSchedule();
+            schedule.capacity = roomType.maximum_number_of_guests.getValue();
+            schedule.roomIds = new int[typeRooms.size()];
+            schedule.occupied = new RoomIntervals[typeRooms.size()];
+            for (int i = 0; i < typeRooms.size(); i++) {
+                int roomId = typeRooms.get(i).id.getValue();
+                schedule.roomIds[i] = roomId;
+                schedule.occupied[i] = occupied.getOrDefault(roomId, new RoomIntervals());
+            }
+            schedules.put(roomType.id.getValue(), schedule);
+        }
+        return schedules;
+    }
+
+    /**
+     * Returns the room types a group can be placed in, best candidates first.
+     */
+    private static int[] candidateTypes(int guests, HashMap<Integer, TypeSchedule> schedules) {
+        ArrayList<Integer> types = new ArrayList<>();
+        for (Map.Entry<Integer, TypeSchedule> entry : schedules.entrySet()) {
+            if (roomsNeeded(guests, entry.getValue()) <= entry.getValue().roomIds.length) {
+                types.add(entry.getKey());
+            }
+        }
+        types.sort(Comparator
+                .comparingInt((Integer type) -> roomsNeeded(guests, schedules.get(type)))
+                .thenComparingInt((Integer type) -> roomsNeeded(guests, schedules.get(type)) * schedules.get(type).capacity - guests)
+                .thenComparingInt((Integer type) -> type));
+        return types.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int roomsNeeded(int guests, TypeSchedule schedule) {
+        return (guests + schedule.capacity - 1) / schedule.capacity;
+    }
+
+    /**
+     * Places requests into the rooms of one type.
+     *
+     * @return ArrayList<Request> Requests that did not fit
+     */
+    private static ArrayList<Request> schedule(TypeSchedule schedule, ArrayList<Request> requests, HashMap<Integer, ArrayList<Integer>> result) {
+        requests.sort(Comparator
+                .comparingInt((Request request) -> request.fromDay)
+                .thenComparingInt((Request request) -> request.fromDay - request.toDay)
+                .thenComparingInt((Request request) -> -request.guests));
+
+        ArrayList<Request> unplaced = new ArrayList<>();
+        int roomCount = schedule.roomIds.length;
+        long[] fits = new long[roomCount];
+
+        for (Request request : requests) {
+            int needed = roomsNeeded(request.guests, schedule);
+            long key = AvailabilityIndex.key(AvailabilityIndex.INQUIRY, request.inquiryId);
+            int free = 0;
+            for (int i = 0; i < roomCount; i++) {
+                RoomIntervals occupied = schedule.occupied[i];
+                if (!occupied.overlapsExcluding(request.fromDay, request.toDay, key)) {
+                    // The own hold may end within the stay, which counts as no gap
+                    long gapBefore = Math.max(0, Math.min(OPEN_GAP, (long) request.fromDay - occupied.getLastEndBefore(request.fromDay)));
+                    long gapAfter = Math.max(0, Math.min(OPEN_GAP, (long) occupied.getFirstStartFrom(request.toDay) - request.toDay));
+                    // Pack the gap into the upper bits and the room index into the lower bits, so sorting orders by fit
+                    fits[free++] = ((gapBefore + gapAfter) << 32) | i;
+                }
+            }
+            if (free < needed) {
+                unplaced.add(request);
+                continue;
+            }
+
+            Arrays.sort(fits, 0, free);
+            ArrayList<Integer> roomIds = new ArrayList<>(needed);
+            for (int n = 0; n < needed; n++) {
+                int i = (int) fits[n];
+                schedule.occupied[i].add(key, request.fromDay, request.toDay);
+                roomIds.add(schedule.roomIds[i]);
+            }
+            result.put(request.inquiryId, roomIds);
+        }
+        return unplaced;
+    }
+}
@@ -0,0 +1,476 @@
+package application.availability;
+
+import application.models.Room;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory availability engine. Keeps the booked and inquired date intervals of every room
+ * in a RoomIntervals structure and answers availability queries without a database round trip.
+ *
+ * A room is available for [from, to) if none of its non-cancelled bookings or inquiries
+ * overlaps that range. A booking overlaps if it starts before the requested checkout and ends
+ * after the requested checkin, which also covers bookings spanning the whole range.
+ *
+ * Queries within the rolling horizon of the OccupancyCalendar are answered from its day
+ * bitsets, queries outside of it from the intervals.
+ */
+public class AvailabilityIndex {
+
+    public static final int BOOKING = 0, INQUIRY = 1;
+    private static final int HORIZON_YEARS = 2, INITIAL_BATCH_CAPACITY = 1024;
+
+    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private LinkedHashMap<Integer, Room> rooms = new LinkedHashMap<>();
+    private HashMap<Integer, RoomIntervals> intervals = new HashMap<>();
+    private HashMap<Long, ArrayList<Integer>> roomsByKey = new HashMap<>();
+    private int[] highWaterMarks = new int[2];
+    private OccupancyCalendar calendar = OccupancyCalendar.around(LocalDate.now(), HORIZON_YEARS, HORIZON_YEARS);
+    private HashSet<Integer> dirtyRooms = new HashSet<>();
+
+    /**
+     * Utility method to build the key of a booking or an inquiry
+     *
+     * @param kind BOOKING or INQUIRY
+     * @param id   Id of the booking or inquiry
+     * @return long Key
+     */
+    public static long key(int kind, int id) {
+        return ((long) kind << 32) | (id & 0xffffffffL);
+    }
+
+    /**
+     * Replaces the set of known rooms. Intervals of rooms that no longer exist are dropped.
+     * Nothing is rebuilt if neither the rooms have changed nor the horizon of the occupancy
+     * calendar has rolled forward to the current date, so that periodic syncs only pay for the
+     * rooms touched by their delta.
+     *
+     * @param roomList All rooms
+     */
+    public void setRooms(List<Room> roomList) {
+        lock.writeLock().lock();
+        try {
+            OccupancyCalendar current = OccupancyCalendar.around(LocalDate.now(), HORIZON_YEARS, HORIZON_YEARS);
+            boolean rolled = current.getFirstDay() != calendar.getFirstDay();
+            if (!rolled && isSameRooms(roomList)) {
+                return;
+            }
+
+            rooms.clear();
+            for (Room room : roomList) {
+                int roomId = room.id.getValue();
+                rooms.put(roomId, room);
+                intervals.computeIfAbsent(roomId, (Integer id) -> new RoomIntervals());
+            }
+            intervals.keySet().retainAll(rooms.keySet());
+
+            if (!rolled) {
+                current = calendar;
+            }
+            current.setRooms(rooms.values());
+            calendar = current;
+            dirtyRooms.addAll(rooms.keySet());
+            flushCalendar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the occupation of a room by a booking or an inquiry.
+     *
+     * @param kind   BOOKING or INQUIRY
+     * @param id     Id of the booking or inquiry
+     * @param roomId Id of the occupied room
+     * @param from   Checkin date
+     * @param to     Checkout date
+     */
+    public void add(int kind, int id, int roomId, LocalDate from, LocalDate to) {
+        lock.writeLock().lock();
+        try {
+            addInternal(kind, id, roomId, (int) from.toEpochDay(), (int) to.toEpochDay());
+            flushCalendar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of occupations, one per array position. The occupancy calendar is rebuilt
+     * once for the whole batch.
+     *
+     * @param kind     BOOKING or INQUIRY
+     * @param ids      Id of the booking or inquiry per occupation
+     * @param roomIds  Id of the occupied room per occupation
+     * @param fromDays Checkin epoch day per occupation
+     * @param toDays   Checkout epoch day per occupation
+     * @param count    Number of occupations
+     */
+    public void addAll(int kind, int[] ids, int[] roomIds, int[] fromDays, int[] toDays, int count) {
+        lock.writeLock().lock();
+        try {
+            addBatch(kind, ids, roomIds, fromDays, toDays, count);
+            flushCalendar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a booking or an inquiry from all rooms it occupies, e.g. after cancellation.
+     *
+     * @param kind BOOKING or INQUIRY
+     * @param id   Id of the booking or inquiry
+     */
+    public void remove(int kind, int id) {
+        lock.writeLock().lock();
+        try {
+            long key = key(kind, id);
+            ArrayList<Integer> roomIds = roomsByKey.remove(key);
+            if (roomIds != null) {
+                for (int roomId : roomIds) {
+                    RoomIntervals roomIntervals = intervals.get(roomId);
+                    if (roomIntervals != null) {
+                        roomIntervals.remove(key);
+                        dirtyRooms.add(roomId);
+                    }
+                }
+            }
+            flushCalendar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds all occupations of a result set. The result set has to provide the columns
+     * room_id, id, checkin and checkout (in this order). The rows are read before the write
+     * lock is taken and added as one batch.
+     *
+     * @param kind      BOOKING or INQUIRY
+     * @param resultSet Result set to map
+     * @return int Highest id of the mapped bookings or inquiries
+     * @throws SQLException On database errors
+     */
+    public int addFromDatabase(int kind, ResultSet resultSet) throws SQLException {
+        int count = 0;
+        int[] ids = new int[INITIAL_BATCH_CAPACITY], roomIds = new int[INITIAL_BATCH_CAPACITY];
+        int[] fromDays = new int[INITIAL_BATCH_CAPACITY], toDays = new int[INITIAL_BATCH_CAPACITY];
+        while (resultSet.next()) {
+            Date from = resultSet.getDate(3);
+            Date to = resultSet.getDate(4);
+            if (from != null && to != null) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    roomIds = Arrays.copyOf(roomIds, count * 2);
+                    fromDays = Arrays.copyOf(fromDays, count * 2);
+                    toDays = Arrays.copyOf(toDays, count * 2);
+                }
+                roomIds[count] = resultSet.getInt(1);
+                ids[count] = resultSet.getInt(2);
+                fromDays[count] = (int) from.toLocalDate().toEpochDay();
+                toDays[count] = (int) to.toLocalDate().toEpochDay();
+                count++;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            addBatch(kind, ids, roomIds, fromDays, toDays, count);
+            flushCalendar();
+            return highWaterMarks[kind];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the highest booking or inquiry id known to the index.
+     *
+     * @param kind BOOKING or INQUIRY
+     * @return int Highest known id
+     */
+    public int getHighWaterMark(int kind) {
+        lock.readLock().lock();
+        try {
+            return highWaterMarks[kind];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all rooms of a type that are available for the whole timeframe.
+     *
+     * @param from       Checkin date
+     * @param to         Checkout date
+     * @param roomTypeId Id of the room type, 0 for any type
+     * @return ArrayList<Room> Available rooms
+     */
+    public ArrayList<Room> getAvailableRooms(LocalDate from, LocalDate to, int roomTypeId) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = Math.max((int) to.toEpochDay(), fromDay + 1);
+
+        ArrayList<Room> available = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (calendar.covers(fromDay, toDay)) {
+                return calendar.getAvailableRooms(fromDay, toDay, roomTypeId);
+            }
+            for (Room room : rooms.values()) {
+                if (roomTypeId != 0 && room.room_type.getValue() != roomTypeId) {
+                    continue;
+                }
+                if (!intervals.get(room.id.getValue()).overlaps(fromDay, toDay)) {
+                    available.add(room);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return available;
+    }
+
+    /**
+     * Answers a batch of availability requests in one pass under a single read lock, e.g. for
+     * all open inquiries. Rooms held by the booking or inquiry making a request count as
+     * available for that request.
+     *
+     * @param requests Requests to answer
+     * @return ArrayList<ArrayList<Room>> Available rooms, one list per request in request order
+     */
+    public ArrayList<ArrayList<Room>> getAvailableRooms(List<AvailabilityRequest> requests) {
+        ArrayList<ArrayList<Room>> results = new ArrayList<>(requests.size());
+        lock.readLock().lock();
+        try {
+            for (AvailabilityRequest request : requests) {
+                int fromDay = (int) request.from.toEpochDay();
+                int toDay = Math.max((int) request.to.toEpochDay(), fromDay + 1);
+
+                ArrayList<Room> available;
+                if (calendar.covers(fromDay, toDay)) {
+                    available = calendar.getAvailableRooms(fromDay, toDay, request.roomTypeId);
+                } else {
+                    available = new ArrayList<>();
+                    for (Room room : rooms.values()) {
+                        if ((request.roomTypeId == 0 || room.room_type.getValue() == request.roomTypeId)
+                                && !intervals.get(room.id.getValue()).overlaps(fromDay, toDay)) {
+                            available.add(room);
+                        }
+                    }
+                }
+
+                ArrayList<Integer> heldRooms = request.heldBy != AvailabilityRequest.NO_KEY ? roomsByKey.get(request.heldBy) : null;
+                if (heldRooms != null) {
+                    for (int roomId : heldRooms) {
+                        Room room = rooms.get(roomId);
+                        if (room != null && (request.roomTypeId == 0 || room.room_type.getValue() == request.roomTypeId)
+                                && !intervals.get(roomId).overlapsExcluding(fromDay, toDay, request.heldBy)
+                                && !available.contains(room)) {
+                            available.add(room);
+                        }
+                    }
+                }
+                results.add(available);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Returns all known rooms
+     *
+     * @return ArrayList<Room> Rooms
+     */
+    public ArrayList<Room> getRooms() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(rooms.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the intervals of every room, bookings and inquiries.
+     *
+     * @return HashMap<Integer, RoomIntervals> Intervals by room id
+     */
+    public HashMap<Integer, RoomIntervals> getIntervals() {
+        return copyIntervals(-1);
+    }
+
+    /**
+     * Returns a copy of the intervals of every room, restricted to bookings or inquiries.
+     *
+     * @param kind BOOKING or INQUIRY
+     * @return HashMap<Integer, RoomIntervals> Intervals by room id
+     */
+    public HashMap<Integer, RoomIntervals> getIntervals(int kind) {
+        return copyIntervals(kind);
+    }
+
+    /**
+     * Copies the intervals of every room of a kind, of all kinds if the kind is negative.
+     */
+    private HashMap<Integer, RoomIntervals> copyIntervals(int kind) {
+        HashMap<Integer, RoomIntervals> copy = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, RoomIntervals> entry : intervals.entrySet()) {
+                RoomIntervals roomIntervals = entry.getValue();
+                RoomIntervals roomCopy = new RoomIntervals();
+                for (int i = 0; i < roomIntervals.size(); i++) {
+                    if (kind < 0 || (int) (roomIntervals.getKey(i) >>> 32) == kind) {
+                        roomCopy.add(roomIntervals.getKey(i), roomIntervals.getStart(i), roomIntervals.getEnd(i));
+                    }
+                }
+                copy.put(entry.getKey(), roomCopy);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * Checks whether a single room is available for the whole timeframe.
+     *
+     * @param roomId Id of the room
+     * @param from   Checkin date
+     * @param to     Checkout date
+     * @return True if the room exists and is available
+     */
+    public boolean isAvailable(int roomId, LocalDate from, LocalDate to) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = Math.max((int) to.toEpochDay(), fromDay + 1);
+
+        lock.readLock().lock();
+        try {
+            RoomIntervals roomIntervals = intervals.get(roomId);
+            return roomIntervals != null && !roomIntervals.overlaps(fromDay, toDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a room list equals the known rooms, in the same order. Must be called
+     * while holding the write lock.
+     */
+    private boolean isSameRooms(List<Room> roomList) {
+        if (roomList.size() != rooms.size()) {
+            return false;
+        }
+        int i = 0;
+        for (Room known : rooms.values()) {
+            Room room = roomList.get(i++);
+            if (room.id.getValue() != known.id.getValue() || room.room_type.getValue() != known.room_type.getValue()
+                    || !Objects.equals(room.name.getValue(), known.name.getValue())
+                    || !Objects.equals(room.description.getValue(), known.description.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a batch of occupations room by room, so that every room sorts its share once and
+     * computes its running maximum once. Must be called while holding the write lock.
+     */
+    private void addBatch(int kind, int[] ids, int[] roomIds, int[] fromDays, int[] toDays, int count) {
+        // Group the batch by room, ties in batch order, by packing room id and position into a long
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) roomIds[i] << 32) | i;
+            highWaterMarks[kind] = Math.max(highWaterMarks[kind], ids[i]);
+        }
+        Arrays.sort(order);
+
+        long[] keys = new long[count];
+        int[] starts = new int[count], ends = new int[count];
+        for (int first = 0, last; first < count; first = last) {
+            int roomId = roomIds[(int) order[first]];
+            last = first + 1;
+            while (last < count && roomIds[(int) order[last]] == roomId) {
+                last++;
+            }
+            RoomIntervals roomIntervals = intervals.get(roomId);
+            if (roomIntervals == null) {
+                continue;
+            }
+            int n = 0;
+            for (int i = first; i < last; i++) {
+                int row = (int) order[i];
+                long key = key(kind, ids[row]);
+                ArrayList<Integer> keyRooms = roomsByKey.computeIfAbsent(key, (Long k) -> new ArrayList<>(1));
+                if (keyRooms.contains(roomId)) {
+                    // Replaces an earlier occupation, whether already added or still pending in this batch
+                    roomIntervals.remove(key);
+                    int kept = 0;
+                    for (int j = 0; j < n; j++) {
+                        if (keys[j] != key) {
+                            keys[kept] = keys[j];
+                            starts[kept] = starts[j];
+                            ends[kept] = ends[j];
+                            kept++;
+                        }
+                    }
+                    n = kept;
+                } else {
+                    keyRooms.add(roomId);
+                }
+                keys[n] = key;
+                starts[n] = fromDays[row];
+                ends[n] = Math.max(toDays[row], fromDays[row] + 1);
+                n++;
+            }
+            roomIntervals.addAll(keys, starts, ends, n);
+            dirtyRooms.add(roomId);
+        }
+    }
+
+    private void addInternal(int kind, int id, int roomId, int fromDay, int toDay) {
+        RoomIntervals roomIntervals = intervals.get(roomId);
+        if (roomIntervals == null) {
+            return;
+        }
+        long key = key(kind, id);
+        ArrayList<Integer> roomIds = roomsByKey.computeIfAbsent(key, (Long k) -> new ArrayList<>(1));
+        if (roomIds.contains(roomId)) {
+            roomIntervals.remove(key);
+        } else {
+            roomIds.add(roomId);
+        }
+        roomIntervals.add(key, fromDay, Math.max(toDay, fromDay + 1));
+        dirtyRooms.add(roomId);
+    }
+
+    /**
+     * Rebuilds the calendar bits of all rooms changed since the last flush. Must be called
+     * while holding the write lock.
+     */
+    private void flushCalendar() {
+        for (int roomId : dirtyRooms) {
+            RoomIntervals roomIntervals = intervals.get(roomId);
+            if (roomIntervals != null) {
+                calendar.rebuildRoom(roomId, roomIntervals);
+            }
+        }
+        dirtyRooms.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package application.availability;
+
+import java.time.LocalDate;
+
+/**
+ * A single request of a batch availability query: the stay and the requested room type.
+ * A request can be made on behalf of an existing booking or inquiry, in which case the rooms
+ * it already holds count as available for it.
+ */
+public class AvailabilityRequest {
+
+    public static final long NO_KEY = -1L;
+
+    public final LocalDate from, to;
+    public final int roomTypeId;
+    public final long heldBy;
+
+    /**
+     * Constructor
+     * @param from       Checkin date
+     * @param to         Checkout date
+     * @param roomTypeId Id of the room type, 0 for any type
+     */
+    public AvailabilityRequest(LocalDate from, LocalDate to, int roomTypeId) {
+        this(from, to, roomTypeId, NO_KEY);
+    }
+
+    /**
+     * Constructor
+     * @param from       Checkin date
+     * @param to         Checkout date
+     * @param roomTypeId Id of the room type, 0 for any type
+     * @param heldBy     Key of the booking or inquiry making the request, see AvailabilityIndex.key
+     */
+    public AvailabilityRequest(LocalDate from, LocalDate to, int roomTypeId, long heldBy) {
+        this.from = from;
+        this.to = to;
+        this.roomTypeId = roomTypeId;
+        this.heldBy = heldBy;
+    }
+}
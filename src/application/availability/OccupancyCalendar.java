@@ -0,0 +1,168 @@
+package application.availability;
+
+import application.models.Room;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Day-bitset occupancy calendar over a rolling horizon. Every room has one bit per day of the
+ * horizon which is set if the room is booked or inquired for the night of that day. Room-type
+ * filters are precomputed masks with one bit per room, so an availability check is a
+ * word-wise OR over 64-day blocks of the rooms selected by the mask.
+ */
+public class OccupancyCalendar {
+
+    private int firstDay, days, words;
+    private Room[] rooms = new Room[0];
+    private HashMap<Integer, Integer> roomIndexes = new HashMap<>();
+    private long[][] occupancy = new long[0][];
+    private HashMap<Integer, long[]> roomTypeMasks = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param firstDay First epoch day of the horizon
+     * @param days     Number of days in the horizon
+     */
+    public OccupancyCalendar(int firstDay, int days) {
+        this.firstDay = firstDay;
+        this.days = days;
+        this.words = (days + 63) >>> 6;
+    }
+
+    /**
+     * Creates a calendar covering a number of years before and after a date.
+     *
+     * @param today        Center of the horizon
+     * @param yearsBack    Years before today
+     * @param yearsForward Years after today
+     * @return OccupancyCalendar Empty calendar
+     */
+    public static OccupancyCalendar around(LocalDate today, int yearsBack, int yearsForward) {
+        int first = (int) today.minusYears(yearsBack).toEpochDay();
+        int last = (int) today.plusYears(yearsForward).toEpochDay();
+        return new OccupancyCalendar(first, last - first + 1);
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Replaces the rooms of the calendar and precomputes the room-type masks. Room type 0
+     * selects all rooms. All occupancy bits are cleared.
+     *
+     * @param roomList All rooms
+     */
+    public void setRooms(Collection<Room> roomList) {
+        rooms = roomList.toArray(new Room[0]);
+        roomIndexes.clear();
+        occupancy = new long[rooms.length][words];
+        roomTypeMasks.clear();
+
+        int maskWords = (rooms.length + 63) >>> 6;
+        long[] any = new long[maskWords];
+        roomTypeMasks.put(0, any);
+        for (int i = 0; i < rooms.length; i++) {
+            roomIndexes.put(rooms[i].id.getValue(), i);
+            any[i >>> 6] |= 1L << i;
+            roomTypeMasks.computeIfAbsent(rooms[i].room_type.getValue(), (Integer type) -> new long[maskWords])[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * Rebuilds the occupancy bits of a room from its intervals. Intervals outside the horizon are clipped.
+     *
+     * @param roomId    Id of the room
+     * @param intervals Occupied intervals of the room
+     */
+    public void rebuildRoom(int roomId, RoomIntervals intervals) {
+        Integer index = roomIndexes.get(roomId);
+        if (index == null) {
+            return;
+        }
+        long[] bits = occupancy[index];
+        Arrays.fill(bits, 0L);
+        for (int i = 0; i < intervals.size(); i++) {
+            int from = Math.max(intervals.getStart(i) - firstDay, 0);
+            int to = Math.min(intervals.getEnd(i) - firstDay, days);
+            if (from < to) {
+                setRange(bits, from, to);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a range of epoch days [from, to) lies within the horizon.
+     *
+     * @param from First day
+     * @param to   First day after the range
+     * @return True if the calendar can answer queries for the range
+     */
+    public boolean covers(int from, int to) {
+        return from >= firstDay && to <= firstDay + days && from < to;
+    }
+
+    /**
+     * Returns all rooms of a type that are free for every night of [from, to).
+     * The range has to be covered by the horizon.
+     *
+     * @param from       First epoch day
+     * @param to         First epoch day after the range
+     * @param roomTypeId Id of the room type, 0 for any type
+     * @return ArrayList<Room> Available rooms
+     */
+    public ArrayList<Room> getAvailableRooms(int from, int to, int roomTypeId) {
+        ArrayList<Room> available = new ArrayList<>();
+        long[] mask = roomTypeMasks.get(roomTypeId);
+        if (mask == null) {
+            return available;
+        }
+
+        int first = from - firstDay, last = to - firstDay - 1;
+        int firstWord = first >>> 6, lastWord = last >>> 6;
+        long firstMask = -1L << (first & 63);
+        long lastMask = -1L >>> (63 - (last & 63));
+
+        for (int w = 0; w < mask.length; w++) {
+            long selected = mask[w];
+            while (selected != 0) {
+                int room = (w << 6) + Long.numberOfTrailingZeros(selected);
+                selected &= selected - 1;
+                if (!isOccupied(occupancy[room], firstWord, lastWord, firstMask, lastMask)) {
+                    available.add(rooms[room]);
+                }
+            }
+        }
+        return available;
+    }
+
+    private static boolean isOccupied(long[] bits, int firstWord, int lastWord, long firstMask, long lastMask) {
+        if (firstWord == lastWord) {
+            return (bits[firstWord] & firstMask & lastMask) != 0;
+        }
+        long occupied = bits[firstWord] & firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            occupied |= bits[w];
+        }
+        return (occupied | (bits[lastWord] & lastMask)) != 0;
+    }
+
+    private static void setRange(long[] bits, int from, int to) {
+        int firstWord = from >>> 6, lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << (from & 63);
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[firstWord] |= firstMask;
+        for (int w = firstWord + 1; w < lastWord; w++) {
+            bits[w] = -1L;
+        }
+        bits[lastWord] |= lastMask;
+    }
+}
@@ -0,0 +1,221 @@
+package application.availability;
+
+import java.util.Arrays;
+
+/**
+ * Occupied date intervals of a single room. Intervals are half-open ranges of epoch days
+ * [start, end), i.e. the checkout day itself is free again. The intervals are kept sorted by
+ * their start together with a running maximum of their ends, so that an overlap query is a
+ * single binary search. A single insert only updates the running maximum from its insertion
+ * point on, so adding intervals in start order is amortized constant time; addAll sorts a
+ * batch once and computes the running maximum in a single pass. Reads never modify the
+ * instance.
+ */
+public class RoomIntervals {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] maxEnds = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Adds an interval.
+     *
+     * @param key   Key of the booking or inquiry occupying the room
+     * @param start First occupied epoch day
+     * @param end   First free epoch day after the interval
+     */
+    public void add(long key, int start, int end) {
+        ensureCapacity(size + 1);
+        int pos = lowerBound(start + 1);
+        System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+        System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        starts[pos] = start;
+        ends[pos] = end;
+        keys[pos] = key;
+        size++;
+        updateMaxEnds(pos);
+    }
+
+    /**
+     * Adds a batch of intervals, one per array position. The batch need not be sorted.
+     *
+     * @param batchKeys   Key of the booking or inquiry per interval
+     * @param batchStarts First occupied epoch day per interval
+     * @param batchEnds   First free epoch day after the interval per interval
+     * @param count       Number of intervals
+     */
+    public void addAll(long[] batchKeys, int[] batchStarts, int[] batchEnds, int count) {
+        if (count == 0) {
+            return;
+        }
+        ensureCapacity(size + count);
+        // Sort the batch by start, ties in batch order, by packing start and position into a long
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) batchStarts[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        // Merge the existing intervals and the sorted batch from the back, in place
+        int existing = size - 1, batch = count - 1, target = size + count - 1;
+        while (batch >= 0) {
+            int next = (int) order[batch];
+            if (existing >= 0 && starts[existing] > batchStarts[next]) {
+                starts[target] = starts[existing];
+                ends[target] = ends[existing];
+                keys[target] = keys[existing];
+                existing--;
+            } else {
+                starts[target] = batchStarts[next];
+                ends[target] = batchEnds[next];
+                keys[target] = batchKeys[next];
+                batch--;
+            }
+            target--;
+        }
+        size += count;
+        updateMaxEnds(target + 1);
+    }
+
+    /**
+     * Removes all intervals of a key.
+     *
+     * @param key Key of the booking or inquiry
+     * @return True if an interval has been removed
+     */
+    public boolean remove(long key) {
+        int first = 0;
+        while (first < size && keys[first] != key) {
+            first++;
+        }
+        if (first == size) {
+            return false;
+        }
+        int kept = first;
+        for (int i = first + 1; i < size; i++) {
+            if (keys[i] != key) {
+                starts[kept] = starts[i];
+                ends[kept] = ends[i];
+                keys[kept] = keys[i];
+                kept++;
+            }
+        }
+        size = kept;
+        updateMaxEnds(first);
+        return true;
+    }
+
+    /**
+     * Checks whether any interval overlaps the half-open range [from, to).
+     *
+     * @param from First requested epoch day
+     * @param to   First epoch day after the requested range
+     * @return True if the room is occupied during the range
+     */
+    public boolean overlaps(int from, int to) {
+        int candidates = lowerBound(to);
+        return candidates > 0 && maxEnds[candidates - 1] > from;
+    }
+
+    /**
+     * Checks whether any interval of another key overlaps the half-open range [from, to).
+     *
+     * @param from       First requested epoch day
+     * @param to         First epoch day after the requested range
+     * @param excludeKey Key whose intervals are ignored
+     * @return True if the room is occupied by another booking or inquiry during the range
+     */
+    public boolean overlapsExcluding(int from, int to, long excludeKey) {
+        for (int i = lowerBound(to) - 1; i >= 0 && maxEnds[i] > from; i--) {
+            if (ends[i] > from && keys[i] != excludeKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the latest end of all intervals starting before a day.
+     *
+     * @param day Epoch day
+     * @return int Latest end, Integer.MIN_VALUE if no interval starts before the day
+     */
+    public int getLastEndBefore(int day) {
+        int candidates = lowerBound(day);
+        return candidates > 0 ? maxEnds[candidates - 1] : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Returns the earliest start of all intervals starting at or after a day.
+     *
+     * @param day Epoch day
+     * @return int Earliest start, Integer.MAX_VALUE if no interval starts at or after the day
+     */
+    public int getFirstStartFrom(int day) {
+        int index = lowerBound(day);
+        return index < size ? starts[index] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of intervals
+     *
+     * @return int Number of intervals
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the index of the first interval starting at or after the given day.
+     */
+    private int lowerBound(int day) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newCapacity = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+            keys = Arrays.copyOf(keys, newCapacity);
+            maxEnds = Arrays.copyOf(maxEnds, newCapacity);
+        }
+    }
+
+    /**
+     * Recomputes the running maximum of the ends from the given index on.
+     */
+    private void updateMaxEnds(int from) {
+        int max = from > 0 ? maxEnds[from - 1] : Integer.MIN_VALUE;
+        for (int i = from; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package application.cache;
+
+import application.interfaces.RangeLoader;
+import application.models.BookingStore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Range-aware cache for booking timeframe queries.
+ *
+ * Every entry covers a window [fromDay, toDay] of epoch days and holds all bookings that
+ * overlap the window. A query for bookings within [from, to] (checkin on or after from,
+ * checkout on or before to) inside a cached window is answered by filtering the entry in
+ * memory. Only the parts of a query not covered by any entry are loaded; the new rows are
+ * merged with all overlapping and adjacent entries into a single entry, because the union of
+ * the bookings overlapping two contiguous windows is exactly the set overlapping their union.
+ *
+ * Least recently used entries are evicted once the estimated size exceeds the memory budget.
+ */
+public class BookingRangeCache {
+
+    private static final long MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+    private long memoryBudget;
+    private long usedBytes = 0;
+    private long tick = 0;
+    // Bumped by every invalidation, loads started under an older generation are discarded
+    private long generation = 0;
+    private TreeMap<Integer, Entry> entries = new TreeMap<>();
+
+    private static class Entry {
+        int fromDay, toDay;
+        BookingStore bookings;
+        long bytes, lastUsed, loadedAt;
+    }
+
+    /**
+     * Constructor
+     * @param memoryBudget Maximum estimated size of all entries in bytes
+     */
+    public BookingRangeCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns all bookings with checkin on or after fromDay and checkout on or before toDay.
+     * Windows loaded while the cache is invalidated are discarded and loaded again.
+     *
+     * @param fromDay First epoch day
+     * @param toDay   Last epoch day
+     * @param loader  Loads bookings overlapping a window that is not cached
+     * @return BookingStore Matching bookings
+     * @throws SQLException If loading a missing window fails
+     */
+    public BookingStore get(int fromDay, int toDay, RangeLoader loader) throws SQLException {
+        ArrayList<int[]> gaps;
+        long loadGeneration;
+        synchronized (this) {
+            removeExpired();
+            Entry covering = findCovering(fromDay, toDay);
+            if (covering != null) {
+                covering.lastUsed = ++tick;
+                return filter(covering.bookings, fromDay, toDay);
+            }
+            gaps = findGaps(fromDay, toDay);
+            loadGeneration = generation;
+        }
+
+        while (true) {
+            // Load outside of the lock, so that hits are not blocked by slow queries
+            ArrayList<BookingStore> loaded = new ArrayList<>();
+            for (int[] gap : gaps) {
+                loaded.add(loader.load(gap[0], gap[1]));
+            }
+
+            synchronized (this) {
+                if (loadGeneration != generation) {
+                    // Invalidated while loading, the loaded rows may predate the change
+                    gaps = findGaps(fromDay, toDay);
+                    loadGeneration = generation;
+                    continue;
+                }
+                if (!covers(gaps, findGaps(fromDay, toDay))) {
+                    // Entries used to fill the window have been evicted in the meantime
+                    gaps = new ArrayList<>();
+                    gaps.add(new int[]{fromDay, toDay});
+                    continue;
+                }
+                return merge(fromDay, toDay, loaded);
+            }
+        }
+    }
+
+    /**
+     * Merges loaded bookings with all entries overlapping or touching the window into a single entry.
+     */
+    private BookingStore merge(int fromDay, int toDay, ArrayList<BookingStore> loaded) {
+        Entry merged = new Entry();
+        merged.fromDay = fromDay;
+        merged.toDay = toDay;
+        merged.loadedAt = System.currentTimeMillis();
+        BookingStore union = new BookingStore();
+        HashSet<Integer> ids = new HashSet<>();
+        for (BookingStore store : loaded) {
+            addAll(union, ids, store);
+        }
+
+        Map.Entry<Integer, Entry> floor = entries.floorEntry(fromDay);
+        Integer start = floor != null && floor.getValue().toDay >= fromDay - 1 ? floor.getKey() : Integer.valueOf(fromDay);
+        for (Entry existing : new ArrayList<>(entries.subMap(start, true, toDay + 1, true).values())) {
+            merged.fromDay = Math.min(merged.fromDay, existing.fromDay);
+            merged.toDay = Math.max(merged.toDay, existing.toDay);
+            merged.loadedAt = Math.min(merged.loadedAt, existing.loadedAt);
+            addAll(union, ids, existing.bookings);
+            removeEntry(existing);
+        }
+
+        merged.bookings = union;
+        merged.bytes = union.estimateBytes();
+        merged.lastUsed = ++tick;
+        entries.put(merged.fromDay, merged);
+        usedBytes += merged.bytes;
+        evict(merged);
+        return filter(union, fromDay, toDay);
+    }
+
+    /**
+     * Checks whether every gap is contained in one of the loaded ranges.
+     */
+    private static boolean covers(ArrayList<int[]> loaded, ArrayList<int[]> gaps) {
+        for (int[] gap : gaps) {
+            boolean covered = false;
+            for (int[] range : loaded) {
+                covered |= range[0] <= gap[0] && gap[1] <= range[1];
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops all entries, e.g. after a reconnect.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Drops all entries whose window overlaps the given range, e.g. because a booking within
+     * the range has been created, changed or cancelled.
+     *
+     * @param fromDay First changed epoch day
+     * @param toDay   Last changed epoch day
+     */
+    public synchronized void invalidate(int fromDay, int toDay) {
+        generation++;
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.fromDay <= toDay && entry.toDay >= fromDay) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Drops all entries containing a booking, e.g. because the booking has moved out of their
+     * windows.
+     *
+     * @param bookingId Id of the changed booking
+     */
+    public synchronized void invalidateBooking(int bookingId) {
+        generation++;
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.bookings.indexOf(bookingId) >= 0) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    private Entry findCovering(int fromDay, int toDay) {
+        Map.Entry<Integer, Entry> floor = entries.floorEntry(fromDay);
+        return floor != null && floor.getValue().toDay >= toDay ? floor.getValue() : null;
+    }
+
+    /**
+     * Returns the sub-ranges of [fromDay, toDay] that are not covered by any entry.
+     */
+    private ArrayList<int[]> findGaps(int fromDay, int toDay) {
+        ArrayList<int[]> gaps = new ArrayList<>();
+        int next = fromDay;
+        Map.Entry<Integer, Entry> floor = entries.floorEntry(fromDay);
+        if (floor != null && floor.getValue().toDay >= fromDay) {
+            next = floor.getValue().toDay + 1;
+        }
+        for (Entry entry : entries.subMap(fromDay, false, toDay, true).values()) {
+            if (entry.fromDay > next) {
+                gaps.add(new int[]{next, entry.fromDay - 1});
+            }
+            next = Math.max(next, entry.toDay + 1);
+        }
+        if (next <= toDay) {
+            gaps.add(new int[]{next, toDay});
+        }
+        return gaps;
+    }
+
+    private static BookingStore filter(BookingStore source, int fromDay, int toDay) {
+        BookingStore result = new BookingStore();
+        for (int row = 0; row < source.size(); row++) {
+            if (source.getCheckinDay(row) >= fromDay && source.getCheckoutDay(row) <= toDay) {
+                result.addRow(source, row);
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(BookingStore target, HashSet<Integer> ids, BookingStore source) {
+        for (int row = 0; row < source.size(); row++) {
+            if (ids.add(source.getId(row))) {
+                target.addRow(source, row);
+            }
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        if (entries.remove(entry.fromDay, entry)) {
+            usedBytes -= entry.bytes;
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (now - entry.loadedAt > MAX_AGE_MILLIS) {
+                removeEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the budget is met. The given entry is kept,
+     * even if it exceeds the budget on its own.
+     */
+    private void evict(Entry keep) {
+        while (usedBytes > memoryBudget && entries.size() > 1) {
+            Entry oldest = null;
+            for (Entry entry : entries.values()) {
+                if (entry != keep && (oldest == null || entry.lastUsed < oldest.lastUsed)) {
+                    oldest = entry;
+                }
+            }
+            removeEntry(oldest);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package application.conversion;
+
+import application.availability.AvailabilityIndex;
+import application.availability.RoomIntervals;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Converts inquiries into bookings. Every inquiry becomes one booking of its stay with the
+ * inquiring person as responsible person and one booking_room row per selected room. The
+ * inquiry itself is closed by setting its cancellation date, which also releases its holds.
+ *
+ * Inquiries are converted in chunks of CHUNK_SIZE, one transaction per chunk, and all rows of
+ * a chunk are written with one JDBC batch per table. Double bookings are prevented under
+ * concurrent clients by locking before checking:
+ *
+ *   1. the rooms of the chunk are locked with SELECT ... FOR UPDATE in ascending id order, so
+ *      that all converters wanting the same room queue up and never deadlock each other
+ *   2. the inquiries are locked the same way and re-read, so an inquiry that has been
+ *      converted or cancelled in the meantime is rejected
+ *   3. the active bookings and holds of the locked rooms are read with locking reads, which
+ *      always see the latest committed rows, and checked for overlaps in memory together with
+ *      the bookings created earlier in the same chunk
+ *   4. the bookings are inserted in one batch first and their ids taken from the generated
+ *      keys of the AUTO_INCREMENT column, so no lock on the whole booking table is needed
+ *
+ * A chunk that fails with a deadlock or lock wait timeout is retried up to MAX_ATTEMPTS times.
+ * Conflicting inquiries are rejected individually, the rest of their chunk is still converted.
+ */
+public class BookingConverter {
+
+    private static final int CHUNK_SIZE = 250, MAX_ATTEMPTS = 3;
+
+    // MySQL error codes for a deadlock and a lock wait timeout
+    private static final int ER_LOCK_DEADLOCK = 1213, ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private static final String
+            REJECTED_NOT_FOUND = "inquiry not found",
+            REJECTED_CLOSED = "inquiry is cancelled or already converted",
+            REJECTED_NO_ROOMS = "no rooms selected",
+            REJECTED_UNKNOWN_ROOM = "unknown room ",
+            REJECTED_EMPTY_STAY = "stay has no nights",
+            REJECTED_OCCUPIED = "room is occupied: ";
+
+    private Connection connection;
+
+    /**
+     * Constructor
+     * @param connection Connection to write the bookings on, must not be in use by other threads
+     */
+    public BookingConverter(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Converts inquiries into bookings.
+     *
+     * @param conversions Inquiries and the rooms to book for them
+     * @return ConversionResult Created bookings and rejected inquiries, null if no transaction could be started
+     */
+    public ConversionResult convert(List<InquiryConversion> conversions) {
+        long start = System.currentTimeMillis();
+        ConversionResult result = new ConversionResult();
+        boolean autoCommit;
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return null;
+        }
+        try {
+            for (int from = 0; from < conversions.size(); from += CHUNK_SIZE) {
+                convertChunk(conversions.subList(from, Math.min(from + CHUNK_SIZE, conversions.size())), result);
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Converts a chunk in one transaction, retrying it on deadlocks and lock wait timeouts
+     */
+    private void convertChunk(List<InquiryConversion> chunk, ConversionResult result) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            ConversionResult chunkResult = new ConversionResult();
+            try {
+                writeChunk(chunk, chunkResult);
+                connection.commit();
+                result.getBookingsByInquiry().putAll(chunkResult.getBookingsByInquiry());
+                result.getRejected().putAll(chunkResult.getRejected());
+                return;
+            } catch (SQLException e) {
+                connection.rollback();
+                boolean retry = e.getErrorCode() == ER_LOCK_DEADLOCK || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                        || "40001".equals(e.getSQLState());
+                if (!retry || attempt == MAX_ATTEMPTS) {
+                    System.out.println(e);
+                    for (InquiryConversion conversion : chunk) {
+                        result.addRejected(conversion.getInquiryId(), e.getMessage());
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks, checks and writes the bookings of a chunk without committing
+     */
+    private void writeChunk(List<InquiryConversion> chunk, ConversionResult result) throws SQLException {
+        TreeSet<Integer> roomIds = new TreeSet<>();
+        TreeSet<Integer> inquiryIds = new TreeSet<>();
+        for (InquiryConversion conversion : chunk) {
+            roomIds.addAll(conversion.getRoomIds());
+            inquiryIds.add(conversion.getInquiryId());
+        }
+
+        TreeSet<Integer> lockedRooms = new TreeSet<>();
+        if (!roomIds.isEmpty()) {
+            try (PreparedStatement prep = prepareWithIds("SELECT id FROM room WHERE id IN (%s) ORDER BY id FOR UPDATE", roomIds);
+                 ResultSet resultSet = prep.executeQuery()) {
+                while (resultSet.next()) {
+                    lockedRooms.add(resultSet.getInt(1));
+                }
+            }
+        }
+
+        HashMap<Integer, LockedInquiry> inquiries = new HashMap<>();
+        int firstDay = Integer.MAX_VALUE, lastDay = Integer.MIN_VALUE;
+        try (PreparedStatement prep = prepareWithIds("" +
+                "SELECT id, `from`, `to`, person_id, created_at, cancelled_at FROM inquiry WHERE id IN (%s) ORDER BY id FOR UPDATE", inquiryIds);
+             ResultSet resultSet = prep.executeQuery()) {
+            while (resultSet.next()) {
+                LockedInquiry inquiry = new LockedInquiry();
+                inquiry.fromDay = (int) resultSet.getDate("from").toLocalDate().toEpochDay();
+                inquiry.toDay = (int) resultSet.getDate("to").toLocalDate().toEpochDay();
+                inquiry.personId = resultSet.getInt("person_id");
+                inquiry.createdAt = resultSet.getTimestamp("created_at");
+                inquiry.closed = resultSet.getDate("cancelled_at") != null;
+                inquiries.put(resultSet.getInt("id"), inquiry);
+                firstDay = Math.min(firstDay, inquiry.fromDay);
+                lastDay = Math.max(lastDay, inquiry.toDay);
+            }
+        }
+
+        HashMap<Integer, RoomIntervals> occupied = new HashMap<>();
+        for (int roomId : lockedRooms) {
+            occupied.put(roomId, new RoomIntervals());
+        }
+        if (!lockedRooms.isEmpty() && firstDay < lastDay) {
+            readOccupations(AvailabilityIndex.BOOKING, "" +
+                    "SELECT br.room_id, b.id, b.checkin, b.checkout " +
+                    "FROM booking_room br INNER JOIN booking b ON br.booking_id = b.id " +
+                    "WHERE br.room_id IN (%s) AND b.cancelled_at IS NULL AND b.checkin < ? AND b.checkout > ? " +
+                    "LOCK IN SHARE MODE", lockedRooms, firstDay, lastDay, occupied);
+            readOccupations(AvailabilityIndex.INQUIRY, "" +
+                    "SELECT ir.room_id, i.id, i.`from`, i.`to` " +
+                    "FROM inquiry_room ir INNER JOIN inquiry i ON ir.inquiry_id = i.id " +
+                    "WHERE ir.room_id IN (%s) AND i.cancelled_at IS NULL AND i.`from` < ? AND i.`to` > ? " +
+                    "LOCK IN SHARE MODE", lockedRooms, firstDay, lastDay, occupied);
+        }
+
+        ArrayList<InquiryConversion> accepted = new ArrayList<>();
+        try (PreparedStatement booking = connection.prepareStatement(
+                "INSERT INTO booking (checkin, checkout, created_at) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (InquiryConversion conversion : chunk) {
+                int inquiryId = conversion.getInquiryId();
+                LockedInquiry inquiry = inquiries.get(inquiryId);
+                String rejection = check(inquiryId, inquiry, conversion.getRoomIds(), lockedRooms, occupied);
+                if (rejection != null) {
+                    result.addRejected(inquiryId, rejection);
+                    continue;
+                }
+
+                booking.setDate(1, Date.valueOf(LocalDate.ofEpochDay(inquiry.fromDay)));
+                booking.setDate(2, Date.valueOf(LocalDate.ofEpochDay(inquiry.toDay)));
+                booking.setTimestamp(3, inquiry.createdAt != null ? inquiry.createdAt : now);
+                booking.addBatch();
+                // Keyed by the inquiry until the booking id is known, only the overlap matters here
+                for (int roomId : conversion.getRoomIds()) {
+                    occupied.get(roomId).add(AvailabilityIndex.key(AvailabilityIndex.BOOKING, inquiryId), inquiry.fromDay, inquiry.toDay);
+                }
+                inquiry.closed = true;
+                accepted.add(conversion);
+            }
+            if (accepted.isEmpty()) {
+                return;
+            }
+
+            booking.executeBatch();
+            try (ResultSet keys = booking.getGeneratedKeys()) {
+                for (InquiryConversion conversion : accepted) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated booking id for inquiry " + conversion.getInquiryId());
+                    }
+                    result.addConverted(conversion.getInquiryId(), keys.getInt(1));
+                }
+            }
+        }
+
+        try (PreparedStatement bookingPerson = connection.prepareStatement("INSERT INTO booking_person (booking_id, person_id, isResponsible) VALUES (?, ?, TRUE)");
+             PreparedStatement bookingRoom = connection.prepareStatement("INSERT INTO booking_room (booking_id, room_id) VALUES (?, ?)");
+             PreparedStatement closeInquiry = connection.prepareStatement("UPDATE inquiry SET cancelled_at = ? WHERE id = ?")) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (InquiryConversion conversion : accepted) {
+                int inquiryId = conversion.getInquiryId();
+                int bookingId = result.getBookingsByInquiry().get(inquiryId);
+                bookingPerson.setInt(1, bookingId);
+                bookingPerson.setInt(2, inquiries.get(inquiryId).personId);
+                bookingPerson.addBatch();
+                for (int roomId : new TreeSet<>(conversion.getRoomIds())) {
+                    bookingRoom.setInt(1, bookingId);
+                    bookingRoom.setInt(2, roomId);
+                    bookingRoom.addBatch();
+                }
+                closeInquiry.setTimestamp(1, now);
+                closeInquiry.setInt(2, inquiryId);
+                closeInquiry.addBatch();
+            }
+            bookingPerson.executeBatch();
+            bookingRoom.executeBatch();
+            closeInquiry.executeBatch();
+        }
+    }
+
+    /**
+     * Checks whether an inquiry can be converted with the selected rooms
+     *
+     * @return String Reason for the rejection, null if the inquiry can be converted
+     */
+    private static String check(int inquiryId, LockedInquiry inquiry, ArrayList<Integer> roomIds, TreeSet<Integer> lockedRooms,
+                                HashMap<Integer, RoomIntervals> occupied) {
+        if (inquiry == null) {
+            return REJECTED_NOT_FOUND;
+        }
+        if (inquiry.closed) {
+            return REJECTED_CLOSED;
+        }
+        if (roomIds.isEmpty()) {
+            return REJECTED_NO_ROOMS;
+        }
+        if (inquiry.toDay <= inquiry.fromDay) {
+            return REJECTED_EMPTY_STAY;
+        }
+        long ownHold = AvailabilityIndex.key(AvailabilityIndex.INQUIRY, inquiryId);
+        for (int roomId : roomIds) {
+            if (!lockedRooms.contains(roomId)) {
+                return REJECTED_UNKNOWN_ROOM + roomId;
+            }
+            if (occupied.get(roomId).overlapsExcluding(inquiry.fromDay, inquiry.toDay, ownHold)) {
+                return REJECTED_OCCUPIED + roomId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the bookings or holds of the locked rooms that overlap a period into their room intervals
+     */
+    private void readOccupations(int kind, String sql, TreeSet<Integer> roomIds, int firstDay, int lastDay,
+                                 HashMap<Integer, RoomIntervals> occupied) throws SQLException {
+        try (PreparedStatement prep = prepareWithIds(sql, roomIds)) {
+            prep.setDate(roomIds.size() + 1, Date.valueOf(LocalDate.ofEpochDay(lastDay)));
+            prep.setDate(roomIds.size() + 2, Date.valueOf(LocalDate.ofEpochDay(firstDay)));
+            try (ResultSet resultSet = prep.executeQuery()) {
+                while (resultSet.next()) {
+                    Date from = resultSet.getDate(3), to = resultSet.getDate(4);
+                    if (from != null && to != null) {
+                        occupied.get(resultSet.getInt(1)).add(AvailabilityIndex.key(kind, resultSet.getInt(2)),
+                                (int) from.toLocalDate().toEpochDay(), (int) to.toLocalDate().toEpochDay());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepares a statement with one placeholder per id in place of %s and binds the ids
+     */
+    private PreparedStatement prepareWithIds(String sql, TreeSet<Integer> ids) throws SQLException {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        PreparedStatement prep = connection.prepareStatement(String.format(sql, placeholders));
+        int index = 1;
+        for (int id : ids) {
+            prep.setInt(index++, id);
+        }
+        return prep;
+    }
+
+    /**
+     * Inquiry as read under lock
+     */
+    private static class LockedInquiry {
+        private int fromDay, toDay, personId;
+        private Timestamp createdAt;
+        private boolean closed;
+    }
+}
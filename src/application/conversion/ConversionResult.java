@@ -0,0 +1,48 @@
+package application.conversion;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Result of converting inquiries into bookings: the booking created for every converted
+ * inquiry and the reason for every inquiry that has been rejected.
+ */
+public class ConversionResult {
+
+    private LinkedHashMap<Integer, Integer> bookingsByInquiry = new LinkedHashMap<>();
+    private LinkedHashMap<Integer, String> rejected = new LinkedHashMap<>();
+    private long elapsedMillis;
+
+    void addConverted(int inquiryId, int bookingId) {
+        bookingsByInquiry.put(inquiryId, bookingId);
+    }
+
+    void addRejected(int inquiryId, String reason) {
+        rejected.put(inquiryId, reason);
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the bookings created for the converted inquiries
+     *
+     * @return LinkedHashMap<Integer, Integer> Booking id by inquiry id
+     */
+    public LinkedHashMap<Integer, Integer> getBookingsByInquiry() {
+        return bookingsByInquiry;
+    }
+
+    /**
+     * Returns the inquiries that have not been converted
+     *
+     * @return LinkedHashMap<Integer, String> Reason by inquiry id
+     */
+    public LinkedHashMap<Integer, String> getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,31 @@
+package application.conversion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request to convert an inquiry into a booking of a set of rooms
+ */
+public class InquiryConversion {
+
+    private int inquiryId;
+    private ArrayList<Integer> roomIds;
+
+    /**
+     * Constructor
+     * @param inquiryId Id of the inquiry to convert
+     * @param roomIds   Ids of the rooms to book
+     */
+    public InquiryConversion(int inquiryId, List<Integer> roomIds) {
+        this.inquiryId = inquiryId;
+        this.roomIds = new ArrayList<>(roomIds);
+    }
+
+    public int getInquiryId() {
+        return inquiryId;
+    }
+
+    public ArrayList<Integer> getRoomIds() {
+        return roomIds;
+    }
+}
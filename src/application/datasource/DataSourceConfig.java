@@ -0,0 +1,138 @@
+package application.datasource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Data sources of the application: one primary that serves all writes and any number of
+ * read replicas for read-only queries. The configuration is read from the properties file
+ * given by the system property "starview.datasources", ~/.starview/datasources.properties
+ * otherwise. Without configuration file, the local starview database is the only data source.
+ *
+ * Example:
+ * <pre>
+ * primary.url=jdbc:mysql://localhost:3306/starview?useSSL=false
+ * primary.user=root
+ * primary.password=root
+ * replica.1.url=jdbc:mysql://localhost:3307/starview?useSSL=false
+ * replica.1.user=reader
+ * replica.1.password=reader
+ * replica.maxLagSeconds=5
+ * replica.checkIntervalSeconds=5
+ * </pre>
+ * Replicas are numbered from 1, user and password default to the ones of the primary.
+ */
+public class DataSourceConfig {
+
+    private static final String
+            DEFAULT_URL = "jdbc:mysql://localhost:3306/starview?verifyServerCertificate=false&useSSL=false&rewriteBatchedStatements=true",
+            DEFAULT_USER = "root",
+            DEFAULT_PASSWORD = "root";
+
+    private static final long
+            DEFAULT_MAX_LAG_SECONDS = 5,
+            DEFAULT_CHECK_INTERVAL_SECONDS = 5;
+
+    private DataSourceSettings primary;
+    private List<DataSourceSettings> replicas;
+    private long maxLagSeconds, checkIntervalSeconds;
+
+    /**
+     * Constructor
+     * @param primary              Primary data source
+     * @param replicas             Read replicas, may be empty
+     * @param maxLagSeconds        Replicas lagging further behind the primary are skipped
+     * @param checkIntervalSeconds Interval between two replication lag checks
+     */
+    public DataSourceConfig(DataSourceSettings primary, List<DataSourceSettings> replicas, long maxLagSeconds, long checkIntervalSeconds) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+        this.checkIntervalSeconds = checkIntervalSeconds;
+    }
+
+    /**
+     * Loads the configuration file. A file that cannot be read is reported and the local
+     * database is used instead.
+     *
+     * @return DataSourceConfig Configuration
+     */
+    public static DataSourceConfig load() {
+        String configured = System.getProperty("starview.datasources");
+        Path path = configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".starview", "datasources.properties");
+
+        Properties properties = new Properties();
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.out.println(e);
+                properties.clear();
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    /**
+     * Reads the configuration from properties, see the class documentation for the keys.
+     *
+     * @param properties Properties to read
+     * @return DataSourceConfig Configuration
+     */
+    public static DataSourceConfig fromProperties(Properties properties) {
+        DataSourceSettings primary = new DataSourceSettings("primary",
+                properties.getProperty("primary.url", DEFAULT_URL),
+                properties.getProperty("primary.user", DEFAULT_USER),
+                properties.getProperty("primary.password", DEFAULT_PASSWORD));
+
+        ArrayList<DataSourceSettings> replicas = new ArrayList<>();
+        for (int i = 1; properties.getProperty("replica." + i + ".url") != null; i++) {
+            String prefix = "replica." + i + ".";
+            replicas.add(new DataSourceSettings("replica " + i,
+                    properties.getProperty(prefix + "url"),
+                    properties.getProperty(prefix + "user", primary.getUser()),
+                    properties.getProperty(prefix + "password", primary.getPassword())));
+        }
+
+        return new DataSourceConfig(primary, replicas,
+                getSeconds(properties, "replica.maxLagSeconds", DEFAULT_MAX_LAG_SECONDS),
+                getSeconds(properties, "replica.checkIntervalSeconds", DEFAULT_CHECK_INTERVAL_SECONDS));
+    }
+
+    private static long getSeconds(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println(e);
+            return defaultValue;
+        }
+    }
+
+    public DataSourceSettings getPrimary() {
+        return primary;
+    }
+
+    public List<DataSourceSettings> getReplicas() {
+        return replicas;
+    }
+
+    public long getMaxLagSeconds() {
+        return maxLagSeconds;
+    }
+
+    public long getCheckIntervalSeconds() {
+        return checkIntervalSeconds;
+    }
+}
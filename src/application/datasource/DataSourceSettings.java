@@ -0,0 +1,39 @@
+package application.datasource;
+
+/**
+ * Connection settings of a single data source
+ */
+public class DataSourceSettings {
+
+    private String name, url, user, password;
+
+    /**
+     * Constructor
+     * @param name     Name of the data source, used in log messages
+     * @param url      JDBC url
+     * @param user     Database user
+     * @param password Database password
+     */
+    public DataSourceSettings(String name, String url, String user, String password) {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
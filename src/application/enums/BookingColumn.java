@@ -0,0 +1,13 @@
+package application.enums;
+
+/**
+ * Booking Table Column Enum
+ */
+public enum BookingColumn {
+    ID,
+    CHECKIN,
+    CHECKOUT,
+    CANCELLED,
+    SURNAME,
+    FORENAME,
+}
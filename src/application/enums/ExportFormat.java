@@ -0,0 +1,19 @@
+package application.enums;
+
+/**
+ * Export Format Enum
+ */
+public enum ExportFormat {
+    CSV("csv"),
+    COLUMNAR("svbc");
+
+    private String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,56 @@
+package application.expiry;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Result of expiring inquiry holds: the inquiries that have been closed and the inquiries whose
+ * reservation has been extended in the meantime together with their new reservation date.
+ * Inquiries that have been cancelled or converted in the meantime appear in neither list.
+ */
+public class ExpiryResult {
+
+    private ArrayList<Integer> expired = new ArrayList<>();
+    private LinkedHashMap<Integer, LocalDate> extended = new LinkedHashMap<>();
+    private ArrayList<Integer> failed = new ArrayList<>();
+
+    void addExpired(int inquiryId) {
+        expired.add(inquiryId);
+    }
+
+    void addExtended(int inquiryId, LocalDate reservationUntil) {
+        extended.put(inquiryId, reservationUntil);
+    }
+
+    void addFailed(int inquiryId) {
+        failed.add(inquiryId);
+    }
+
+    /**
+     * Returns the inquiries whose holds have been released
+     *
+     * @return ArrayList<Integer> Inquiry ids
+     */
+    public ArrayList<Integer> getExpired() {
+        return expired;
+    }
+
+    /**
+     * Returns the inquiries that are still held
+     *
+     * @return LinkedHashMap<Integer, LocalDate> New reservation date by inquiry id
+     */
+    public LinkedHashMap<Integer, LocalDate> getExtended() {
+        return extended;
+    }
+
+    /**
+     * Returns the inquiries of batches that could not be written, they are still held
+     *
+     * @return ArrayList<Integer> Inquiry ids
+     */
+    public ArrayList<Integer> getFailed() {
+        return failed;
+    }
+}
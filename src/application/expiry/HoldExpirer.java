@@ -0,0 +1,155 @@
+package application.expiry;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Releases the room holds of inquiries whose reservation has run out by setting their
+ * cancellation date, the same way converted inquiries are closed. A hold is valid up to and
+ * including its reservation_until day.
+ *
+ * Inquiries are expired in batches of BATCH_SIZE, one transaction per batch. The inquiries of a
+ * batch are locked with SELECT ... FOR UPDATE in ascending id order, the same order in which
+ * BookingConverter locks them, and their reservation is checked again under lock, so that an
+ * inquiry that has been converted, cancelled or extended in the meantime is left alone. A batch
+ * that fails with a deadlock or lock wait timeout is retried up to MAX_ATTEMPTS times.
+ */
+public class HoldExpirer {
+
+    private static final int BATCH_SIZE = 500, MAX_ATTEMPTS = 3;
+
+    // MySQL error codes for a deadlock and a lock wait timeout
+    private static final int ER_LOCK_DEADLOCK = 1213, ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private Connection connection;
+
+    /**
+     * Constructor
+     * @param connection Connection to expire the holds on, must not be in use by other threads
+     */
+    public HoldExpirer(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Expires the holds of inquiries whose reservation ended before today.
+     *
+     * @param inquiryIds Inquiries whose reservation is due
+     * @param today      Current date, reservations ending before are expired
+     * @return ExpiryResult Expired and extended inquiries, every other inquiry is reported as failed
+     */
+    public ExpiryResult expire(List<Integer> inquiryIds, LocalDate today) {
+        ExpiryResult result = new ExpiryResult();
+        boolean autoCommit = true;
+        int from = 0;
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            for (; from < inquiryIds.size(); from += BATCH_SIZE) {
+                expireBatch(new TreeSet<>(inquiryIds.subList(from, Math.min(from + BATCH_SIZE, inquiryIds.size()))), today, result);
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+            // The current batch and all batches after it have not been written
+            for (int inquiryId : inquiryIds.subList(from, inquiryIds.size())) {
+                result.addFailed(inquiryId);
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expires a batch in one transaction, retrying it on deadlocks and lock wait timeouts
+     */
+    private void expireBatch(TreeSet<Integer> batch, LocalDate today, ExpiryResult result) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            ExpiryResult batchResult = new ExpiryResult();
+            try {
+                writeBatch(batch, today, batchResult);
+                connection.commit();
+                result.getExpired().addAll(batchResult.getExpired());
+                result.getExtended().putAll(batchResult.getExtended());
+                return;
+            } catch (SQLException e) {
+                connection.rollback();
+                boolean retry = e.getErrorCode() == ER_LOCK_DEADLOCK || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                        || "40001".equals(e.getSQLState());
+                if (!retry || attempt == MAX_ATTEMPTS) {
+                    System.out.println(e);
+                    result.getFailed().addAll(batch);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks the inquiries of a batch, checks their reservation and closes the expired ones
+     * without committing
+     */
+    private void writeBatch(TreeSet<Integer> batch, LocalDate today, ExpiryResult result) throws SQLException {
+        ArrayList<Integer> expired = new ArrayList<>();
+        try (PreparedStatement prep = prepareWithIds(
+                "SELECT id, reservation_until FROM inquiry WHERE id IN (%s) AND cancelled_at IS NULL ORDER BY id FOR UPDATE", batch);
+             ResultSet resultSet = prep.executeQuery()) {
+            while (resultSet.next()) {
+                Date reservationUntil = resultSet.getDate("reservation_until");
+                if (reservationUntil == null) {
+                    continue;
+                }
+                LocalDate until = reservationUntil.toLocalDate();
+                if (until.isBefore(today)) {
+                    expired.add(resultSet.getInt("id"));
+                } else {
+                    result.addExtended(resultSet.getInt("id"), until);
+                }
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            try (PreparedStatement close = prepareWithIds("UPDATE inquiry SET cancelled_at = ? WHERE id IN (%s)", expired, 1)) {
+                close.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                close.executeUpdate();
+            }
+            for (int inquiryId : expired) {
+                result.addExpired(inquiryId);
+            }
+        }
+    }
+
+    private PreparedStatement prepareWithIds(String sql, Collection<Integer> ids) throws SQLException {
+        return prepareWithIds(sql, ids, 0);
+    }
+
+    /**
+     * Prepares a statement with one placeholder per id in place of %s and binds the ids after
+     * the given number of leading parameters
+     */
+    private PreparedStatement prepareWithIds(String sql, Collection<Integer> ids, int leading) throws SQLException {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        PreparedStatement prep = connection.prepareStatement(String.format(sql, placeholders));
+        int index = leading + 1;
+        for (int id : ids) {
+            prep.setInt(index++, id);
+        }
+        return prep;
+    }
+}
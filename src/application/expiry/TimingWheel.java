@@ -0,0 +1,217 @@
+package application.expiry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Hierarchical timing wheel of deadlines keyed by id. Every level has 64 slots, a slot of level
+ * n spans 64^n ticks. A deadline is put on the level of the highest 6-bit group in which it
+ * differs from the current tick, so scheduling, rescheduling and cancelling are constant time
+ * and every deadline is moved down at most once per level before it is due. Slots are intrusive
+ * doubly linked lists, the per-deadline overhead is a single node.
+ *
+ * Not thread-safe, all methods have to be called on the same thread.
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // Enough levels for any tick difference that fits into a long
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+    // Level of the timers in the list of due timers
+    private static final int DUE = LEVELS;
+
+    private final long startMillis;
+    private final long tickMillis;
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private final HashMap<Integer, Timer> timers = new HashMap<>();
+    private long currentTick = 0;
+    private Timer due;
+
+    /**
+     * Constructor
+     * @param startMillis Time of tick 0 in milliseconds since the epoch
+     * @param tickMillis  Length of a tick in milliseconds
+     */
+    public TimingWheel(long startMillis, long tickMillis) {
+        this.startMillis = startMillis;
+        this.tickMillis = tickMillis;
+    }
+
+    /**
+     * Schedules a deadline. An existing deadline of the id is replaced. Deadlines are rounded
+     * up to the next tick, deadlines in the past are due on the next advance.
+     *
+     * @param id             Id to schedule
+     * @param deadlineMillis Deadline in milliseconds since the epoch
+     */
+    public void schedule(int id, long deadlineMillis) {
+        Timer timer = timers.get(id);
+        if (timer != null) {
+            unlink(timer);
+        } else {
+            timer = new Timer(id);
+            timers.put(id, timer);
+        }
+        long offset = deadlineMillis - startMillis;
+        timer.tick = offset <= 0 ? 0 : (offset + tickMillis - 1) / tickMillis;
+        insert(timer);
+    }
+
+    /**
+     * Removes the deadline of an id.
+     *
+     * @param id Id to cancel
+     * @return True if the id had a deadline
+     */
+    public boolean cancel(int id) {
+        Timer timer = timers.remove(id);
+        if (timer == null) {
+            return false;
+        }
+        unlink(timer);
+        return true;
+    }
+
+    /**
+     * Returns True if the id has a deadline.
+     *
+     * @param id Id to check
+     * @return True if scheduled
+     */
+    public boolean contains(int id) {
+        return timers.containsKey(id);
+    }
+
+    /**
+     * Returns the number of scheduled deadlines
+     *
+     * @return int Number of deadlines
+     */
+    public int size() {
+        return timers.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and removes all deadlines that are due.
+     *
+     * @param nowMillis Current time in milliseconds since the epoch
+     * @param expired   Receives the ids whose deadline has passed
+     * @return int Number of expired ids
+     */
+    public int advance(long nowMillis, ArrayList<Integer> expired) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        int count = drainDue(expired);
+        while (currentTick < targetTick && !timers.isEmpty()) {
+            currentTick++;
+            // Higher levels first, so that cascaded deadlines reach the lower levels before those are processed
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = level * SLOT_BITS;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> shift) & SLOT_MASK);
+                }
+            }
+            Timer timer = slots[0][(int) currentTick & SLOT_MASK];
+            while (timer != null) {
+                Timer next = timer.next;
+                unlink(timer);
+                pushDue(timer);
+                timer = next;
+            }
+            count += drainDue(expired);
+        }
+        // Nothing is scheduled, the ticks in between need not be visited
+        if (currentTick < targetTick) {
+            currentTick = targetTick;
+        }
+        return count;
+    }
+
+    /**
+     * Moves all deadlines of a slot down to the levels matching their remaining ticks.
+     */
+    private void cascade(int level, int slot) {
+        Timer timer = slots[level][slot];
+        slots[level][slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            timer.level = -1;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(Timer timer) {
+        if (timer.tick <= currentTick) {
+            pushDue(timer);
+            return;
+        }
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(timer.tick ^ currentTick)) / SLOT_BITS;
+        int slot = (int) (timer.tick >>> (level * SLOT_BITS)) & SLOT_MASK;
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slots[level][slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[level][slot] = timer;
+    }
+
+    private void pushDue(Timer timer) {
+        timer.level = DUE;
+        timer.prev = null;
+        timer.next = due;
+        if (due != null) {
+            due.prev = timer;
+        }
+        due = timer;
+    }
+
+    private int drainDue(ArrayList<Integer> expired) {
+        int count = 0;
+        while (due != null) {
+            Timer timer = due;
+            due = timer.next;
+            if (due != null) {
+                due.prev = null;
+            }
+            timer.next = null;
+            timer.level = -1;
+            timers.remove(timer.id);
+            expired.add(timer.id);
+            count++;
+        }
+        return count;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (timer.level == DUE) {
+            due = timer.next;
+        } else if (timer.level >= 0) {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    private static class Timer {
+        final int id;
+        long tick;
+        int level = -1, slot;
+        Timer prev, next;
+
+        Timer(int id) {
+            this.id = id;
+        }
+    }
+}
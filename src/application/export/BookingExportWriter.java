@@ -0,0 +1,138 @@
+package application.export;
+
+import application.enums.ExportFormat;
+import application.interfaces.ExportProgressListener;
+import application.models.Booking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams bookings from a result set into a channel. Rows are encoded into a fixed size
+ * buffer that is written to the channel whenever it is full, so the memory used by an export
+ * does not depend on the number of exported bookings.
+ */
+public abstract class BookingExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_ROWS = 10000;
+
+    private WritableByteChannel channel;
+    private ExportProgressListener listener;
+    protected ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long rows, bytes;
+
+    /**
+     * Creates the writer of a format
+     *
+     * @param format   Format of the export
+     * @param channel  Channel to write to
+     * @param listener Observer of the progress, may be null
+     * @return BookingExportWriter Writer
+     */
+    public static BookingExportWriter create(ExportFormat format, WritableByteChannel channel, ExportProgressListener listener) {
+        switch (format) {
+            case COLUMNAR:
+                return new ColumnarBookingWriter(channel, listener);
+            default:
+                return new CsvBookingWriter(channel, listener);
+        }
+    }
+
+    protected BookingExportWriter(WritableByteChannel channel, ExportProgressListener listener) {
+        this.channel = channel;
+        this.listener = listener;
+    }
+
+    /**
+     * Exports all bookings of a result set. The result set has to provide the columns id,
+     * checkin, checkout, cancelled_at, surname and forename (in this order).
+     *
+     * @param resultSet Result set to export
+     * @return long Number of exported bookings
+     * @throws SQLException On database errors or if the channel cannot be written
+     */
+    public long export(ResultSet resultSet) throws SQLException {
+        try {
+            writeHeader();
+            while (resultSet.next()) {
+                writeRow(
+                    resultSet.getInt(1),
+                    Booking.toEpochDay(resultSet.getDate(2)),
+                    Booking.toEpochDay(resultSet.getDate(3)),
+                    resultSet.getDate(4) != null,
+                    resultSet.getString(5),
+                    resultSet.getString(6)
+                );
+                if (++rows % PROGRESS_INTERVAL_ROWS == 0) {
+                    reportProgress();
+                }
+            }
+            writeFooter();
+            flush();
+            reportProgress();
+            return rows;
+        } catch (IOException | UncheckedIOException e) {
+            throw new SQLException("Export failed: " + e.getMessage(), e);
+        }
+    }
+
+    protected abstract void writeHeader() throws IOException;
+
+    protected abstract void writeRow(int id, int checkinDay, int checkoutDay, boolean cancelled, String surname, String forename) throws IOException;
+
+    protected abstract void writeFooter() throws IOException;
+
+    /**
+     * Makes sure that the buffer has room for a number of bytes, writing it to the channel if not.
+     *
+     * @param size Number of bytes to put next, at most the buffer size
+     * @throws IOException If the channel cannot be written
+     */
+    protected void ensure(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    /**
+     * Puts bytes of any length, writing the buffer to the channel as often as needed.
+     *
+     * @param bytes Bytes to put
+     * @throws IOException If the channel cannot be written
+     */
+    protected void put(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel.
+     *
+     * @throws IOException If the channel cannot be written
+     */
+    protected void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void reportProgress() {
+        if (listener != null) {
+            listener.exportProgress(rows, bytes);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package application.export;
+
+import application.interfaces.ExportProgressListener;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Writes bookings in a compact binary columnar format. The file starts with a magic number
+ * and a format version, followed by blocks of up to BLOCK_ROWS bookings and an empty block
+ * marking the end. All numbers are big endian.
+ *
+ * A block stores its row count, then the columns one after the other: ids, checkin and
+ * checkout as epoch days (Integer.MIN_VALUE if unknown), one cancelled flag byte per row and
+ * the surnames and forenames, each as a dictionary of distinct UTF-8 strings followed by one
+ * dictionary index per row. Only one block is held in memory at a time.
+ */
+class ColumnarBookingWriter extends BookingExportWriter {
+
+    static final int MAGIC = 0x53564243, VERSION = 1;
+    static final int BLOCK_ROWS = 8192;
+
+    private int[] ids = new int[BLOCK_ROWS], checkinDays = new int[BLOCK_ROWS], checkoutDays = new int[BLOCK_ROWS];
+    private boolean[] cancelled = new boolean[BLOCK_ROWS];
+    private StringColumn surnames = new StringColumn(), forenames = new StringColumn();
+    private int blockRows;
+
+    ColumnarBookingWriter(WritableByteChannel channel, ExportProgressListener listener) {
+        super(channel, listener);
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+        ensure(8);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    @Override
+    protected void writeRow(int id, int checkinDay, int checkoutDay, boolean isCancelled, String surname, String forename) throws IOException {
+        ids[blockRows] = id;
+        checkinDays[blockRows] = checkinDay;
+        checkoutDays[blockRows] = checkoutDay;
+        cancelled[blockRows] = isCancelled;
+        surnames.add(blockRows, surname);
+        forenames.add(blockRows, forename);
+        if (++blockRows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+        if (blockRows > 0) {
+            writeBlock();
+        }
+        ensure(4);
+        buffer.putInt(0);
+    }
+
+    private void writeBlock() throws IOException {
+        ensure(4);
+        buffer.putInt(blockRows);
+        putInts(ids);
+        putInts(checkinDays);
+        putInts(checkoutDays);
+        for (int row = 0; row < blockRows; row++) {
+            ensure(1);
+            buffer.put((byte) (cancelled[row] ? 1 : 0));
+        }
+        surnames.write();
+        forenames.write();
+        blockRows = 0;
+    }
+
+    private void putInts(int[] column) throws IOException {
+        for (int row = 0; row < blockRows; row++) {
+            ensure(4);
+            buffer.putInt(column[row]);
+        }
+    }
+
+    /**
+     * Dictionary encoded string column of the current block
+     */
+    private class StringColumn {
+
+        private HashMap<String, Integer> dictionary = new HashMap<>();
+        private String[] values = new String[BLOCK_ROWS];
+        private int[] indexes = new int[BLOCK_ROWS];
+
+        void add(int row, String value) {
+            String key = value != null ? value : "";
+            Integer index = dictionary.get(key);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(key, index);
+                values[index] = key;
+            }
+            indexes[row] = index;
+        }
+
+        void write() throws IOException {
+            ensure(4);
+            buffer.putInt(dictionary.size());
+            for (int i = 0; i < dictionary.size(); i++) {
+                byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+                ensure(4);
+                buffer.putInt(bytes.length);
+                put(bytes);
+                values[i] = null;
+            }
+            putInts(indexes);
+            dictionary.clear();
+        }
+    }
+}
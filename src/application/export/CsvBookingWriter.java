@@ -0,0 +1,109 @@
+package application.export;
+
+import application.interfaces.ExportProgressListener;
+import application.models.Booking;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes bookings as UTF-8 encoded CSV (RFC 4180) with a header line. Dates are written as
+ * yyyy-mm-dd, unknown dates as empty fields. Names containing separators, quotes or line
+ * breaks are quoted.
+ */
+class CsvBookingWriter extends BookingExportWriter {
+
+    private static final byte[] HEADER = "id,checkin,checkout,cancelled,surname,forename\r\n".getBytes(StandardCharsets.US_ASCII);
+    // Longest row apart from the names: id, two dates, flag and separators
+    private static final int MAX_FIXED_ROW_SIZE = 11 + 2 * 11 + 2 + 6;
+
+    CsvBookingWriter(WritableByteChannel channel, ExportProgressListener listener) {
+        super(channel, listener);
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+        put(HEADER);
+    }
+
+    @Override
+    protected void writeRow(int id, int checkinDay, int checkoutDay, boolean cancelled, String surname, String forename) throws IOException {
+        ensure(MAX_FIXED_ROW_SIZE);
+        putNumber(id);
+        buffer.put((byte) ',');
+        putDate(checkinDay);
+        buffer.put((byte) ',');
+        putDate(checkoutDay);
+        buffer.put((byte) ',');
+        buffer.put((byte) (cancelled ? '1' : '0'));
+        buffer.put((byte) ',');
+        putText(surname);
+        ensure(1);
+        buffer.put((byte) ',');
+        putText(forename);
+        ensure(2);
+        buffer.put((byte) '\r');
+        buffer.put((byte) '\n');
+    }
+
+    @Override
+    protected void writeFooter() {
+    }
+
+    private void putNumber(int value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private void putDigits(int value, int digits) {
+        for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private void putDate(int epochDay) {
+        if (epochDay == Booking.NO_DATE) {
+            return;
+        }
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        putDigits(date.getYear(), 4);
+        buffer.put((byte) '-');
+        putDigits(date.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Puts a text field. Plain ASCII text is copied straight into the buffer, anything else is
+     * quoted and encoded as UTF-8.
+     */
+    private void putText(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        boolean plain = text.length() <= buffer.capacity();
+        for (int i = 0; i < text.length() && plain; i++) {
+            char c = text.charAt(i);
+            plain = c >= 0x20 && c < 0x80 && c != ',' && c != '"';
+        }
+        if (plain) {
+            ensure(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        } else {
+            put(("\"" + text.replace("\"", "\"\"") + "\"").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
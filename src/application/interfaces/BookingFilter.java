@@ -0,0 +1,10 @@
+package application.interfaces;
+
+import application.models.BookingStore;
+
+/**
+ * Interface for filters of the rows of a BookingStore
+ */
+public interface BookingFilter {
+    boolean accept(BookingStore store, int row);
+}
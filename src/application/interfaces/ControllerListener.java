@@ -12,5 +12,11 @@ public interface ControllerListener {
     void toggleDatabaseConnection();
     void timeframeChanged(LocalDate from, LocalDate to, String timeframeId);
     void roomTypeChanged(RoomType roomType);
+    void bookingSearchChanged(String query);
+    void hideCancelledChanged(boolean hideCancelled);
+    void assignRoomsRequested();
+    void occupancyReportRequested();
+    void exportBookingsRequested();
+    void bookInquiryRequested();
 
 }
@@ -0,0 +1,8 @@
+package application.interfaces;
+
+/**
+ * Interface for observers of a running export
+ */
+public interface ExportProgressListener {
+    void exportProgress(long rows, long bytes);
+}
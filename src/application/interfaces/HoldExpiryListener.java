@@ -0,0 +1,10 @@
+package application.interfaces;
+
+import java.util.List;
+
+/**
+ * Interface for observers of expired inquiry holds
+ */
+public interface HoldExpiryListener {
+    void holdsExpired(List<Integer> inquiryIds);
+}
@@ -0,0 +1,12 @@
+package application.interfaces;
+
+import application.models.BookingStore;
+
+import java.sql.SQLException;
+
+/**
+ * Interface for loading all bookings overlapping a range of epoch days
+ */
+public interface RangeLoader {
+    BookingStore load(int fromDay, int toDay) throws SQLException;
+}
@@ -0,0 +1,11 @@
+package application.interfaces;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Interface for mapping a query result to models
+ */
+public interface ResultMapper<T> {
+    T map(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,11 @@
+package application.interfaces;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Interface for binding query parameters to a prepared statement
+ */
+public interface StatementBinder {
+    void bind(PreparedStatement statement) throws SQLException;
+}
@@ -0,0 +1,8 @@
+package application.interfaces;
+
+/**
+ * Interface for observers of executed database statements
+ */
+public interface StatementListener {
+    void statementExecuted(String key, long nanos, boolean failed);
+}
@@ -0,0 +1,62 @@
+package application.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+/**
+ * Wraps a result set to measure the time spent fetching rows. All calls are passed through to
+ * the wrapped result set; calls to next() are timed and successful ones counted as rows.
+ */
+public class ResultSetTimer implements InvocationHandler {
+
+    private ResultSet resultSet;
+    private ResultSet proxy;
+    private long fetchNanos, rows;
+
+    /**
+     * Constructor
+     * @param resultSet Result set to wrap
+     */
+    public ResultSetTimer(ResultSet resultSet) {
+        this.resultSet = resultSet;
+        this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+    }
+
+    /**
+     * Returns the timed result set, to be used instead of the wrapped one
+     *
+     * @return ResultSet Timed result set
+     */
+    public ResultSet getResultSet() {
+        return proxy;
+    }
+
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        try {
+            if (args == null && method.getName().equals("next")) {
+                long start = System.nanoTime();
+                boolean hasRow = resultSet.next();
+                fetchNanos += System.nanoTime() - start;
+                if (hasRow) {
+                    rows++;
+                }
+                return hasRow;
+            }
+            return method.invoke(resultSet, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
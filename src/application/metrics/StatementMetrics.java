@@ -0,0 +1,102 @@
+package application.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the metrics of all prepared statements. The metrics of every statement are
+ * registered as MBean "application:type=StatementMetrics,statement=<key>" on the platform
+ * MBean server when the statement runs for the first time, so they can be inspected with
+ * JConsole or any other JMX client.
+ */
+public class StatementMetrics {
+
+    private static final String OBJECT_NAME = "application:type=StatementMetrics,statement=";
+
+    private ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private boolean registerMBeans;
+
+    /**
+     * Constructor
+     * @param registerMBeans True to register the metrics on the platform MBean server
+     */
+    public StatementMetrics(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    /**
+     * Returns the metrics of a statement, creating them on first use
+     *
+     * @param key Key of the prepared statement
+     * @return StatementStats Metrics of the statement
+     */
+    public StatementStats get(String key) {
+        StatementStats stats = statements.get(key);
+        if (stats == null) {
+            StatementStats created = new StatementStats(key);
+            stats = statements.putIfAbsent(key, created);
+            if (stats == null) {
+                stats = created;
+                if (registerMBeans) {
+                    register(created);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the metrics of all statements that have run so far
+     *
+     * @return ArrayList<StatementStats> Metrics, sorted by total time spent, highest first
+     */
+    public ArrayList<StatementStats> getAll() {
+        ArrayList<StatementStats> all = new ArrayList<>(statements.values());
+        all.sort((StatementStats a, StatementStats b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+        return all;
+    }
+
+    /**
+     * Resets the metrics of all statements
+     */
+    public void reset() {
+        for (StatementStats stats : statements.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Removes all MBeans registered by this registry
+     */
+    public void unregister() {
+        if (!registerMBeans) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String key : statements.keySet()) {
+            try {
+                ObjectName name = new ObjectName(OBJECT_NAME + ObjectName.quote(key));
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                System.out.println(e);
+            }
+        }
+    }
+
+    private static void register(StatementStats stats) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME + ObjectName.quote(stats.getKey()));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(stats, name);
+            }
+        } catch (Exception e) {
+            System.out.println(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package application.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of a single prepared statement. Every execution is split into three phases:
+ *
+ *   - execution: from sending the statement until the driver returns the result set
+ *   - fetch: time spent in ResultSet.next(), i.e. reading rows from the server
+ *   - mapping: the rest of the time spent in the result mapper, i.e. building the models
+ */
+public class StatementStats implements StatementStatsMXBean {
+
+    private String key;
+    private LatencyHistogram execution = new LatencyHistogram(), fetch = new LatencyHistogram(), mapping = new LatencyHistogram();
+    private AtomicLong errors = new AtomicLong(), rows = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param key Key of the prepared statement
+     */
+    public StatementStats(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Records a successful execution
+     *
+     * @param executionNanos Execution time
+     * @param fetchNanos     Fetch time
+     * @param mappingNanos   Mapping time
+     * @param rowCount       Number of rows read
+     */
+    public void record(long executionNanos, long fetchNanos, long mappingNanos, long rowCount) {
+        execution.record(executionNanos);
+        fetch.record(fetchNanos);
+        mapping.record(mappingNanos);
+        rows.addAndGet(rowCount);
+    }
+
+    /**
+     * Records a failed execution
+     */
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public LatencyHistogram getExecution() {
+        return execution;
+    }
+
+    public LatencyHistogram getFetch() {
+        return fetch;
+    }
+
+    public LatencyHistogram getMapping() {
+        return mapping;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public long getExecutions() {
+        return execution.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.get();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return (execution.getTotal() + fetch.getTotal() + mapping.getTotal()) / 1e6;
+    }
+
+    @Override
+    public double getExecutionP50Millis() {
+        return execution.getValueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getExecutionP99Millis() {
+        return execution.getValueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getExecutionP999Millis() {
+        return execution.getValueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getFetchP50Millis() {
+        return fetch.getValueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getFetchP99Millis() {
+        return fetch.getValueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getFetchP999Millis() {
+        return fetch.getValueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getMappingP50Millis() {
+        return mapping.getValueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getMappingP99Millis() {
+        return mapping.getValueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMappingP999Millis() {
+        return mapping.getValueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        execution.reset();
+        fetch.reset();
+        mapping.reset();
+        errors.set(0);
+        rows.set(0);
+    }
+}
@@ -0,0 +1,36 @@
+package application.metrics;
+
+/**
+ * JMX interface of the metrics of a single prepared statement. Durations are in milliseconds.
+ */
+public interface StatementStatsMXBean {
+    String getKey();
+
+    long getExecutions();
+
+    long getErrors();
+
+    long getRows();
+
+    double getTotalMillis();
+
+    double getExecutionP50Millis();
+
+    double getExecutionP99Millis();
+
+    double getExecutionP999Millis();
+
+    double getFetchP50Millis();
+
+    double getFetchP99Millis();
+
+    double getFetchP999Millis();
+
+    double getMappingP50Millis();
+
+    double getMappingP99Millis();
+
+    double getMappingP999Millis();
+
+    void reset();
+}
@@ -0,0 +1,161 @@
+package application.migrations;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Applies versioned schema migrations. Migrations are SQL scripts next to this class, named
+ * V<version>__<description>.sql, and are applied in the order of MIGRATIONS. Applied versions
+ * are recorded in the table schema_version, so every migration runs only once per database.
+ * Concurrent migrations of the same database are serialized by a named lock.
+ */
+public class SchemaMigrator {
+
+    private static final String[] MIGRATIONS = {
+            "V001__index_pack.sql",
+            "V002__booking_created_at.sql",
+            "V003__booking_auto_increment.sql",
+            "V004__booking_updated_at.sql"
+    };
+
+    // MySQL error codes for a column, an index or a trigger name that already exists
+    private static final int ER_DUP_FIELDNAME = 1060, ER_DUP_KEYNAME = 1061, ER_TRG_ALREADY_EXISTS = 1359;
+    private static final String LOCK_NAME = "starview.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private Connection connection;
+
+    /**
+     * Constructor
+     * @param connection Connection to migrate the schema on
+     */
+    public SchemaMigrator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Applies all migrations that have not been applied yet
+     *
+     * @return int Number of applied migrations
+     * @throws SQLException If a migration fails
+     */
+    public int migrate() throws SQLException {
+        lock();
+        try {
+            return migrateLocked();
+        } finally {
+            unlock();
+        }
+    }
+
+    private int migrateLocked() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("" +
+                    "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        HashSet<Integer> applied = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM schema_version")) {
+            while (resultSet.next()) {
+                applied.add(resultSet.getInt(1));
+            }
+        }
+
+        int count = 0;
+        for (String migration : MIGRATIONS) {
+            int version = Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+            if (!applied.contains(version)) {
+                apply(migration, version);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Waits for the named migration lock, so that a second client reads schema_version only
+     * after the first one has recorded its migrations.
+     */
+    private void lock() throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            prep.setString(1, LOCK_NAME);
+            prep.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = prep.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Schema migration lock not acquired within " + LOCK_TIMEOUT_SECONDS + " seconds");
+                }
+            }
+        }
+    }
+
+    private void unlock() throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            prep.setString(1, LOCK_NAME);
+            prep.executeQuery().close();
+        }
+    }
+
+    private void apply(String migration, int version) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : readStatements(migration)) {
+                try {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    // Columns, indexes and triggers may have been created by hand before migrations existed
+                    if (e.getErrorCode() != ER_DUP_FIELDNAME && e.getErrorCode() != ER_DUP_KEYNAME
+                            && e.getErrorCode() != ER_TRG_ALREADY_EXISTS) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement prep = connection.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            prep.setInt(1, version);
+            prep.setString(2, migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' '));
+            prep.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads the statements of a migration script. Statements are separated by semicolons,
+     * lines starting with -- are comments.
+     */
+    private static String[] readStatements(String migration) throws SQLException {
+        InputStream input = SchemaMigrator.class.getResourceAsStream(migration);
+        if (input == null) {
+            throw new SQLException("Migration " + migration + " not found");
+        }
+
+        StringBuilder script = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Migration " + migration + " could not be read", e);
+        }
+
+        return Arrays.stream(script.toString().split(";"))
+                .map(String::trim)
+                .filter((String sql) -> !sql.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,14 @@
+-- Supports the timeframe filters and the overlap checks on bookings
+CREATE INDEX idx_booking_timeframe ON booking (checkin, checkout, cancelled_at);
+
+-- Supports the anti-join from rooms to their bookings
+CREATE INDEX idx_booking_room_room ON booking_room (room_id, booking_id);
+
+-- Supports the anti-join from rooms to their inquiries
+CREATE INDEX idx_inquiry_room_room ON inquiry_room (room_id, inquiry_id);
+
+-- Supports the overlap checks on inquiries
+CREATE INDEX idx_inquiry_timeframe ON inquiry (`from`, `to`);
+
+-- Supports the join to the responsible person of a booking
+CREATE INDEX idx_booking_person_responsible ON booking_person (booking_id, isResponsible);
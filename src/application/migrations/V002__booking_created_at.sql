@@ -0,0 +1,2 @@
+-- Records when a booking was made, used for the lead time of the occupancy analytics
+ALTER TABLE booking ADD COLUMN created_at DATETIME NULL;
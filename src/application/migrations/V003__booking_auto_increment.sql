@@ -0,0 +1,5 @@
+-- Lets the server allocate booking ids, so converters no longer lock MAX(id) of the whole table.
+-- booking_person and booking_room reference booking.id, MySQL refuses to modify it while checked.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE booking MODIFY id INT NOT NULL AUTO_INCREMENT;
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,16 @@
+-- Records the last change of a booking. The delta sync fetches the bookings changed after the
+-- (updated_at, id) mark of its previous run, the index keeps that an index range scan.
+ALTER TABLE booking ADD COLUMN updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP;
+CREATE INDEX idx_booking_updated ON booking (updated_at, id);
+
+-- The names shown with a booking belong to its responsible person, changing them or the
+-- responsible person changes the booking as well
+CREATE TRIGGER trg_person_updated AFTER UPDATE ON person FOR EACH ROW
+    UPDATE booking b INNER JOIN booking_person bp ON bp.booking_id = b.id
+    SET b.updated_at = CURRENT_TIMESTAMP
+    WHERE bp.person_id = NEW.id AND bp.isResponsible = TRUE
+    AND NOT (NEW.surname <=> OLD.surname AND NEW.forename <=> OLD.forename);
+CREATE TRIGGER trg_booking_person_inserted AFTER INSERT ON booking_person FOR EACH ROW
+    UPDATE booking SET updated_at = CURRENT_TIMESTAMP WHERE id = NEW.booking_id;
+CREATE TRIGGER trg_booking_person_updated AFTER UPDATE ON booking_person FOR EACH ROW
+    UPDATE booking SET updated_at = CURRENT_TIMESTAMP WHERE id = NEW.booking_id;
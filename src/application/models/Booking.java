@@ -6,16 +6,28 @@ import javafx.beans.property.SimpleStringProperty;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 
 /**
  * Model for Bookings. Used to display table rows.
+ *
+ * Values are kept as primitives, dates as epoch days. The JavaFX properties used by the table
+ * cells are only created when a cell asks for them.
  */
 public class Booking {
-    public SimpleIntegerProperty id;
-    public SimpleStringProperty checkin, checkout, surname, forename;
-    public SimpleBooleanProperty cancelled_at;
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private int id, checkinDay, checkoutDay;
+    private boolean cancelled;
+    private String surname, forename;
+
+    private SimpleIntegerProperty idProperty;
+    private SimpleStringProperty checkinProperty, checkoutProperty, surnameProperty, forenameProperty;
+    private SimpleBooleanProperty cancelledProperty;
 
     public static Booking mapSingleFromDatabase(ResultSet resultSet) throws SQLException {
         ArrayList<Booking> list = Booking.mapListFromDatabase(resultSet);
@@ -31,7 +43,7 @@ public class Booking {
                 resultSet.getInt("id"),
                 resultSet.getDate("checkin"),
                 resultSet.getDate("checkout"),
-                resultSet.getBoolean("cancelled_at"),
+                resultSet.getDate("cancelled_at") != null,
                 resultSet.getString("surname"),
                 resultSet.getString("forename")
             ));
@@ -41,11 +53,135 @@ public class Booking {
     }
 
     public Booking(int id, Date checkin, Date checkout, boolean cancelled_at, String surname, String forename) {
-        this.id = new SimpleIntegerProperty(id);
-        this.checkin = checkin != null ? new SimpleStringProperty(checkin.toString()) : null;
-        this.checkout = checkout != null ? new SimpleStringProperty(checkout.toString()) : null;
-        this.cancelled_at = new SimpleBooleanProperty(cancelled_at);
-        this.surname = new SimpleStringProperty(surname != null ? surname : "");
-        this.forename = new SimpleStringProperty(forename != null ? forename : "");
+        this(id, toEpochDay(checkin), toEpochDay(checkout), cancelled_at, surname, forename);
+    }
+
+    public Booking(int id, int checkinDay, int checkoutDay, boolean cancelled, String surname, String forename) {
+        this.id = id;
+        this.checkinDay = checkinDay;
+        this.checkoutDay = checkoutDay;
+        this.cancelled = cancelled;
+        this.surname = surname != null ? surname : "";
+        this.forename = forename != null ? forename : "";
+    }
+
+    /**
+     * Utility method to convert a date to an epoch day
+     *
+     * @param date Date to convert, may be null
+     * @return int Epoch day, NO_DATE for null
+     */
+    public static int toEpochDay(Date date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Utility method to convert an epoch day to a date
+     *
+     * @param epochDay Epoch day to convert
+     * @return LocalDate Date, null for NO_DATE
+     */
+    public static LocalDate toLocalDate(int epochDay) {
+        return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getCheckinDay() {
+        return checkinDay;
+    }
+
+    public int getCheckoutDay() {
+        return checkoutDay;
+    }
+
+    public LocalDate getCheckin() {
+        return toLocalDate(checkinDay);
+    }
+
+    public LocalDate getCheckout() {
+        return toLocalDate(checkoutDay);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public String getForename() {
+        return forename;
+    }
+
+    public SimpleIntegerProperty idProperty() {
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(id);
+        }
+        return idProperty;
+    }
+
+    /**
+     * Returns the checkin date as string property
+     *
+     * @return SimpleStringProperty Checkin date, null if the booking has no checkin date
+     */
+    public SimpleStringProperty checkinProperty() {
+        if (checkinProperty == null && checkinDay != NO_DATE) {
+            checkinProperty = new SimpleStringProperty(getCheckin().toString());
+        }
+        return checkinProperty;
+    }
+
+    /**
+     * Returns the checkout date as string property
+     *
+     * @return SimpleStringProperty Checkout date, null if the booking has no checkout date
+     */
+    public SimpleStringProperty checkoutProperty() {
+        if (checkoutProperty == null && checkoutDay != NO_DATE) {
+            checkoutProperty = new SimpleStringProperty(getCheckout().toString());
+        }
+        return checkoutProperty;
+    }
+
+    public SimpleBooleanProperty cancelledProperty() {
+        if (cancelledProperty == null) {
+            cancelledProperty = new SimpleBooleanProperty(cancelled);
+        }
+        return cancelledProperty;
+    }
+
+    public SimpleStringProperty surnameProperty() {
+        if (surnameProperty == null) {
+            surnameProperty = new SimpleStringProperty(surname);
+        }
+        return surnameProperty;
+    }
+
+    public SimpleStringProperty forenameProperty() {
+        if (forenameProperty == null) {
+            forenameProperty = new SimpleStringProperty(forename);
+        }
+        return forenameProperty;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Booking && ((Booking) other).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
     }
 }
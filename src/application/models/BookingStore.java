@@ -0,0 +1,279 @@
+package application.models;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Columnar store for bookings. Every column is a primitive array, dates are stored as epoch
+ * days and names are dictionary encoded. Booking objects are only created when a row is
+ * accessed, e.g. for a visible table cell.
+ */
+public class BookingStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int BYTES_PER_ROW = 5 * 4 + 1;
+
+    private int size = 0;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] checkinDays = new int[INITIAL_CAPACITY];
+    private int[] checkoutDays = new int[INITIAL_CAPACITY];
+    private int[] surnameCodes = new int[INITIAL_CAPACITY];
+    private int[] forenameCodes = new int[INITIAL_CAPACITY];
+    private boolean[] cancelled = new boolean[INITIAL_CAPACITY];
+
+    private ArrayList<String> dictionary = new ArrayList<>();
+    private HashMap<String, Integer> dictionaryCodes = new HashMap<>();
+    private HashMap<Integer, Integer> rowsById;
+
+    public static BookingStore mapFromDatabase(ResultSet resultSet) throws SQLException {
+
+        BookingStore store = new BookingStore();
+        int id = resultSet.findColumn("id"),
+                checkin = resultSet.findColumn("checkin"),
+                checkout = resultSet.findColumn("checkout"),
+                cancelledAt = resultSet.findColumn("cancelled_at"),
+                surname = resultSet.findColumn("surname"),
+                forename = resultSet.findColumn("forename");
+
+        while (resultSet.next()) {
+            store.add(
+                resultSet.getInt(id),
+                Booking.toEpochDay(resultSet.getDate(checkin)),
+                Booking.toEpochDay(resultSet.getDate(checkout)),
+                resultSet.getDate(cancelledAt) != null,
+                resultSet.getString(surname),
+                resultSet.getString(forename)
+            );
+        }
+
+        return store;
+    }
+
+    /**
+     * Appends a booking.
+     *
+     * @param id          Id of the booking
+     * @param checkinDay  Checkin as epoch day, Booking.NO_DATE if unknown
+     * @param checkoutDay Checkout as epoch day, Booking.NO_DATE if unknown
+     * @param isCancelled True if the booking has been cancelled
+     * @param surname     Surname of the responsible person
+     * @param forename    Forename of the responsible person
+     */
+    public void add(int id, int checkinDay, int checkoutDay, boolean isCancelled, String surname, String forename) {
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        set(size, id, checkinDay, checkoutDay, isCancelled, surname, forename);
+        if (rowsById != null) {
+            rowsById.put(id, size);
+        }
+        size++;
+    }
+
+    /**
+     * Replaces the values of a row. The id of the row must not change.
+     *
+     * @param row     Row to replace
+     * @param booking New values
+     */
+    public void set(int row, Booking booking) {
+        set(row, booking.getId(), booking.getCheckinDay(), booking.getCheckoutDay(), booking.isCancelled(),
+                booking.getSurname(), booking.getForename());
+    }
+
+    /**
+     * Replaces the values of a row with a row of another store. The id of the row must not change.
+     *
+     * @param row      Row to replace
+     * @param other    Store to copy from
+     * @param otherRow Row of the other store
+     */
+    public void setRow(int row, BookingStore other, int otherRow) {
+        set(row, other.ids[otherRow], other.checkinDays[otherRow], other.checkoutDays[otherRow], other.cancelled[otherRow],
+                other.getSurname(otherRow), other.getForename(otherRow));
+    }
+
+    /**
+     * Returns the row of a booking id. The id lookup table is built on first use.
+     *
+     * @param id Id of the booking
+     * @return int Row of the booking, -1 if the store does not contain it
+     */
+    public int indexOf(int id) {
+        if (rowsById == null) {
+            rowsById = new HashMap<>(size * 2);
+            for (int row = 0; row < size; row++) {
+                rowsById.put(ids[row], row);
+            }
+        }
+        Integer row = rowsById.get(id);
+        return row != null ? row : -1;
+    }
+
+    /**
+     * Removes rows, keeping the order of the remaining rows.
+     *
+     * @param remove Flag per row, True to remove the row
+     */
+    public void removeRows(boolean[] remove) {
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (!remove[row]) {
+                ids[kept] = ids[row];
+                checkinDays[kept] = checkinDays[row];
+                checkoutDays[kept] = checkoutDays[row];
+                surnameCodes[kept] = surnameCodes[row];
+                forenameCodes[kept] = forenameCodes[row];
+                cancelled[kept] = cancelled[row];
+                kept++;
+            }
+        }
+        if (kept != size) {
+            size = kept;
+            rowsById = null;
+        }
+    }
+
+    /**
+     * Returns the highest booking id of the store
+     *
+     * @return int Highest id, 0 if the store is empty
+     */
+    public int getMaxId() {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            max = Math.max(max, ids[row]);
+        }
+        return max;
+    }
+
+    /**
+     * Appends a booking.
+     *
+     * @param booking Booking to append
+     */
+    public void add(Booking booking) {
+        add(booking.getId(), booking.getCheckinDay(), booking.getCheckoutDay(), booking.isCancelled(),
+                booking.getSurname(), booking.getForename());
+    }
+
+    /**
+     * Appends a row of another store.
+     *
+     * @param other Store to copy from
+     * @param row   Row of the other store
+     */
+    public void addRow(BookingStore other, int row) {
+        add(other.ids[row], other.checkinDays[row], other.checkoutDays[row], other.cancelled[row],
+                other.getSurname(row), other.getForename(row));
+    }
+
+    /**
+     * Returns the number of bookings
+     *
+     * @return int Number of bookings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a booking object for a row.
+     *
+     * @param row Row of the store
+     * @return Booking Booking of the row
+     */
+    public Booking get(int row) {
+        return new Booking(ids[row], checkinDays[row], checkoutDays[row], cancelled[row], getSurname(row), getForename(row));
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public int getCheckinDay(int row) {
+        return checkinDays[row];
+    }
+
+    public int getCheckoutDay(int row) {
+        return checkoutDays[row];
+    }
+
+    public boolean isCancelled(int row) {
+        return cancelled[row];
+    }
+
+    public String getSurname(int row) {
+        return dictionary.get(surnameCodes[row]);
+    }
+
+    public String getForename(int row) {
+        return dictionary.get(forenameCodes[row]);
+    }
+
+    public int getSurnameCode(int row) {
+        return surnameCodes[row];
+    }
+
+    public int getForenameCode(int row) {
+        return forenameCodes[row];
+    }
+
+    /**
+     * Returns the number of distinct names in the dictionary
+     *
+     * @return int Number of names, codes range from 0 to this number - 1
+     */
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    public String getName(int code) {
+        return dictionary.get(code);
+    }
+
+    /**
+     * Returns the estimated heap usage of the store
+     *
+     * @return long Estimated number of bytes
+     */
+    public long estimateBytes() {
+        long bytes = (long) ids.length * BYTES_PER_ROW;
+        for (String name : dictionary) {
+            bytes += 48 + 2L * name.length();
+        }
+        return bytes;
+    }
+
+    private void set(int row, int id, int checkinDay, int checkoutDay, boolean isCancelled, String surname, String forename) {
+        ids[row] = id;
+        checkinDays[row] = checkinDay;
+        checkoutDays[row] = checkoutDay;
+        cancelled[row] = isCancelled;
+        surnameCodes[row] = encode(surname);
+        forenameCodes[row] = encode(forename);
+    }
+
+    private int encode(String name) {
+        String value = name != null ? name : "";
+        Integer code = dictionaryCodes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            dictionaryCodes.put(value, code);
+        }
+        return code;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        checkinDays = Arrays.copyOf(checkinDays, capacity);
+        checkoutDays = Arrays.copyOf(checkoutDays, capacity);
+        surnameCodes = Arrays.copyOf(surnameCodes, capacity);
+        forenameCodes = Arrays.copyOf(forenameCodes, capacity);
+        cancelled = Arrays.copyOf(cancelled, capacity);
+    }
+}
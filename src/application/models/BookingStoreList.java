@@ -0,0 +1,388 @@
+package application.models;
+
+import application.interfaces.BookingFilter;
+import application.search.NameIndex;
+import application.view.BookingSortKey;
+import application.view.BookingViewEngine;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Observable list view of a BookingStore. Booking objects are created per access,
+ * so only the rows displayed by the table ever exist as objects.
+ *
+ * The list can be filtered by a guest name query and by row filters, and sorted by several
+ * columns. Filtered or sorted lists show a permutation of the store rows computed by the
+ * BookingViewEngine, the store itself keeps its order. The name index used for the query is
+ * built on first use and kept up to date with the store afterwards.
+ */
+public class BookingStoreList extends ObservableListBase<Booking> {
+
+    private BookingStore store;
+    private NameIndex nameIndex;
+    private BookingViewEngine viewEngine;
+    private String query;
+    private LinkedHashMap<String, BookingFilter> filters = new LinkedHashMap<>();
+    private List<BookingSortKey> sortKeys = new ArrayList<>();
+    private int[] visibleRows;
+
+    /**
+     * Constructor
+     * @param store Store to show
+     */
+    public BookingStoreList(BookingStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Replaces the store shown by this list
+     *
+     * @param newStore New store
+     */
+    public void setStore(BookingStore newStore) {
+        nameIndex = null;
+        replaceStore(newStore);
+    }
+
+    public BookingStore getStore() {
+        return store;
+    }
+
+    /**
+     * Filters the list by guest names. Only bookings whose responsible person matches all
+     * terms of the query are shown.
+     *
+     * @param newQuery Terms separated by whitespace, null or blank to show all bookings
+     */
+    public void setQuery(String newQuery) {
+        query = newQuery != null && !newQuery.trim().isEmpty() ? newQuery : null;
+        refresh();
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Sets or removes a row filter. Only rows accepted by the query and all filters are shown.
+     *
+     * @param key    Key of the filter, replaces the filter set for the same key
+     * @param filter Filter to set, null to remove the filter
+     */
+    public void setFilter(String key, BookingFilter filter) {
+        if (filter != null) {
+            filters.put(key, filter);
+        } else {
+            filters.remove(key);
+        }
+        refresh();
+    }
+
+    /**
+     * Sorts the list. The sort order is kept when the store or the filters change.
+     *
+     * @param keys Sort keys, most significant first, empty for store order
+     */
+    public void setSortOrder(List<BookingSortKey> keys) {
+        sortKeys = new ArrayList<>(keys);
+        refresh();
+    }
+
+    /**
+     * Replaces the content with the given bookings, e.g. after the table has sorted them.
+     * While the list is filtered or sorted, only the order of the shown bookings changes.
+     *
+     * @param bookings New content
+     * @return True
+     */
+    @Override
+    public boolean setAll(Collection<? extends Booking> bookings) {
+        if (visibleRows != null) {
+            List<Booking> removed = currentRows();
+            int[] rows = new int[bookings.size()];
+            int i = 0;
+            for (Booking booking : bookings) {
+                rows[i++] = store.indexOf(booking.getId());
+            }
+            visibleRows = rows;
+            fireReplace(removed);
+            return true;
+        }
+
+        BookingStore newStore = new BookingStore();
+        for (Booking booking : bookings) {
+            newStore.add(booking);
+        }
+        replaceStore(newStore);
+        return true;
+    }
+
+    /**
+     * Applies a delta to the store in place with minimal, id-keyed changes: removed bookings
+     * are removed, changed bookings are replaced in place and new bookings are appended.
+     * Rows that are not affected keep their position, so the table keeps its selection.
+     * While the list is filtered or sorted, the view engine is updated with the touched rows
+     * and the view is computed again without sorting the untouched rows.
+     *
+     * @param changed    New or changed bookings
+     * @param removedIds Ids of removed bookings
+     */
+    public void applyDelta(BookingStore changed, Set<Integer> removedIds) {
+        if (nameIndex != null) {
+            for (int id : removedIds) {
+                nameIndex.remove(id);
+            }
+            for (int i = 0; i < changed.size(); i++) {
+                nameIndex.put(changed.getId(i), changed.getSurname(i), changed.getForename(i));
+            }
+        }
+
+        boolean notify = visibleRows == null;
+        int[] shownRows = visibleRows;
+        // Values of the rows changed or removed in place, as shown before the delta
+        BookingStore before = new BookingStore();
+        int[] beforeRows = new int[notify ? 0 : store.size()];
+        Arrays.fill(beforeRows, -1);
+
+        if (notify) {
+            beginChange();
+        }
+        ArrayList<Integer> touched = new ArrayList<>();
+        ArrayList<Integer> appended = new ArrayList<>();
+        for (int i = 0; i < changed.size(); i++) {
+            int row = store.indexOf(changed.getId(i));
+            if (row < 0) {
+                appended.add(i);
+            } else if (!removedIds.contains(changed.getId(i)) && !sameValues(store, row, changed, i)) {
+                if (notify) {
+                    nextSet(row, store.get(row));
+                } else {
+                    beforeRows[row] = before.size();
+                    before.addRow(store, row);
+                }
+                store.setRow(row, changed, i);
+                touched.add(row);
+            }
+        }
+
+        int[] rowMap = new int[store.size()];
+        boolean[] remove = new boolean[store.size()];
+        for (int row = store.size() - 1; row >= 0; row--) {
+            if (!removedIds.isEmpty() && removedIds.contains(store.getId(row))) {
+                remove[row] = true;
+                if (notify) {
+                    nextRemove(row, store.get(row));
+                } else if (beforeRows[row] < 0) {
+                    beforeRows[row] = before.size();
+                    before.addRow(store, row);
+                }
+            }
+        }
+        for (int row = 0, kept = 0; row < rowMap.length; row++) {
+            rowMap[row] = remove[row] ? -1 : kept++;
+        }
+        store.removeRows(remove);
+
+        int[] touchedRows = new int[touched.size() + appended.size()];
+        int t = 0;
+        for (int row : touched) {
+            if (rowMap[row] >= 0) {
+                touchedRows[t++] = rowMap[row];
+            }
+        }
+        for (int i : appended) {
+            store.addRow(changed, i);
+            touchedRows[t++] = store.size() - 1;
+            if (notify) {
+                nextAdd(store.size() - 1, store.size());
+            }
+        }
+        if (viewEngine != null) {
+            viewEngine.update(rowMap, Arrays.copyOf(touchedRows, t));
+        }
+
+        if (notify) {
+            endChange();
+            return;
+        }
+        visibleRows = computeRows();
+        fireReplace(shownRows(shownRows, before, beforeRows, rowMap));
+    }
+
+    /**
+     * Returns a view of the bookings shown before a delta. Rows changed or removed by the
+     * delta are read from their copies, all other rows from the store.
+     */
+    private List<Booking> shownRows(int[] shownRows, BookingStore before, int[] beforeRows, int[] rowMap) {
+        BookingStore shownStore = store;
+        return new AbstractList<Booking>() {
+            @Override
+            public Booking get(int index) {
+                int row = shownRows[index];
+                return beforeRows[row] >= 0 ? before.get(beforeRows[row]) : shownStore.get(rowMap[row]);
+            }
+
+            @Override
+            public int size() {
+                return shownRows.length;
+            }
+        };
+    }
+
+    private void replaceStore(BookingStore newStore) {
+        List<Booking> removed = currentRows();
+        store = newStore;
+        viewEngine = null;
+        visibleRows = computeRows();
+        fireReplace(removed);
+    }
+
+    private void refresh() {
+        List<Booking> removed = currentRows();
+        visibleRows = computeRows();
+        fireReplace(removed);
+    }
+
+    /**
+     * Computes the rows shown by a filtered or sorted list
+     *
+     * @return int[] Shown rows in order, null if the list shows the whole store in store order
+     */
+    private int[] computeRows() {
+        if (query == null && filters.isEmpty() && sortKeys.isEmpty()) {
+            return null;
+        }
+        if (viewEngine == null) {
+            viewEngine = new BookingViewEngine(store);
+        }
+        return viewEngine.view(filterRows(), sortKeys);
+    }
+
+    /**
+     * Flags the rows accepted by the query and all filters. The name index is built from the
+     * store if it does not exist yet.
+     *
+     * @return boolean[] Flag per row, null if the list is not filtered
+     */
+    private boolean[] filterRows() {
+        if (query == null && filters.isEmpty()) {
+            return null;
+        }
+        boolean[] visible = new boolean[store.size()];
+        if (query != null) {
+            if (nameIndex == null) {
+                nameIndex = new NameIndex();
+                for (int row = 0; row < store.size(); row++) {
+                    nameIndex.put(store.getId(row), store.getSurname(row), store.getForename(row));
+                }
+            }
+            for (int id : nameIndex.search(query)) {
+                int row = store.indexOf(id);
+                if (row >= 0) {
+                    visible[row] = true;
+                }
+            }
+        } else {
+            Arrays.fill(visible, true);
+        }
+        for (BookingFilter filter : filters.values()) {
+            for (int row = 0; row < visible.length; row++) {
+                visible[row] = visible[row] && filter.accept(store, row);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Notifies the listeners that the whole content has been replaced. The change is fired
+     * directly instead of through the change builder, which would copy every removed booking.
+     *
+     * @param removed Bookings shown before
+     */
+    private void fireReplace(List<Booking> removed) {
+        fireChange(new ListChangeListener.Change<Booking>(this) {
+
+            private int cursor = -1;
+
+            @Override
+            public boolean next() {
+                return ++cursor == 0;
+            }
+
+            @Override
+            public void reset() {
+                cursor = -1;
+            }
+
+            @Override
+            public int getFrom() {
+                return 0;
+            }
+
+            @Override
+            public int getTo() {
+                return size();
+            }
+
+            @Override
+            public List<Booking> getRemoved() {
+                return removed;
+            }
+
+            @Override
+            protected int[] getPermutation() {
+                return new int[0];
+            }
+        });
+    }
+
+    /**
+     * Returns a view of the bookings currently shown. Bookings are only created when the
+     * view is accessed, e.g. by listeners inspecting the removed rows of a change. The view
+     * stays valid as long as the store is not changed in place.
+     *
+     * @return List<Booking> Shown bookings
+     */
+    private List<Booking> currentRows() {
+        BookingStore shownStore = store;
+        int[] shownRows = visibleRows;
+        return new AbstractList<Booking>() {
+            @Override
+            public Booking get(int index) {
+                return shownStore.get(shownRows != null ? shownRows[index] : index);
+            }
+
+            @Override
+            public int size() {
+                return shownRows != null ? shownRows.length : shownStore.size();
+            }
+        };
+    }
+
+    private static boolean sameValues(BookingStore a, int rowA, BookingStore b, int rowB) {
+        return a.getCheckinDay(rowA) == b.getCheckinDay(rowB) && a.getCheckoutDay(rowA) == b.getCheckoutDay(rowB)
+                && a.isCancelled(rowA) == b.isCancelled(rowB) && a.getSurname(rowA).equals(b.getSurname(rowB))
+                && a.getForename(rowA).equals(b.getForename(rowB));
+    }
+
+    @Override
+    public Booking get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return store.get(visibleRows != null ? visibleRows[index] : index);
+    }
+
+    @Override
+    public int size() {
+        return visibleRows != null ? visibleRows.length : store.size();
+    }
+}
@@ -48,9 +48,9 @@ public class Inquiry {
         this.number_of_guests = new SimpleIntegerProperty(number_of_guests);
         this.from = new SimpleStringProperty(from.toString());
         this.to = new SimpleStringProperty(to.toString());
-        this.created_at = new SimpleStringProperty(created_at.toString());
-        this.reservation_until = new SimpleStringProperty(reservation_until.toString());
-        this.cancelled_at = new SimpleStringProperty("");
+        this.created_at = new SimpleStringProperty(created_at != null ? created_at.toString() : "");
+        this.reservation_until = new SimpleStringProperty(reservation_until != null ? reservation_until.toString() : "");
+        this.cancelled_at = new SimpleStringProperty(cancelled_at != null ? cancelled_at.toString() : "");
         this.person_id = new SimpleIntegerProperty(person_id);
     }
 }
@@ -0,0 +1,506 @@
+package application.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * In-memory index of guest names for find-as-you-type search. Every booking is indexed with
+ * the surname and forename of its responsible person, normalized to lower case without
+ * diacritics.
+ *
+ * Names are indexed once per distinct name, like the dictionary of the BookingStore: a trie
+ * of the name tokens and trigram postings lead to the matching names, every name leads to the
+ * bookings using it. A query is split into terms that all have to match the surname or the
+ * forename of a booking. Terms of at least three characters match anywhere within a name,
+ * shorter terms match the beginning of a name token. Lookups start from the most selective
+ * term, so they only touch the bookings that can match.
+ *
+ * Bookings are updated incrementally. Removed bookings leave stale postings behind that are
+ * skipped on lookup and dropped once they outnumber the live ones. Not thread-safe.
+ */
+public class NameIndex {
+
+    private static final int NGRAM = 3;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MIN_COMPACT_SLOTS = 1024;
+    private static final int REMOVED = -1;
+
+    // Distinct names
+    private HashMap<String, Integer> nameIdsByValue = new HashMap<>();
+    private HashMap<String, Integer> nameIds = new HashMap<>();
+    private ArrayList<String> names = new ArrayList<>();
+    private ArrayList<IntList> slotsByName = new ArrayList<>();
+    private TrieNode root = new TrieNode();
+    private HashMap<Long, IntList> trigrams = new HashMap<>();
+
+    // Indexed bookings
+    private IntMap slotsById = new IntMap();
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] surnameIds = new int[INITIAL_CAPACITY];
+    private int[] forenameIds = new int[INITIAL_CAPACITY];
+    private int[] marks = new int[INITIAL_CAPACITY];
+    private int slots, removedSlots, mark;
+
+    /**
+     * Adds a booking or replaces the names of an indexed booking.
+     *
+     * @param id       Id of the booking
+     * @param surname  Surname of the responsible person, may be null
+     * @param forename Forename of the responsible person, may be null
+     */
+    public void put(int id, String surname, String forename) {
+        remove(id);
+        add(id, nameId(surname), nameId(forename));
+    }
+
+    /**
+     * Removes a booking from the index.
+     *
+     * @param id Id of the booking
+     */
+    public void remove(int id) {
+        int slot = slotsById.remove(id);
+        if (slot == IntMap.NONE) {
+            return;
+        }
+        surnameIds[slot] = REMOVED;
+        forenameIds[slot] = REMOVED;
+        removedSlots++;
+        if (removedSlots > MIN_COMPACT_SLOTS && removedSlots > slots - removedSlots) {
+            compact();
+        }
+    }
+
+    /**
+     * Removes all bookings and names from the index.
+     */
+    public void clear() {
+        nameIdsByValue.clear();
+        nameIds.clear();
+        names.clear();
+        slotsByName.clear();
+        root = new TrieNode();
+        trigrams.clear();
+        slotsById.clear();
+        slots = 0;
+        removedSlots = 0;
+    }
+
+    /**
+     * Returns the number of indexed bookings
+     *
+     * @return int Number of bookings
+     */
+    public int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Returns the ids of all bookings matching a query.
+     *
+     * @param query Terms separated by whitespace
+     * @return int[] Ids of the matching bookings in no particular order, null for a blank query
+     */
+    public int[] search(String query) {
+        String normalized = normalize(query);
+        ArrayList<String> terms = new ArrayList<>();
+        for (String term : normalized.split(" ")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        // Names matching every term, lookups start from the term matching the fewest bookings
+        BitSet[] matchingNames = new BitSet[terms.size()];
+        int selective = 0;
+        long fewestBookings = Long.MAX_VALUE;
+        for (int t = 0; t < terms.size(); t++) {
+            matchingNames[t] = findNames(terms.get(t));
+            long bookings = 0;
+            for (int name = matchingNames[t].nextSetBit(0); name >= 0; name = matchingNames[t].nextSetBit(name + 1)) {
+                bookings += slotsByName.get(name).size;
+            }
+            if (bookings == 0) {
+                return new int[0];
+            }
+            if (bookings < fewestBookings) {
+                fewestBookings = bookings;
+                selective = t;
+            }
+        }
+
+        nextMark();
+        int[] result = new int[16];
+        int size = 0;
+        BitSet candidates = matchingNames[selective];
+        for (int name = candidates.nextSetBit(0); name >= 0; name = candidates.nextSetBit(name + 1)) {
+            IntList postings = slotsByName.get(name);
+            for (int i = 0; i < postings.size; i++) {
+                int slot = postings.values[i];
+                if (marks[slot] == mark || surnameIds[slot] == REMOVED) {
+                    continue;
+                }
+                marks[slot] = mark;
+                if (matchesAll(slot, matchingNames)) {
+                    if (size == result.length) {
+                        result = Arrays.copyOf(result, size * 2);
+                    }
+                    result[size++] = ids[slot];
+                }
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Utility method to normalize a name for indexing and lookup: lower case, diacritics
+     * removed and whitespace replaced by single blanks.
+     *
+     * @param name Name to normalize, may be null
+     * @return String Normalized name
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                c = ' ';
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            normalized.append(Character.toLowerCase(c));
+        }
+        return normalized.toString();
+    }
+
+    private boolean matchesAll(int slot, BitSet[] matchingNames) {
+        for (BitSet matching : matchingNames) {
+            if (!matching.get(surnameIds[slot]) && !matching.get(forenameIds[slot])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the names matching a single term
+     *
+     * @param term Normalized term without blanks
+     * @return BitSet Ids of the matching names
+     */
+    private BitSet findNames(String term) {
+        BitSet matching = new BitSet(names.size());
+        if (term.length() >= NGRAM) {
+            IntList candidates = null;
+            for (int i = 0; i + NGRAM <= term.length(); i++) {
+                IntList postings = trigrams.get(trigram(term, i));
+                if (postings == null) {
+                    return matching;
+                }
+                if (candidates == null || postings.size < candidates.size) {
+                    candidates = postings;
+                }
+            }
+            for (int i = 0; i < candidates.size; i++) {
+                int name = candidates.values[i];
+                if (names.get(name).contains(term)) {
+                    matching.set(name);
+                }
+            }
+        } else {
+            TrieNode node = root.find(term);
+            if (node != null) {
+                ArrayList<TrieNode> pending = new ArrayList<>();
+                pending.add(node);
+                while (!pending.isEmpty()) {
+                    TrieNode next = pending.remove(pending.size() - 1);
+                    for (int i = 0; next.postings != null && i < next.postings.size; i++) {
+                        matching.set(next.postings.values[i]);
+                    }
+                    for (int i = 0; i < next.childCount; i++) {
+                        pending.add(next.children[i]);
+                    }
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the id of a name, indexing the name on first use.
+     *
+     * @param value Name as stored, may be null
+     * @return int Id of the normalized name
+     */
+    private int nameId(String value) {
+        String key = value != null ? value : "";
+        Integer id = nameIdsByValue.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        String name = normalize(key);
+        id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            slotsByName.add(new IntList());
+            nameIds.put(name, id);
+            indexName(id, name);
+        }
+        nameIdsByValue.put(key, id);
+        return id;
+    }
+
+    private void indexName(int id, String name) {
+        int tokenStart = 0;
+        for (int i = 0; i <= name.length(); i++) {
+            if (i == name.length() || name.charAt(i) == ' ') {
+                if (i > tokenStart) {
+                    root.insert(name, tokenStart, i).postings().addOnce(id);
+                }
+                tokenStart = i + 1;
+            } else if (i - tokenStart + 1 >= NGRAM) {
+                trigrams.computeIfAbsent(trigram(name, i - NGRAM + 1), (Long key) -> new IntList()).addOnce(id);
+            }
+        }
+    }
+
+    private void add(int id, int surnameId, int forenameId) {
+        if (slots == ids.length) {
+            int capacity = slots * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            surnameIds = Arrays.copyOf(surnameIds, capacity);
+            forenameIds = Arrays.copyOf(forenameIds, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+        }
+        int slot = slots++;
+        ids[slot] = id;
+        surnameIds[slot] = surnameId;
+        forenameIds[slot] = forenameId;
+        slotsById.put(id, slot);
+        slotsByName.get(surnameId).add(slot);
+        if (forenameId != surnameId) {
+            slotsByName.get(forenameId).add(slot);
+        }
+    }
+
+    /**
+     * Renumbers the live bookings and rebuilds their postings, dropping the stale postings of
+     * removed ones. The names stay indexed.
+     */
+    private void compact() {
+        int[] liveIds = new int[slots - removedSlots], liveSurnames = new int[liveIds.length], liveForenames = new int[liveIds.length];
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (surnameIds[slot] != REMOVED) {
+                liveIds[live] = ids[slot];
+                liveSurnames[live] = surnameIds[slot];
+                liveForenames[live++] = forenameIds[slot];
+            }
+        }
+        for (IntList postings : slotsByName) {
+            postings.size = 0;
+        }
+        slotsById.clear();
+        slots = 0;
+        removedSlots = 0;
+        for (int i = 0; i < live; i++) {
+            add(liveIds[i], liveSurnames[i], liveForenames[i]);
+        }
+    }
+
+    private void nextMark() {
+        if (++mark == 0) {
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Node of the name token trie. Children are kept in small arrays, as most nodes only
+     * have a few of them.
+     */
+    private static class TrieNode {
+
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private int childCount;
+        private IntList postings;
+
+        TrieNode find(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        TrieNode insert(String text, int start, int end) {
+            TrieNode node = this;
+            for (int i = start; i < end; i++) {
+                char key = text.charAt(i);
+                TrieNode child = node.child(key);
+                if (child == null) {
+                    child = node.addChild(key);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        IntList postings() {
+            if (postings == null) {
+                postings = new IntList();
+            }
+            return postings;
+        }
+
+        private TrieNode child(char key) {
+            for (int i = 0; i < childCount; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private TrieNode addChild(char key) {
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            TrieNode child = new TrieNode();
+            keys[childCount] = key;
+            children[childCount++] = child;
+            return child;
+        }
+    }
+
+    /**
+     * Map of primitive int keys to non-negative int values with open addressing, so that
+     * indexing a million bookings does not box a million keys.
+     */
+    private static class IntMap {
+
+        static final int NONE = -1;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private int[] values = new int[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int size;
+
+        void put(int key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = find(key);
+            if (!used[i]) {
+                used[i] = true;
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        int remove(int key) {
+            int i = find(key);
+            if (!used[i]) {
+                return NONE;
+            }
+            int value = values[i];
+            used[i] = false;
+            size--;
+            // Move the following entries of the probe sequence into the gap
+            int mask = keys.length - 1;
+            for (int next = (i + 1) & mask; used[next]; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if ((next > i && (home <= i || home > next)) || (next < i && home <= i && home > next)) {
+                    keys[i] = keys[next];
+                    values[i] = values[next];
+                    used[i] = true;
+                    used[next] = false;
+                    i = next;
+                }
+            }
+            return value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+
+        private int find(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i] && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys, oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Growable list of primitive ints
+     */
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Adds a value unless it is the last one, e.g. a name containing a trigram twice
+         */
+        void addOnce(int value) {
+            if (size == 0 || values[size - 1] != value) {
+                add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package application.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Minimal streaming JSON writer (RFC 8259). Values are written straight to the underlying
+ * writer, so arbitrarily long arrays need no more memory than the writer's buffer. Commas are
+ * inserted automatically; the caller is responsible for balancing begin and end calls and for
+ * calling name() before every value inside an object.
+ */
+public class JsonWriter implements Closeable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Writer writer;
+    // One bit per open array or object: set once the first element has been written
+    private BitSet hasElements = new BitSet();
+    private int depth = 0;
+    private boolean afterName = false;
+
+    /**
+     * Constructor
+     * @param writer Writer to write the JSON text to
+     */
+    public JsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Writes the name of the next object member
+     *
+     * @param name Member name
+     * @return JsonWriter This writer
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a date as yyyy-mm-dd, null as null
+     *
+     * @param value Date to write
+     * @return JsonWriter This writer
+     */
+    public JsonWriter value(LocalDate value) throws IOException {
+        return value(value != null ? value.toString() : null);
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separate();
+        writer.write("null");
+        return this;
+    }
+
+    /**
+     * Flushes and closes the underlying writer
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        writer.write(bracket);
+        depth++;
+        hasElements.clear(depth);
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        writer.write(bracket);
+        depth--;
+        return this;
+    }
+
+    /**
+     * Writes the comma in front of every element but the first of an array or object
+     */
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements.get(depth)) {
+                writer.write(',');
+            } else {
+                hasElements.set(depth);
+            }
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writer.write("\\u");
+                    writer.write(HEX[c >> 12 & 0xf]);
+                    writer.write(HEX[c >> 8 & 0xf]);
+                    writer.write(HEX[c >> 4 & 0xf]);
+                    writer.write(HEX[c & 0xf]);
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
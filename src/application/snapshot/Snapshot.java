@@ -0,0 +1,81 @@
+package application.snapshot;
+
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Data shown by the application at the time it was closed: room types, rooms, the bookings
+ * of the bookings table and all inquiries. Used to render the interface on the next launch
+ * before the database is connected.
+ */
+public class Snapshot {
+
+    private long savedAt;
+    private LocalDate bookingsFrom, bookingsTo;
+    private boolean bookingsComplete;
+    private ArrayList<RoomType> roomTypes;
+    private ArrayList<Room> rooms;
+    private BookingStore bookings;
+    private ArrayList<Inquiry> inquiries;
+
+    /**
+     * Constructor
+     * @param savedAt          Time of the snapshot in milliseconds since the epoch
+     * @param bookingsFrom     Checkin date of the bookings timeframe, may be null
+     * @param bookingsTo       Checkout date of the bookings timeframe, may be null
+     * @param bookingsComplete True if the bookings are all bookings of the timeframe, false if
+     *                         they are only the loaded part of a paged list
+     * @param roomTypes        Room types
+     * @param rooms            Rooms
+     * @param bookings         Bookings
+     * @param inquiries        Inquiries
+     */
+    public Snapshot(long savedAt, LocalDate bookingsFrom, LocalDate bookingsTo, boolean bookingsComplete,
+                    ArrayList<RoomType> roomTypes, ArrayList<Room> rooms, BookingStore bookings, ArrayList<Inquiry> inquiries) {
+        this.savedAt = savedAt;
+        this.bookingsFrom = bookingsFrom;
+        this.bookingsTo = bookingsTo;
+        this.bookingsComplete = bookingsComplete;
+        this.roomTypes = roomTypes;
+        this.rooms = rooms;
+        this.bookings = bookings;
+        this.inquiries = inquiries;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public LocalDate getBookingsFrom() {
+        return bookingsFrom;
+    }
+
+    public LocalDate getBookingsTo() {
+        return bookingsTo;
+    }
+
+    public boolean isBookingsComplete() {
+        return bookingsComplete;
+    }
+
+    public ArrayList<RoomType> getRoomTypes() {
+        return roomTypes;
+    }
+
+    public ArrayList<Room> getRooms() {
+        return rooms;
+    }
+
+    public BookingStore getBookings() {
+        return bookings;
+    }
+
+    public ArrayList<Inquiry> getInquiries() {
+        return inquiries;
+    }
+}
@@ -0,0 +1,240 @@
+package application.snapshot;
+
+import application.models.Booking;
+import application.models.BookingStore;
+import application.models.Inquiry;
+import application.models.Room;
+import application.models.RoomType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compact binary snapshot file. The file starts with a magic number and a format version, so
+ * that files of other versions are ignored instead of misread. Bookings are stored in columns
+ * with dictionary encoded names, like in the BookingStore. Dates are stored as epoch days.
+ *
+ * Files are written to a temporary file that replaces the snapshot atomically and read by
+ * mapping them into memory.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x53565753, VERSION = 1;
+    private static final int NO_STRING = -1;
+
+    private Path path;
+
+    /**
+     * Constructor
+     * @param path Location of the snapshot file
+     */
+    public SnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Writes a snapshot, replacing the existing one.
+     *
+     * @param snapshot Snapshot to write
+     * @throws IOException If the file cannot be written
+     */
+    public void save(Snapshot snapshot) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.getSavedAt());
+            out.writeInt(toEpochDay(snapshot.getBookingsFrom()));
+            out.writeInt(toEpochDay(snapshot.getBookingsTo()));
+            out.writeBoolean(snapshot.isBookingsComplete());
+
+            out.writeInt(snapshot.getRoomTypes().size());
+            for (RoomType roomType : snapshot.getRoomTypes()) {
+                out.writeInt(roomType.id.getValue());
+                writeString(out, roomType.name.getValue());
+                writeString(out, roomType.description.getValue());
+                out.writeInt(roomType.maximum_number_of_guests.getValue());
+            }
+
+            out.writeInt(snapshot.getRooms().size());
+            for (Room room : snapshot.getRooms()) {
+                out.writeInt(room.id.getValue());
+                writeString(out, room.name.getValue());
+                writeString(out, room.description.getValue());
+                out.writeInt(room.room_type.getValue());
+            }
+
+            writeBookings(out, snapshot.getBookings());
+
+            out.writeInt(snapshot.getInquiries().size());
+            for (Inquiry inquiry : snapshot.getInquiries()) {
+                out.writeInt(inquiry.id.getValue());
+                writeString(out, inquiry.group_name.getValue());
+                out.writeInt(parseEpochDay(inquiry.from.getValue()));
+                out.writeInt(parseEpochDay(inquiry.to.getValue()));
+                out.writeInt(inquiry.number_of_guests.getValue());
+                out.writeInt(parseEpochDay(inquiry.created_at.getValue()));
+                out.writeInt(parseEpochDay(inquiry.reservation_until.getValue()));
+                out.writeInt(parseEpochDay(inquiry.cancelled_at.getValue()));
+                out.writeInt(inquiry.person_id.getValue());
+            }
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot.
+     *
+     * @return Snapshot Snapshot, null if there is none or it has another format version
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public Snapshot load() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return null;
+            }
+
+            long savedAt = in.getLong();
+            LocalDate bookingsFrom = Booking.toLocalDate(in.getInt());
+            LocalDate bookingsTo = Booking.toLocalDate(in.getInt());
+            boolean bookingsComplete = in.get() != 0;
+
+            int count = in.getInt();
+            ArrayList<RoomType> roomTypes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                roomTypes.add(new RoomType(in.getInt(), readString(in), readString(in), in.getInt()));
+            }
+
+            count = in.getInt();
+            ArrayList<Room> rooms = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rooms.add(new Room(in.getInt(), readString(in), readString(in), in.getInt()));
+            }
+
+            BookingStore bookings = readBookings(in);
+
+            count = in.getInt();
+            ArrayList<Inquiry> inquiries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                inquiries.add(new Inquiry(in.getInt(), readString(in), toDate(in.getInt()), toDate(in.getInt()), in.getInt(),
+                        toDate(in.getInt()), toDate(in.getInt()), toDate(in.getInt()), in.getInt()));
+            }
+
+            return new Snapshot(savedAt, bookingsFrom, bookingsTo, bookingsComplete, roomTypes, rooms, bookings, inquiries);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot " + path, e);
+        }
+    }
+
+    private static void writeBookings(DataOutputStream out, BookingStore bookings) throws IOException {
+        int size = bookings.size();
+        HashMap<String, Integer> codes = new HashMap<>();
+        ArrayList<String> dictionary = new ArrayList<>();
+        int[] surnames = new int[size], forenames = new int[size];
+        for (int row = 0; row < size; row++) {
+            surnames[row] = codes.computeIfAbsent(bookings.getSurname(row), (String name) -> { dictionary.add(name); return dictionary.size() - 1; });
+            forenames[row] = codes.computeIfAbsent(bookings.getForename(row), (String name) -> { dictionary.add(name); return dictionary.size() - 1; });
+        }
+
+        out.writeInt(size);
+        out.writeInt(dictionary.size());
+        for (String name : dictionary) {
+            writeString(out, name);
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeInt(bookings.getId(row));
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeInt(bookings.getCheckinDay(row));
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeInt(bookings.getCheckoutDay(row));
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeInt(surnames[row]);
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeInt(forenames[row]);
+        }
+        for (int row = 0; row < size; row++) {
+            out.writeBoolean(bookings.isCancelled(row));
+        }
+    }
+
+    private static BookingStore readBookings(ByteBuffer in) {
+        int size = in.getInt();
+        String[] dictionary = new String[in.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+
+        int[] ids = readInts(in, size), checkins = readInts(in, size), checkouts = readInts(in, size);
+        int[] surnames = readInts(in, size), forenames = readInts(in, size);
+
+        BookingStore bookings = new BookingStore();
+        for (int row = 0; row < size; row++) {
+            bookings.add(ids[row], checkins[row], checkouts[row], in.get() != 0, dictionary[surnames[row]], dictionary[forenames[row]]);
+        }
+        return bookings;
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * 4);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : Booking.NO_DATE;
+    }
+
+    private static int parseEpochDay(String date) {
+        return date != null && !date.isEmpty() ? (int) LocalDate.parse(date).toEpochDay() : Booking.NO_DATE;
+    }
+
+    private static Date toDate(int epochDay) {
+        return epochDay != Booking.NO_DATE ? Date.valueOf(LocalDate.ofEpochDay(epochDay)) : null;
+    }
+}
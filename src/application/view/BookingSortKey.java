@@ -0,0 +1,30 @@
+package application.view;
+
+import application.enums.BookingColumn;
+
+/**
+ * Sort key of a booking view: a column and its sort direction
+ */
+public class BookingSortKey {
+
+    private BookingColumn column;
+    private boolean ascending;
+
+    /**
+     * Constructor
+     * @param column    Column to sort by
+     * @param ascending False to sort in descending order
+     */
+    public BookingSortKey(BookingColumn column, boolean ascending) {
+        this.column = column;
+        this.ascending = ascending;
+    }
+
+    public BookingColumn getColumn() {
+        return column;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+}
@@ -0,0 +1,346 @@
+package application.view;
+
+import application.enums.BookingColumn;
+import application.models.BookingStore;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Sort engine for the rows of a BookingStore. Views are permutations of the store rows, the
+ * store itself is never reordered.
+ *
+ * Every column is sorted on primitive keys: ids and dates as ints (epoch days, unknown dates
+ * first), the cancelled flag as 0 or 1 and names by the rank of their collation key, which is
+ * computed once per distinct name of the store dictionary. The sorted permutation and the
+ * dense ranks of a column are computed on first use and kept, so sorting by a single column
+ * again, e.g. after the filter has changed, only filters the kept permutation. Sorting by
+ * several columns combines their ranks into one key per row, split into several stable
+ * passes if the ranks do not fit into one int. Sorts above a size threshold run in parallel.
+ *
+ * When the store changes in place, update() carries the kept permutations over: untouched
+ * rows keep their relative order, so only the changed and added rows are sorted and merged in.
+ */
+public class BookingViewEngine {
+
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+    private BookingStore store;
+    private int size;
+    private int[] nameRanks;
+    private CollationKey[] collationKeys;
+    private int[] sortedCodes;
+    private EnumMap<BookingColumn, int[]> permutations = new EnumMap<>(BookingColumn.class);
+    private EnumMap<BookingColumn, int[]> ranks = new EnumMap<>(BookingColumn.class);
+    private EnumMap<BookingColumn, Integer> rankCounts = new EnumMap<>(BookingColumn.class);
+
+    /**
+     * Constructor
+     * @param store Store to sort
+     */
+    public BookingViewEngine(BookingStore store) {
+        this.store = store;
+        this.size = store.size();
+    }
+
+    /**
+     * Returns the number of rows of the store when the engine was created
+     *
+     * @return int Number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adjusts the engine to changes of its store made in place: rows removed, rows changed
+     * and rows appended. The kept permutations are carried over in linear time plus sorting
+     * the touched rows, the ranks are recomputed on next use.
+     *
+     * @param rowMap  New row per row before the change, -1 if the row has been removed
+     * @param touched Rows changed or appended, as rows after the change
+     */
+    public void update(int[] rowMap, int[] touched) {
+        size = store.size();
+        boolean[] isTouched = new boolean[size];
+        for (int row : touched) {
+            isTouched[row] = true;
+        }
+        if (nameRanks != null && store.getDictionarySize() > nameRanks.length) {
+            rankNewNames();
+        }
+        ranks.clear();
+        rankCounts.clear();
+
+        for (BookingColumn column : permutations.keySet()) {
+            int[] old = permutations.get(column);
+            int[] kept = new int[old.length];
+            int keptCount = 0;
+            for (int row : old) {
+                int newRow = rowMap[row];
+                if (newRow >= 0 && !isTouched[newRow]) {
+                    kept[keptCount++] = newRow;
+                }
+            }
+
+            long[] added = new long[touched.length];
+            for (int i = 0; i < touched.length; i++) {
+                added[i] = (long) key(column, touched[i]) << 32 | touched[i];
+            }
+            sort(added);
+
+            int[] permutation = new int[size];
+            int k = 0, a = 0, target = 0;
+            while (k < keptCount || a < added.length) {
+                if (a == added.length || k < keptCount && ((long) key(column, kept[k]) << 32 | kept[k]) < added[a]) {
+                    permutation[target++] = kept[k++];
+                } else {
+                    permutation[target++] = (int) added[a++];
+                }
+            }
+            permutations.put(column, permutation);
+        }
+    }
+
+    /**
+     * Returns the visible rows of the store in sort order.
+     *
+     * @param visible  Flag per row, True if the row is visible, null if all rows are visible
+     * @param sortKeys Sort keys, most significant first, empty for store order
+     * @return int[] Visible rows in sort order
+     */
+    public int[] view(boolean[] visible, List<BookingSortKey> sortKeys) {
+        if (sortKeys.isEmpty()) {
+            return filter(identity(), visible, true);
+        }
+        if (sortKeys.size() == 1) {
+            BookingSortKey key = sortKeys.get(0);
+            return filter(permutation(key.getColumn()), visible, key.isAscending());
+        }
+
+        // Stable passes starting with the least significant keys, as many keys per pass as
+        // their ranks fit into one int
+        int[] rows = filter(identity(), visible, true);
+        int last = sortKeys.size() - 1;
+        while (last >= 0) {
+            int first = last, bits = rankBits(sortKeys.get(last).getColumn());
+            while (first > 0 && bits + rankBits(sortKeys.get(first - 1).getColumn()) <= 31) {
+                first--;
+                bits += rankBits(sortKeys.get(first).getColumn());
+            }
+            rows = sortPass(rows, sortKeys.subList(first, last + 1));
+            last = first - 1;
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts rows by the combined ranks of some keys. The position in the given order breaks
+     * ties, so passes can be chained.
+     *
+     * @param rows     Rows to sort
+     * @param sortKeys Keys of the pass, most significant first
+     * @return int[] Sorted rows
+     */
+    private int[] sortPass(int[] rows, List<BookingSortKey> sortKeys) {
+        int[][] keyRanks = new int[sortKeys.size()][];
+        for (int k = 0; k < keyRanks.length; k++) {
+            keyRanks[k] = ranks(sortKeys.get(k).getColumn());
+        }
+
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int combined = 0;
+            for (int k = 0; k < keyRanks.length; k++) {
+                BookingColumn column = sortKeys.get(k).getColumn();
+                int rank = keyRanks[k][rows[i]];
+                combined = combined << rankBits(column) | (sortKeys.get(k).isAscending() ? rank : rankCounts.get(column) - 1 - rank);
+            }
+            keys[i] = (long) combined << 32 | i;
+        }
+        sort(keys);
+
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = rows[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    private int rankBits(BookingColumn column) {
+        ranks(column);
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(0, rankCounts.get(column) - 1)));
+    }
+
+    private int[] identity() {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    private static int[] filter(int[] order, boolean[] visible, boolean ascending) {
+        int count = 0;
+        int[] rows = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            int row = order[ascending ? i : order.length - 1 - i];
+            if (visible == null || visible[row]) {
+                rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns all rows sorted ascending by a column, ties in store order
+     *
+     * @param column Column to sort by
+     * @return int[] Sorted rows
+     */
+    private int[] permutation(BookingColumn column) {
+        int[] permutation = permutations.get(column);
+        if (permutation == null) {
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = (long) key(column, row) << 32 | row;
+            }
+            sort(keys);
+            permutation = new int[size];
+            for (int i = 0; i < size; i++) {
+                permutation[i] = (int) keys[i];
+            }
+            permutations.put(column, permutation);
+        }
+        return permutation;
+    }
+
+    /**
+     * Returns the dense rank of every row for a column: rows with equal keys have equal ranks.
+     *
+     * @param column Column to rank
+     * @return int[] Rank per row
+     */
+    private int[] ranks(BookingColumn column) {
+        int[] columnRanks = ranks.get(column);
+        if (columnRanks == null) {
+            int[] permutation = permutation(column);
+            columnRanks = new int[size];
+            int rank = -1;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || key(column, permutation[i]) != key(column, permutation[i - 1])) {
+                    rank++;
+                }
+                columnRanks[permutation[i]] = rank;
+            }
+            ranks.put(column, columnRanks);
+            rankCounts.put(column, rank + 1);
+        }
+        return columnRanks;
+    }
+
+    private int key(BookingColumn column, int row) {
+        switch (column) {
+            case CHECKIN:
+                return store.getCheckinDay(row);
+            case CHECKOUT:
+                return store.getCheckoutDay(row);
+            case CANCELLED:
+                return store.isCancelled(row) ? 1 : 0;
+            case SURNAME:
+                return nameRanks()[store.getSurnameCode(row)];
+            case FORENAME:
+                return nameRanks()[store.getForenameCode(row)];
+            default:
+                return store.getId(row);
+        }
+    }
+
+    /**
+     * Ranks the names of the store dictionary by their collation key. Names that collate
+     * equally, e.g. only differing in case, share a rank.
+     *
+     * @return int[] Rank per dictionary code
+     */
+    private int[] nameRanks() {
+        if (nameRanks == null) {
+            int names = store.getDictionarySize();
+            collationKeys = new CollationKey[names];
+            Collator collator = collator();
+            for (int code = 0; code < names; code++) {
+                collationKeys[code] = collator.getCollationKey(store.getName(code));
+            }
+            Integer[] codes = new Integer[names];
+            for (int code = 0; code < names; code++) {
+                codes[code] = code;
+            }
+            Arrays.sort(codes, (Integer a, Integer b) -> collationKeys[a].compareTo(collationKeys[b]));
+            sortedCodes = new int[names];
+            for (int i = 0; i < names; i++) {
+                sortedCodes[i] = codes[i];
+            }
+            rankSortedCodes();
+        }
+        return nameRanks;
+    }
+
+    /**
+     * Merges the names added to the dictionary since the last ranking into the sorted codes
+     * and ranks them again. Existing names keep their relative order.
+     */
+    private void rankNewNames() {
+        int known = collationKeys.length, names = store.getDictionarySize();
+        collationKeys = Arrays.copyOf(collationKeys, names);
+        Collator collator = collator();
+        Integer[] newCodes = new Integer[names - known];
+        for (int code = known; code < names; code++) {
+            collationKeys[code] = collator.getCollationKey(store.getName(code));
+            newCodes[code - known] = code;
+        }
+        Arrays.sort(newCodes, (Integer a, Integer b) -> collationKeys[a].compareTo(collationKeys[b]));
+
+        int[] merged = new int[names];
+        int o = 0, n = 0, target = 0;
+        while (o < known || n < newCodes.length) {
+            if (n == newCodes.length || o < known && collationKeys[sortedCodes[o]].compareTo(collationKeys[newCodes[n]]) <= 0) {
+                merged[target++] = sortedCodes[o++];
+            } else {
+                merged[target++] = newCodes[n++];
+            }
+        }
+        sortedCodes = merged;
+        rankSortedCodes();
+    }
+
+    /**
+     * Assigns dense ranks along the sorted codes. Names that collate equally, e.g. only
+     * differing in case, share a rank.
+     */
+    private void rankSortedCodes() {
+        nameRanks = new int[sortedCodes.length];
+        int rank = -1;
+        for (int i = 0; i < sortedCodes.length; i++) {
+            if (i == 0 || collationKeys[sortedCodes[i]].compareTo(collationKeys[sortedCodes[i - 1]]) != 0) {
+                rank++;
+            }
+            nameRanks[sortedCodes[i]] = rank;
+        }
+    }
+
+    private static Collator collator() {
+        Collator collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+        return collator;
+    }
+
+    private static void sort(long[] keys) {
+        if (keys.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+    }
+}
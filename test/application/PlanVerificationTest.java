@@ -0,0 +1,100 @@
+package application;
+
+import application.interfaces.StatementBinder;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the timeframe and availability queries can use the indexes of the index pack
+ * migration, by running EXPLAIN on every checked statement against the configured primary.
+ *
+ * Opt-in with -Dstarview.verifyPlans=true, the database has to be migrated beforehand with
+ * Main --migrate; the test never changes the schema. An index counts if the optimizer uses it
+ * or lists it as possible key, because on small tables it rightly prefers a table scan.
+ */
+public class PlanVerificationTest {
+
+    private static final String ENABLED_PROPERTY = "starview.verifyPlans";
+
+    private static Database database;
+    private static String from, to;
+
+    @BeforeClass
+    public static void connect() {
+        Assume.assumeTrue("Enable with -D" + ENABLED_PROPERTY + "=true", Boolean.getBoolean(ENABLED_PROPERTY));
+        database = new Database();
+        Assume.assumeTrue("Database not reachable", database.connect());
+        from = LocalDate.now().toString();
+        to = LocalDate.now().plusDays(7).toString();
+    }
+
+    @AfterClass
+    public static void disconnect() {
+        if (database != null) {
+            database.disconnect();
+        }
+    }
+
+    @Test
+    public void availableRoomsAnyTypeUseRoomIndexes() throws SQLException {
+        assertUsesIndexes("get-available-rooms-any", (PreparedStatement prep) -> {
+            prep.setString(1, to);
+            prep.setString(2, from);
+            prep.setString(3, to);
+            prep.setString(4, from);
+        }, "idx_booking_room_room", "idx_inquiry_room_room");
+    }
+
+    @Test
+    public void availableRoomsByTypeUseRoomIndexes() throws SQLException {
+        assertUsesIndexes("get-available-rooms-by-type", (PreparedStatement prep) -> {
+            prep.setString(1, to);
+            prep.setString(2, from);
+            prep.setString(3, to);
+            prep.setString(4, from);
+            prep.setInt(5, 1);
+        }, "idx_booking_room_room", "idx_inquiry_room_room");
+    }
+
+    @Test
+    public void timeframeBookingsUseTimeframeIndex() throws SQLException {
+        assertUsesIndexes("get-timeframe-both-bookings", (PreparedStatement prep) -> {
+            prep.setString(1, from);
+            prep.setString(2, to);
+        }, "idx_booking_timeframe", "idx_booking_person_responsible");
+    }
+
+    @Test
+    public void overlappingBookingsUseTimeframeIndex() throws SQLException {
+        assertUsesIndexes("get-timeframe-overlap-bookings", (PreparedStatement prep) -> {
+            prep.setString(1, to);
+            prep.setString(2, from);
+        }, "idx_booking_timeframe", "idx_booking_person_responsible");
+    }
+
+    private static void assertUsesIndexes(String key, StatementBinder binder, String... indexes) throws SQLException {
+        ArrayList<String> plan = database.explain(key, binder);
+        for (String index : indexes) {
+            assertTrue(key + " cannot use " + index + ": " + plan,
+                    plan.stream().anyMatch((String row) -> canUse(row, index)));
+        }
+    }
+
+    /**
+     * Checks whether a plan row of the form "table: key | possible keys" uses or may use an index
+     */
+    private static boolean canUse(String row, String index) {
+        String keys = row.substring(row.indexOf(": ") + 2);
+        return Arrays.stream(keys.split(" \\| |,")).anyMatch(index::equals);
+    }
+}
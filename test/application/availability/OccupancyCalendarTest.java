@@ -0,0 +1,93 @@
+package application.availability;
+
+import application.models.Room;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Availability checks on the day bits of the calendar, within and across 64-day words.
+ */
+public class OccupancyCalendarTest {
+
+    private static final int FIRST_DAY = 1000;
+
+    private OccupancyCalendar calendar;
+
+    @Before
+    public void setUp() {
+        calendar = new OccupancyCalendar(FIRST_DAY, 200);
+        calendar.setRooms(Arrays.asList(new Room(1, "101", "", 1), new Room(2, "102", "", 1), new Room(3, "201", "", 2)));
+    }
+
+    @Test
+    public void checkoutDayIsFree() {
+        occupy(1, 10, 15);
+
+        assertEquals(Arrays.asList(1, 2), roomIds(15, 20, 1));
+        assertEquals(Arrays.asList(1, 2), roomIds(5, 10, 1));
+        assertEquals(Arrays.asList(2), roomIds(14, 16, 1));
+    }
+
+    @Test
+    public void rangesAcrossWordBoundaries() {
+        occupy(1, 63, 64);
+        occupy(2, 100, 130);
+
+        assertEquals(Arrays.asList(2), roomIds(60, 70, 1));
+        assertEquals(Arrays.asList(1, 2), roomIds(64, 100, 1));
+        assertEquals(Arrays.asList(1), roomIds(64, 190, 1));
+        assertEquals(Arrays.asList(1, 2), roomIds(10, 63, 1));
+        assertEquals(Arrays.asList(1, 3), roomIds(129, 131, 0));
+    }
+
+    @Test
+    public void rebuildReplacesTheBitsOfARoom() {
+        occupy(3, 10, 20);
+        calendar.rebuildRoom(3, new RoomIntervals());
+
+        assertEquals(Arrays.asList(3), roomIds(10, 20, 2));
+    }
+
+    @Test
+    public void intervalsOutsideTheHorizonAreClipped() {
+        occupy(1, -50, 5);
+        occupy(2, 190, 400);
+
+        assertEquals(Arrays.asList(2), roomIds(0, 5, 1));
+        assertEquals(Arrays.asList(1), roomIds(195, 200, 1));
+    }
+
+    @Test
+    public void unknownRoomTypeHasNoRooms() {
+        assertTrue(roomIds(0, 10, 9).isEmpty());
+    }
+
+    @Test
+    public void coversOnlyRangesWithinTheHorizon() {
+        assertTrue(calendar.covers(FIRST_DAY, FIRST_DAY + 200));
+        assertFalse(calendar.covers(FIRST_DAY - 1, FIRST_DAY + 10));
+        assertFalse(calendar.covers(FIRST_DAY + 10, FIRST_DAY + 201));
+        assertFalse(calendar.covers(FIRST_DAY + 10, FIRST_DAY + 10));
+    }
+
+    private void occupy(int roomId, int from, int to) {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(roomId, FIRST_DAY + from, FIRST_DAY + to);
+        calendar.rebuildRoom(roomId, intervals);
+    }
+
+    private ArrayList<Integer> roomIds(int from, int to, int roomTypeId) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (Room room : calendar.getAvailableRooms(FIRST_DAY + from, FIRST_DAY + to, roomTypeId)) {
+            ids.add(room.id.getValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,100 @@
+package application.availability;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Overlap queries and the merge of batches into the sorted intervals of a room.
+ */
+public class RoomIntervalsTest {
+
+    @Test
+    public void intervalsAreHalfOpen() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 10, 15);
+
+        assertFalse(intervals.overlaps(5, 10));
+        assertFalse(intervals.overlaps(15, 20));
+        assertTrue(intervals.overlaps(9, 11));
+        assertTrue(intervals.overlaps(14, 16));
+        assertTrue(intervals.overlaps(11, 12));
+    }
+
+    @Test
+    public void longIntervalIsFoundBehindShortOnes() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 0, 100);
+        intervals.add(2, 10, 12);
+        intervals.add(3, 50, 52);
+
+        assertTrue(intervals.overlaps(60, 61));
+        assertFalse(intervals.overlaps(100, 110));
+    }
+
+    @Test
+    public void removeRecomputesTheRunningMaximum() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 0, 100);
+        intervals.add(2, 10, 12);
+
+        assertTrue(intervals.remove(1));
+        assertFalse(intervals.remove(1));
+        assertFalse(intervals.overlaps(50, 60));
+        assertTrue(intervals.overlaps(11, 12));
+        assertEquals(1, intervals.size());
+    }
+
+    @Test
+    public void addAllMergesUnsortedBatchInStartOrder() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 5, 8);
+        intervals.add(2, 20, 25);
+        intervals.addAll(new long[]{3, 4, 5}, new int[]{30, 1, 20}, new int[]{31, 3, 22}, 3);
+
+        int[] starts = {1, 5, 20, 20, 30};
+        long[] keys = {4, 1, 2, 5, 3};
+        assertEquals(starts.length, intervals.size());
+        for (int i = 0; i < starts.length; i++) {
+            assertEquals(starts[i], intervals.getStart(i));
+            assertEquals(keys[i], intervals.getKey(i));
+        }
+        assertTrue(intervals.overlaps(24, 26));
+        assertFalse(intervals.overlaps(25, 30));
+    }
+
+    @Test
+    public void addAllKeepsTheRunningMaximumOfEarlierIntervals() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 0, 100);
+        intervals.addAll(new long[]{2, 3}, new int[]{40, 10}, new int[]{41, 11}, 2);
+
+        assertTrue(intervals.overlaps(60, 61));
+    }
+
+    @Test
+    public void overlapsExcludingIgnoresOnlyTheGivenKey() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 10, 20);
+        intervals.add(2, 15, 18);
+
+        assertFalse(intervals.overlapsExcluding(10, 14, 1));
+        assertTrue(intervals.overlapsExcluding(12, 16, 1));
+        assertTrue(intervals.overlapsExcluding(12, 16, 2));
+        assertFalse(intervals.overlapsExcluding(20, 25, 3));
+    }
+
+    @Test
+    public void neighboursOfAStay() {
+        RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 0, 10);
+        intervals.add(2, 30, 40);
+
+        assertEquals(10, intervals.getLastEndBefore(15));
+        assertEquals(30, intervals.getFirstStartFrom(20));
+        assertEquals(Integer.MIN_VALUE, intervals.getLastEndBefore(0));
+        assertEquals(Integer.MAX_VALUE, intervals.getFirstStartFrom(31));
+    }
+}
@@ -0,0 +1,122 @@
+package application.cache;
+
+import application.models.BookingStore;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hits, gap loads and loads racing an invalidation of the booking range cache.
+ */
+public class BookingRangeCacheTest {
+
+    private static final long BUDGET = 1024 * 1024;
+
+    @Test
+    public void coveredWindowIsAnsweredWithoutLoading() throws SQLException {
+        BookingRangeCache cache = new BookingRangeCache(BUDGET);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(0, 100, (int fromDay, int toDay) -> {
+            loads.incrementAndGet();
+            return store(1, 10, 20, 2, 50, 120);
+        });
+
+        BookingStore hit = cache.get(5, 30, (int fromDay, int toDay) -> {
+            throw new SQLException("Covered window loaded again");
+        });
+        assertEquals(1, loads.get());
+        assertEquals(1, hit.size());
+        assertEquals(1, hit.getId(0));
+    }
+
+    @Test
+    public void onlyTheGapIsLoadedAndMerged() throws SQLException {
+        BookingRangeCache cache = new BookingRangeCache(BUDGET);
+        cache.get(0, 50, (int fromDay, int toDay) -> store(1, 10, 20));
+
+        int[] loaded = new int[2];
+        BookingStore result = cache.get(0, 100, (int fromDay, int toDay) -> {
+            loaded[0] = fromDay;
+            loaded[1] = toDay;
+            return store(2, 60, 70);
+        });
+        assertEquals(51, loaded[0]);
+        assertEquals(100, loaded[1]);
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    public void loadRacingAnInvalidationIsDiscarded() throws Exception {
+        BookingRangeCache cache = new BookingRangeCache(BUDGET);
+        CountDownLatch loading = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<BookingStore> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get(0, 100, (int fromDay, int toDay) -> {
+                    if (loads.incrementAndGet() == 1) {
+                        // The booking is moved on the server after the first load has read it
+                        loading.countDown();
+                        await(invalidated);
+                        return store(1, 10, 20);
+                    }
+                    return store(1, 30, 40);
+                });
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        await(loading);
+        cache.invalidate(10, 40);
+        invalidated.countDown();
+
+        BookingStore bookings = result.get(5, TimeUnit.SECONDS);
+        assertEquals(2, loads.get());
+        assertEquals(1, bookings.size());
+        assertEquals(30, bookings.getCheckinDay(0));
+
+        BookingStore cached = cache.get(0, 100, (int fromDay, int toDay) -> {
+            throw new SQLException("Reloaded window not cached");
+        });
+        assertEquals(30, cached.getCheckinDay(0));
+    }
+
+    @Test
+    public void invalidateBookingDropsTheEntriesContainingIt() throws SQLException {
+        BookingRangeCache cache = new BookingRangeCache(BUDGET);
+        cache.get(0, 100, (int fromDay, int toDay) -> store(1, 10, 20));
+        cache.invalidateBooking(1);
+
+        AtomicInteger loads = new AtomicInteger();
+        BookingStore bookings = cache.get(0, 100, (int fromDay, int toDay) -> {
+            loads.incrementAndGet();
+            return new BookingStore();
+        });
+        assertEquals(1, loads.get());
+        assertEquals(0, bookings.size());
+    }
+
+    private static BookingStore store(int... rows) {
+        BookingStore store = new BookingStore();
+        for (int i = 0; i < rows.length; i += 3) {
+            store.add(rows[i], rows[i + 1], rows[i + 2], false, "Surname" + rows[i], "Forename");
+        }
+        return store;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package application.expiry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deadlines of the timing wheel fire exactly on their tick, also after cascading down from
+ * the higher levels.
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    public void deadlinesFireOnTheirTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(0, TICK);
+        long[] ticks = {1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 4160, 262143, 262144, 262145};
+        HashMap<Integer, Long> scheduled = new HashMap<>();
+        for (int id = 0; id < ticks.length; id++) {
+            wheel.schedule(id, ticks[id] * TICK);
+            scheduled.put(id, ticks[id]);
+        }
+
+        HashMap<Integer, Long> fired = new HashMap<>();
+        ArrayList<Integer> expired = new ArrayList<>();
+        for (long tick = 1; tick <= 262145; tick++) {
+            if (tick == 5000) {
+                // Scheduled relative to a current tick that is not aligned to any level
+                wheel.schedule(100, (tick + 4096 + 7) * TICK);
+                scheduled.put(100, tick + 4096 + 7);
+            }
+            expired.clear();
+            wheel.advance(tick * TICK, expired);
+            for (int id : expired) {
+                assertNull(fired.put(id, tick));
+            }
+        }
+        assertEquals(scheduled, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void jumpExpiresEverythingDue() {
+        TimingWheel wheel = new TimingWheel(0, TICK);
+        wheel.schedule(1, 10 * TICK);
+        wheel.schedule(2, 5000 * TICK);
+        wheel.schedule(3, 300000 * TICK);
+
+        ArrayList<Integer> expired = new ArrayList<>();
+        assertEquals(2, wheel.advance(5000 * TICK, expired));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), new HashSet<>(expired));
+        assertTrue(wheel.contains(3));
+    }
+
+    @Test
+    public void rescheduleAndCancelAfterCascading() {
+        TimingWheel wheel = new TimingWheel(0, TICK);
+        wheel.schedule(1, 5000 * TICK);
+        wheel.schedule(2, 5000 * TICK);
+        ArrayList<Integer> expired = new ArrayList<>();
+        // Both deadlines have cascaded from level 2 into a lower level
+        wheel.advance(4100 * TICK, expired);
+        assertTrue(expired.isEmpty());
+
+        wheel.schedule(1, 6000 * TICK);
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+
+        wheel.advance(5999 * TICK, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(6000 * TICK, expired);
+        assertEquals(Arrays.asList(1), expired);
+    }
+
+    @Test
+    public void deadlinesAreRoundedUpAndPastOnesAreDueNext() {
+        TimingWheel wheel = new TimingWheel(0, TICK);
+        ArrayList<Integer> expired = new ArrayList<>();
+        wheel.advance(10 * TICK, expired);
+        wheel.schedule(1, 11 * TICK + 1);
+        wheel.schedule(2, 3 * TICK);
+
+        wheel.advance(11 * TICK, expired);
+        assertEquals(Arrays.asList(2), expired);
+        wheel.advance(12 * TICK, expired);
+        assertEquals(Arrays.asList(2, 1), expired);
+    }
+}
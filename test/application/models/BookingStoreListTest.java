@@ -0,0 +1,92 @@
+package application.models;
+
+import application.enums.BookingColumn;
+import application.view.BookingSortKey;
+import javafx.collections.ListChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Deltas applied to plain, sorted and filtered booking lists.
+ */
+public class BookingStoreListTest {
+
+    private BookingStoreList list;
+
+    @Before
+    public void setUp() {
+        BookingStore store = new BookingStore();
+        store.add(1, 100, 105, false, "Meier", "Anna");
+        store.add(2, 101, 103, false, "Huber", "Jan");
+        store.add(3, 102, 110, false, "Müller", "Paul");
+        store.add(4, 103, 104, false, "Keller", "Eva");
+        list = new BookingStoreList(store);
+    }
+
+    @Test
+    public void deltaKeepsUntouchedRowsInPlace() {
+        int[] changes = new int[1];
+        list.addListener((ListChangeListener<Booking>) (ListChangeListener.Change<? extends Booking> change) -> changes[0]++);
+
+        list.applyDelta(store(2, 101, 103, "Huber", "Johann", 5, 120, 125, "Frei", "Ida"), new HashSet<>(Arrays.asList(3)));
+
+        assertEquals(Arrays.asList(1, 2, 4, 5), ids());
+        assertEquals("Johann", list.get(1).getForename());
+        assertEquals(1, changes[0]);
+    }
+
+    @Test
+    public void unchangedRowsInTheDeltaAreIgnored() {
+        int[] changes = new int[1];
+        list.addListener((ListChangeListener<Booking>) (ListChangeListener.Change<? extends Booking> change) -> changes[0]++);
+
+        list.applyDelta(store(1, 100, 105, "Meier", "Anna"), Collections.emptySet());
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids());
+        assertEquals(0, changes[0]);
+    }
+
+    @Test
+    public void sortedListIsSortedAgainAfterTheDelta() {
+        list.setSortOrder(Collections.singletonList(new BookingSortKey(BookingColumn.SURNAME, true)));
+        assertEquals(Arrays.asList(2, 4, 1, 3), ids());
+
+        list.applyDelta(store(4, 103, 104, "Zimmer", "Eva", 5, 120, 125, "Abt", "Ida"), new HashSet<>(Arrays.asList(1)));
+
+        assertEquals(Arrays.asList(5, 2, 3, 4), ids());
+        assertEquals(4, list.getStore().size());
+    }
+
+    @Test
+    public void filteredListFollowsTheNamesOfTheDelta() {
+        list.setQuery("ller");
+        assertEquals(Arrays.asList(3, 4), ids());
+
+        list.applyDelta(store(4, 103, 104, "Kern", "Eva", 5, 120, 125, "Zeller", "Ida"), Collections.emptySet());
+
+        assertEquals(Arrays.asList(3, 5), ids());
+    }
+
+    private ArrayList<Integer> ids() {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (Booking booking : list) {
+            ids.add(booking.getId());
+        }
+        return ids;
+    }
+
+    private static BookingStore store(Object... rows) {
+        BookingStore store = new BookingStore();
+        for (int i = 0; i < rows.length; i += 5) {
+            store.add((Integer) rows[i], (Integer) rows[i + 1], (Integer) rows[i + 2], false, (String) rows[i + 3], (String) rows[i + 4]);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,84 @@
+package application.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Term matching, normalization and incremental updates of the guest name index.
+ */
+public class NameIndexTest {
+
+    private NameIndex index;
+
+    @Before
+    public void setUp() {
+        index = new NameIndex();
+        index.put(1, "Müller", "Anna");
+        index.put(2, "Mueller", "Jan");
+        index.put(3, "Schmidt", "Anna Maria");
+        index.put(4, "Anders", "Paul");
+    }
+
+    @Test
+    public void longTermsMatchAnywhere() {
+        assertArrayEquals(new int[]{1, 2}, search("ller"));
+        assertArrayEquals(new int[]{3}, search("hmid"));
+    }
+
+    @Test
+    public void shortTermsMatchTheStartOfAToken() {
+        assertArrayEquals(new int[]{1, 3, 4}, search("an"));
+        assertArrayEquals(new int[]{3}, search("ma"));
+        assertArrayEquals(new int[0], search("ul"));
+    }
+
+    @Test
+    public void diacriticsAndCaseAreIgnored() {
+        assertArrayEquals(new int[]{1}, search("MÜL"));
+        assertArrayEquals(new int[]{1}, search("mul"));
+        assertEquals("anna maria", NameIndex.normalize("Anna\tMaría"));
+    }
+
+    @Test
+    public void allTermsHaveToMatch() {
+        assertArrayEquals(new int[]{1}, search("anna mül"));
+        assertArrayEquals(new int[0], search("anna paul"));
+        assertNull(index.search("   "));
+    }
+
+    @Test
+    public void updatesReplaceAndRemoveBookings() {
+        index.put(1, "Meier", "Anna");
+        index.remove(3);
+
+        assertArrayEquals(new int[]{2}, search("ller"));
+        assertArrayEquals(new int[]{1, 4}, search("an"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void removedBookingsAreCompacted() {
+        for (int id = 100; id < 3100; id++) {
+            index.put(id, "Guest" + id, "Temporary");
+        }
+        for (int id = 100; id < 3100; id++) {
+            index.remove(id);
+        }
+
+        assertArrayEquals(new int[0], search("temporary"));
+        assertArrayEquals(new int[]{1, 2}, search("ller"));
+        assertEquals(4, index.size());
+    }
+
+    private int[] search(String query) {
+        int[] ids = index.search(query);
+        Arrays.sort(ids);
+        return ids;
+    }
+}